@@ -0,0 +1,204 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+import net.zetetic.database.sqlcipher.SQLiteStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented benchmark of incremental backups of a 1M-row database after a 1% change,
+ * compared with copying the whole file.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BackupBenchmarkTest {
+
+    private static final String TAG = "BackupBenchmark";
+    private static final String DATABASE_NAME = "backup-benchmark.db";
+    private static final int ROWS = 1_000_000;
+    private static final int CHANGED_ROWS = ROWS / 100;
+
+    private Context context;
+    private WorkoutDatabaseManager dbManager;
+    private File backupDir;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        backupDir = new File(context.getCacheDir(), "backup-benchmark");
+        deleteRecursively(backupDir);
+
+        dbManager = new WorkoutDatabaseManager(context, DATABASE_NAME);
+        SQLiteDatabase db = dbManager.getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement("INSERT INTO workouts (name, duration, type, updated_at) VALUES (?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < ROWS; i++) {
+                insert.bindString(1, "Workout " + i);
+                insert.bindString(2, String.valueOf(20 + i % 70));
+                insert.bindString(3, i % 3 == 0 ? "Strength" : "Cardio");
+                insert.bindLong(4, i);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        dbManager.close();
+        context.deleteDatabase(DATABASE_NAME);
+        deleteRecursively(backupDir);
+    }
+
+    @Test
+    public void incrementalBackup_afterRecentOnePercentChange() throws IOException {
+        PageBackupEngine engine = new PageBackupEngine(backupDir);
+        File databaseFile = new File(dbManager.getWritableDatabase().getPath());
+
+        long copyMillis = timeFullCopy(databaseFile);
+        long fullStart = System.nanoTime();
+        PageBackupEngine.Result full = dbManager.backupTo(engine);
+        long fullMillis = (System.nanoTime() - fullStart) / 1_000_000;
+
+        // The typical day: the newest 0.5% of rows edited, and 0.5% new rows logged
+        SQLiteDatabase db = dbManager.getWritableDatabase();
+        db.execSQL("UPDATE workouts SET completed = 1, updated_at = updated_at + 1 WHERE id > ?",
+                new Object[]{ROWS - CHANGED_ROWS / 2});
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < CHANGED_ROWS / 2; i++) {
+                db.execSQL("INSERT INTO workouts (name, duration, type) VALUES (?, ?, ?)",
+                        new Object[]{"New workout " + i, "45", "Cardio"});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        long incrementalStart = System.nanoTime();
+        PageBackupEngine.Result incremental = dbManager.backupTo(engine);
+        long incrementalMillis = (System.nanoTime() - incrementalStart) / 1_000_000;
+
+        Log.i(TAG, "file=" + databaseFile.length() + " bytes, full copy=" + copyMillis + "ms");
+        Log.i(TAG, "full backup: " + fullMillis + "ms, " + full.bytesWritten + " bytes, " + full.pagesWritten + " pages");
+        Log.i(TAG, "incremental after 1% recent change: " + incrementalMillis + "ms, " + incremental.bytesWritten
+                + " bytes, " + incremental.pagesWritten + " of " + incremental.pageCount + " pages");
+
+        assertFalse(incremental.full);
+        assertTrue(incremental.bytesWritten < full.bytesWritten / 10);
+        assertTrue(full.bytesWritten < databaseFile.length());
+        assertRestoredDatabaseIsIntact(engine, ROWS + CHANGED_ROWS / 2);
+    }
+
+    @Test
+    public void incrementalBackup_afterScatteredOnePercentChange() throws IOException {
+        PageBackupEngine engine = new PageBackupEngine(backupDir);
+        PageBackupEngine.Result full = dbManager.backupTo(engine);
+
+        // Worst case for a page diff: every 100th row, so nearly every table page is touched
+        dbManager.getWritableDatabase().execSQL("UPDATE workouts SET completed = 1 WHERE id % 100 = 0");
+
+        long start = System.nanoTime();
+        PageBackupEngine.Result incremental = dbManager.backupTo(engine);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        Log.i(TAG, "incremental after 1% scattered change: " + millis + "ms, " + incremental.bytesWritten
+                + " bytes, " + incremental.pagesWritten + " of " + incremental.pageCount + " pages (full was "
+                + full.bytesWritten + " bytes)");
+        // Index pages are untouched, so even this case writes less than a full backup
+        assertTrue(incremental.pagesWritten < incremental.pageCount);
+        assertRestoredDatabaseIsIntact(engine, ROWS);
+    }
+
+    @Test
+    public void restore_replacesContentsOfTheOpenDatabase() throws IOException {
+        PageBackupEngine engine = new PageBackupEngine(backupDir);
+        dbManager.backupTo(engine);
+        dbManager.getWritableDatabase().execSQL("DELETE FROM workouts WHERE id % 2 = 0");
+        assertTrue(dbManager.addWorkout("After backup", "30", "Cardio"));
+
+        File restored = new File(context.getCacheDir(), "restored-benchmark.db");
+        engine.restore(restored);
+        long start = System.nanoTime();
+        try {
+            dbManager.replaceContentsWith(restored);
+        } finally {
+            restored.delete();
+        }
+        Log.i(TAG, "replace contents of " + ROWS + " rows: " + (System.nanoTime() - start) / 1_000_000 + "ms");
+
+        // The same connection keeps working, and new writes are stamped after every restored row
+        assertEquals(ROWS, dbManager.getTotalWorkouts());
+        assertTrue(dbManager.addWorkout("After restore", "30", "Cardio"));
+        assertEquals(ROWS + 1, dbManager.getTotalWorkouts());
+        assertTrue(dbManager.checkIntegrity(10).isEmpty());
+    }
+
+    private void assertRestoredDatabaseIsIntact(PageBackupEngine engine, int expectedRows) throws IOException {
+        File restored = new File(context.getCacheDir(), "restored-benchmark.db");
+        long start = System.nanoTime();
+        engine.restore(restored);
+        Log.i(TAG, "restore: " + (System.nanoTime() - start) / 1_000_000 + "ms");
+
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(restored.getPath(), new byte[0], null,
+                SQLiteDatabase.OPEN_READONLY, null, null);
+        try (Cursor integrity = db.rawQuery("PRAGMA integrity_check", null);
+             Cursor count = db.rawQuery("SELECT COUNT(*) FROM workouts", null)) {
+            assertTrue(integrity.moveToFirst());
+            assertEquals("ok", integrity.getString(0));
+            assertTrue(count.moveToFirst());
+            assertEquals(expectedRows, count.getInt(0));
+        } finally {
+            db.close();
+            restored.delete();
+        }
+    }
+
+    private long timeFullCopy(File databaseFile) throws IOException {
+        File copy = new File(context.getCacheDir(), "copy-benchmark.db");
+        long start = System.nanoTime();
+        try (InputStream in = new FileInputStream(databaseFile); OutputStream out = new FileOutputStream(copy)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        copy.delete();
+        return millis;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
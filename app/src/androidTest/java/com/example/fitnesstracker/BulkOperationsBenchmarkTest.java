@@ -0,0 +1,130 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented benchmark comparing single-transaction bulk operations against
+ * looping the single-workout methods over 10k selected rows.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BulkOperationsBenchmarkTest {
+
+    private static final String TAG = "BulkOperationsBenchmark";
+    private static final int ROWS = 10_000;
+
+    private WorkoutDatabaseManager dbManager;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase("bulk-benchmark.db");
+        // A file-backed database so every looped write pays for its own journal commit
+        dbManager = new WorkoutDatabaseManager(context, "bulk-benchmark.db");
+        SQLiteDatabase db = dbManager.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < ROWS; i++) {
+                db.execSQL("INSERT INTO workouts (name, duration, type) VALUES (?, ?, ?)",
+                        new Object[]{"Workout " + i, "30", "Cardio"});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbManager.close();
+        context.deleteDatabase("bulk-benchmark.db");
+    }
+
+    @Test
+    public void bulkMarkComplete_beatsLoopedSingleUpdates() {
+        List<Integer> ids = dbManager.getWorkoutIds();
+        List<Integer> firstHalf = ids.subList(0, ROWS / 2);
+        List<Integer> secondHalf = ids.subList(ROWS / 2, ROWS);
+
+        long loopStart = System.nanoTime();
+        for (int id : firstHalf) {
+            assertTrue(dbManager.markWorkoutAsComplete(id));
+        }
+        long loopMillis = (System.nanoTime() - loopStart) / 1_000_000;
+
+        long bulkStart = System.nanoTime();
+        assertEquals(secondHalf.size(), dbManager.markWorkoutsAsComplete(secondHalf));
+        long bulkMillis = (System.nanoTime() - bulkStart) / 1_000_000;
+
+        Log.i(TAG, "mark complete x" + secondHalf.size() + ": looped=" + loopMillis + "ms bulk=" + bulkMillis + "ms");
+        assertEquals(ROWS, dbManager.getWorkoutIdsByStatus("Completed").size());
+        assertTrue(bulkMillis < loopMillis);
+    }
+
+    @Test
+    public void bulkDeleteAndRetype_onTenThousandRows() {
+        List<Integer> ids = dbManager.getWorkoutIds();
+
+        long retypeStart = System.nanoTime();
+        assertEquals(ROWS, dbManager.updateWorkoutsType(ids, "Strength"));
+        long retypeMillis = (System.nanoTime() - retypeStart) / 1_000_000;
+
+        long deleteStart = System.nanoTime();
+        assertNotEquals(-1, dbManager.deleteWorkoutsByIds(ids));
+        long deleteMillis = (System.nanoTime() - deleteStart) / 1_000_000;
+
+        Log.i(TAG, "bulk x" + ROWS + ": retype=" + retypeMillis + "ms delete=" + deleteMillis + "ms");
+        assertEquals(0, dbManager.getTotalWorkouts());
+    }
+
+    @Test
+    public void bulkUpdates_reportOnlyTheRowsTheyWrote() {
+        List<Integer> ids = dbManager.getWorkoutIds().subList(0, 10);
+        // Deleted after being selected, as if by another screen or a sync
+        assertTrue(dbManager.deleteWorkoutById(ids.get(0)));
+        assertTrue(dbManager.deleteWorkoutById(ids.get(1)));
+
+        Set<Integer> completed = new HashSet<>();
+        assertEquals(8, dbManager.markWorkoutsAsComplete(ids, completed));
+        assertEquals(new HashSet<>(ids.subList(2, 10)), completed);
+
+        Set<Integer> retyped = new HashSet<>();
+        assertEquals(8, dbManager.updateWorkoutsType(ids, "Strength", retyped));
+        assertEquals(completed, retyped);
+
+        Set<Integer> deleted = new HashSet<>();
+        assertNotEquals(-1, dbManager.deleteWorkoutsByIds(ids, deleted));
+        assertEquals(completed, deleted);
+    }
+
+    @Test
+    public void loopedSingleDeletes_onTenThousandRows() {
+        List<Integer> ids = dbManager.getWorkoutIds();
+
+        long start = System.nanoTime();
+        for (int id : ids) {
+            dbManager.deleteWorkoutById(id);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        Log.i(TAG, "looped delete x" + ROWS + ": " + millis + "ms");
+        assertEquals(0, dbManager.getTotalWorkouts());
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.work.Configuration;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.TestDriver;
+import androidx.work.testing.WorkManagerTestInitHelper;
+
+import net.zetetic.database.DatabaseUtils;
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests for the maintenance pass and its WorkManager scheduling.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseMaintenanceTest {
+
+    private static final String DATABASE_NAME = "maintenance-test.db";
+    private static final int ROWS = 5_000;
+
+    private Context context;
+    private WorkoutDatabaseManager dbManager;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        dbManager = new WorkoutDatabaseManager(context, DATABASE_NAME);
+        WorkoutMetrics.reset();
+
+        // Runs enqueued work on the calling thread, with constraints controlled through the TestDriver
+        Configuration config = new Configuration.Builder()
+                .setMinimumLoggingLevel(Log.DEBUG)
+                .setExecutor(new SynchronousExecutor())
+                .build();
+        WorkManagerTestInitHelper.initializeTestWorkManager(context, config);
+    }
+
+    @After
+    public void tearDown() {
+        dbManager.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void maintenance_analyzesAndReclaimsDeletedSpace() {
+        seed(ROWS);
+        dbManager.deleteAllWorkouts();
+        // Purge everything now instead of waiting out the undo window
+        dbManager.purgeTombstones(Long.MAX_VALUE, ROWS);
+        SQLiteDatabase db = dbManager.getWritableDatabase();
+        assertTrue(DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null) > 0);
+
+        DatabaseMaintenance.Result result = DatabaseMaintenance.run(dbManager, () -> false);
+
+        assertTrue(result.integrityOk);
+        assertFalse(result.stopped);
+        assertTrue(result.bytesReclaimed > 0);
+        assertEquals(0, DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null));
+        assertEquals(1, DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM sqlite_master WHERE name = 'sqlite_stat1'", null));
+
+        // Reported through the metrics surface
+        assertEquals(result.bytesReclaimed, WorkoutMetrics.getCount("maintenance.bytesReclaimed"));
+        assertEquals(1, WorkoutMetrics.get("maintenance.run").getLatency().getCount());
+        assertEquals(1, WorkoutMetrics.get("maintenance.vacuum").getLatency().getCount());
+        assertTrue(WorkoutMetrics.toJson().contains("\"maintenance.bytesReclaimed\": {\"total\": " + result.bytesReclaimed));
+    }
+
+    @Test
+    public void fullVacuum_runsOnlyFromMaintenance() {
+        // A file from before version 3, without incremental auto-vacuum
+        SQLiteDatabase db = dbManager.getWritableDatabase();
+        db.execSQL("PRAGMA auto_vacuum = NONE");
+        db.execSQL("VACUUM");
+        seed(ROWS);
+        dbManager.deleteAllWorkouts();
+        dbManager.purgeTombstones(Long.MAX_VALUE, ROWS);
+        long freePages = DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+        assertTrue(freePages > 0);
+
+        // The compactor's vacuum step runs on the writer connection and must not rewrite the file
+        assertEquals(0, dbManager.incrementalVacuum(ROWS));
+        assertEquals(0, DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null));
+        assertEquals(freePages, DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null));
+        assertNull(WorkoutMetrics.get("db.enableIncrementalVacuum"));
+
+        DatabaseMaintenance.Result result = DatabaseMaintenance.run(dbManager, () -> false);
+
+        assertFalse(result.stopped);
+        assertEquals(2, DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null));
+        assertEquals(0, DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null));
+        assertFalse(dbManager.enableIncrementalVacuum());
+    }
+
+    @Test
+    public void maintenance_stopsWhenConstraintsAreLost() {
+        seed(ROWS);
+        dbManager.deleteAllWorkouts();
+        dbManager.purgeTombstones(Long.MAX_VALUE, ROWS);
+
+        DatabaseMaintenance.Result result = DatabaseMaintenance.run(dbManager, () -> true);
+
+        assertTrue(result.stopped);
+        assertEquals(0, result.bytesReclaimed);
+        assertNull(WorkoutMetrics.get("db.analyze"));
+    }
+
+    @Test
+    public void indexProblems_areRepairable() {
+        assertTrue(DatabaseMaintenance.onlyIndexProblems(Arrays.asList(
+                "row 12 missing from index idx_workouts_live_type",
+                "wrong # of entries in index idx_workouts_uuid")));
+        assertFalse(DatabaseMaintenance.onlyIndexProblems(Arrays.asList(
+                "row 12 missing from index idx_workouts_live_type",
+                "*** in database main ***\nPage 7: btreeInitPage() returns error code 11")));
+    }
+
+    @Test
+    public void worker_runsOnlyWhenIdleAndCharging() throws Exception {
+        WorkManager workManager = WorkManager.getInstance(context);
+        TestDriver testDriver = WorkManagerTestInitHelper.getTestDriver(context);
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(MaintenanceWorker.class)
+                .setConstraints(MaintenanceWorker.constraints())
+                .build();
+        workManager.enqueue(request).getResult().get();
+
+        assertEquals(WorkInfo.State.ENQUEUED, workManager.getWorkInfoById(request.getId()).get().getState());
+        assertNull(WorkoutMetrics.get("maintenance.run"));
+
+        testDriver.setAllConstraintsMet(request.getId());
+
+        WorkInfo info = workManager.getWorkInfoById(request.getId()).get();
+        assertEquals(WorkInfo.State.SUCCEEDED, info.getState());
+        assertTrue(info.getOutputData().getBoolean(MaintenanceWorker.KEY_INTEGRITY_OK, false));
+        assertTrue(info.getOutputData().getLong(MaintenanceWorker.KEY_BYTES_RECLAIMED, -1) >= 0);
+        assertEquals(1, WorkoutMetrics.get("maintenance.run").getLatency().getCount());
+    }
+
+    @Test
+    public void dailySchedule_isUniqueAndConstrained() throws Exception {
+        MaintenanceWorker.scheduleDailyMaintenance(context);
+        MaintenanceWorker.scheduleDailyMaintenance(context);
+
+        List<WorkInfo> infos = WorkManager.getInstance(context)
+                .getWorkInfosForUniqueWork(MaintenanceWorker.PERIODIC_WORK_NAME).get();
+        assertEquals(1, infos.size());
+        assertEquals(WorkInfo.State.ENQUEUED, infos.get(0).getState());
+
+        TestDriver testDriver = WorkManagerTestInitHelper.getTestDriver(context);
+        testDriver.setPeriodDelayMet(infos.get(0).getId());
+        assertNull(WorkoutMetrics.get("maintenance.run")); // Still waiting for idle and charging
+        testDriver.setAllConstraintsMet(infos.get(0).getId());
+        assertEquals(1, WorkoutMetrics.get("maintenance.run").getLatency().getCount());
+    }
+
+    private void seed(int rows) {
+        SQLiteDatabase db = dbManager.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < rows; i++) {
+                db.execSQL("INSERT INTO workouts (name, duration, type) VALUES (?, ?, ?)",
+                        new Object[]{"Workout " + i + " with a longer name to fill pages", "30", "Cardio"});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests for the encrypted database mode: migration from a plaintext database, recovery from a lost key,
+ * a benchmark of insert, filter and aggregate latency with encryption on and off, and a baseline
+ * of SQLCipher's SQLite build against the platform's android.database.sqlite.
+ */
+@RunWith(AndroidJUnit4.class)
+public class EncryptedDatabaseTest {
+
+    private static final String TAG = "EncryptedDatabaseTest";
+    private static final String PLAIN_NAME = "plain-test.db";
+    private static final String ENCRYPTED_NAME = "encrypted-test.db";
+    private static final String FRAMEWORK_NAME = "framework-test.db";
+    private static final int SEED_ROWS = 20_000;
+    private static final int INSERTS = 500;
+    private static final int READ_REPEATS = 20;
+
+    private Context context;
+    private byte[] passphrase;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(PLAIN_NAME);
+        context.deleteDatabase(ENCRYPTED_NAME);
+        context.deleteDatabase(FRAMEWORK_NAME);
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        passphrase = DatabaseKeyStore.rawKeyPassphrase(key);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(PLAIN_NAME);
+        context.deleteDatabase(ENCRYPTED_NAME);
+        context.deleteDatabase(FRAMEWORK_NAME);
+    }
+
+    @Test
+    public void plaintextVersion2Database_isEncryptedAndUpgraded() throws IOException {
+        // The schema as shipped in version 2
+        File plain = context.getDatabasePath(PLAIN_NAME);
+        plain.getParentFile().mkdirs();
+        SQLiteDatabase v2 = SQLiteDatabase.openDatabase(plain.getPath(), new byte[0], null,
+                SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.CREATE_IF_NECESSARY, null, null);
+        v2.execSQL("CREATE TABLE workouts (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, " +
+                "duration TEXT NOT NULL, type TEXT NOT NULL, completed INTEGER DEFAULT 0)");
+        for (int i = 0; i < 100; i++) {
+            v2.execSQL("INSERT INTO workouts (name, duration, type, completed) VALUES (?, ?, ?, ?)",
+                    new Object[]{"Workout " + i, "30", i % 2 == 0 ? "Cardio" : "Strength", i % 3 == 0 ? 1 : 0});
+        }
+        v2.execSQL("PRAGMA user_version = 2");
+        v2.close();
+
+        File encrypted = context.getDatabasePath(ENCRYPTED_NAME);
+        DatabaseEncryption.encrypt(plain, encrypted, passphrase);
+        assertFalse(hasPlaintextHeader(encrypted));
+
+        WorkoutDatabaseManager dbManager = new WorkoutDatabaseManager(context, ENCRYPTED_NAME, passphrase);
+        try {
+            assertEquals(100, dbManager.getTotalWorkouts());
+            assertEquals(3000, dbManager.getTotalDuration());
+            assertEquals(50, dbManager.getWorkoutsByType("Strength").size());
+            assertTrue(dbManager.addWorkout("After migration", "45", "Cardio"));
+            assertEquals(101, dbManager.getTotalWorkouts());
+            // Workouts from before version 6 have no known date and stay out of the daily totals
+            int today = RecurrenceRule.today();
+            assertEquals(1, dbManager.getRecentSummary(today).getTodayCount(today));
+            assertEquals(today, dbManager.getFirstSeriesDay());
+            assertTrue(dbManager.checkIntegrity(10).isEmpty());
+        } finally {
+            dbManager.close();
+        }
+
+        // Neither an empty nor a different passphrase can read it
+        assertCannotOpen(new byte[0]);
+        byte[] otherKey = new byte[32];
+        assertCannotOpen(DatabaseKeyStore.rawKeyPassphrase(otherKey));
+    }
+
+    @Test
+    public void keystorePassphrase_isStableAcrossCalls() {
+        byte[] first = DatabaseKeyStore.getOrCreatePassphrase(context);
+        byte[] second = DatabaseKeyStore.getOrCreatePassphrase(context);
+        assertArrayEquals(first, second);
+        assertEquals(67, first.length); // x'<64 hex digits>'
+    }
+
+    @Test
+    public void lostKey_startsWithAnEmptyDatabase() {
+        SharedPreferences keyPrefs = context.getSharedPreferences("database_key", Context.MODE_PRIVATE);
+        SharedPreferences encryptionPrefs = context.getSharedPreferences("database", Context.MODE_PRIVATE);
+        Map<String, ?> savedKey = keyPrefs.getAll();
+        boolean savedEncrypted = encryptionPrefs.getBoolean("encrypted", false);
+        try {
+            // An encrypted database restored together with a key wrapped by another device's keystore
+            WorkoutDatabaseManager restored = new WorkoutDatabaseManager(context, ENCRYPTED_NAME, passphrase);
+            assertTrue(restored.addWorkout("From another device", "30", "Cardio"));
+            restored.close();
+            SecureRandom random = new SecureRandom();
+            byte[] wrapped = new byte[48];
+            byte[] iv = new byte[12];
+            random.nextBytes(wrapped);
+            random.nextBytes(iv);
+            keyPrefs.edit()
+                    .putString("wrapped_key", Base64.encodeToString(wrapped, Base64.NO_WRAP))
+                    .putString("iv", Base64.encodeToString(iv, Base64.NO_WRAP))
+                    .commit();
+            encryptionPrefs.edit().putBoolean("encrypted", true).commit();
+
+            byte[] fresh = DatabaseEncryption.prepare(context, ENCRYPTED_NAME);
+            assertFalse(context.getDatabasePath(ENCRYPTED_NAME).exists());
+            WorkoutDatabaseManager dbManager = new WorkoutDatabaseManager(context, ENCRYPTED_NAME, fresh);
+            try {
+                assertEquals(0, dbManager.getTotalWorkouts());
+            } finally {
+                dbManager.close();
+            }
+        } finally {
+            // Put back whatever key the app under test was using
+            SharedPreferences.Editor editor = keyPrefs.edit().clear();
+            for (Map.Entry<String, ?> entry : savedKey.entrySet()) {
+                editor.putString(entry.getKey(), (String) entry.getValue());
+            }
+            editor.commit();
+            encryptionPrefs.edit().putBoolean("encrypted", savedEncrypted).commit();
+        }
+    }
+
+    @Test
+    public void benchmark_encryptionOverhead() {
+        long[] plain = measure(new WorkoutDatabaseManager(context, PLAIN_NAME));
+        long[] encrypted = measure(new WorkoutDatabaseManager(context, ENCRYPTED_NAME, passphrase));
+
+        String[] names = {"insert", "filter", "aggregate"};
+        for (int i = 0; i < names.length; i++) {
+            Log.i(TAG, names[i] + ": plaintext " + plain[i] + " us, encrypted " + encrypted[i] + " us, overhead "
+                    + String.format("%.0f%%", 100.0 * (encrypted[i] - plain[i]) / Math.max(1, plain[i])));
+        }
+        assertFalse(hasPlaintextHeader(context.getDatabasePath(ENCRYPTED_NAME)));
+        // Decrypted pages stay in the page cache, so warm reads should cost about the same
+        assertTrue("filter " + Arrays.toString(encrypted), encrypted[1] < plain[1] * 3 + 1_000);
+        assertTrue("aggregate " + Arrays.toString(encrypted), encrypted[2] < plain[2] * 3 + 1_000);
+    }
+
+    @Test
+    public void benchmark_sqlcipherAgainstFrameworkSqlite() {
+        // The same statements on each engine, so only the SQLite build and the cipher differ
+        File frameworkFile = context.getDatabasePath(FRAMEWORK_NAME);
+        frameworkFile.getParentFile().mkdirs();
+        android.database.sqlite.SQLiteDatabase framework = android.database.sqlite.SQLiteDatabase.openOrCreateDatabase(frameworkFile, null);
+        long[] platform = measure(new Engine() {
+            @Override
+            public void execSQL(String sql, Object[] args) {
+                framework.execSQL(sql, args);
+            }
+
+            @Override
+            public Cursor rawQuery(String sql, String[] args) {
+                return framework.rawQuery(sql, args);
+            }
+
+            @Override
+            public void beginTransaction() {
+                framework.beginTransaction();
+            }
+
+            @Override
+            public void setTransactionSuccessful() {
+                framework.setTransactionSuccessful();
+            }
+
+            @Override
+            public void endTransaction() {
+                framework.endTransaction();
+            }
+
+            @Override
+            public void close() {
+                framework.close();
+            }
+        });
+        long[] plain = measure(sqlcipher(context.getDatabasePath(PLAIN_NAME), new byte[0]));
+        long[] encrypted = measure(sqlcipher(context.getDatabasePath(ENCRYPTED_NAME), passphrase));
+
+        String[] names = {"insert", "filter", "aggregate"};
+        for (int i = 0; i < names.length; i++) {
+            Log.i(TAG, names[i] + ": framework " + platform[i] + " us, sqlcipher plaintext " + plain[i]
+                    + " us, sqlcipher encrypted " + encrypted[i] + " us");
+        }
+        // Without a key SQLCipher's build should cost about what the platform's SQLite does
+        assertTrue("filter " + Arrays.toString(plain), plain[1] < platform[1] * 3 + 1_000);
+        assertTrue("aggregate " + Arrays.toString(plain), plain[2] < platform[2] * 3 + 1_000);
+    }
+
+    /**
+     * The calls the engine baseline needs, implemented by both SQLite bindings.
+     */
+    private interface Engine {
+        void execSQL(String sql, Object[] args);
+
+        Cursor rawQuery(String sql, String[] args);
+
+        void beginTransaction();
+
+        void setTransactionSuccessful();
+
+        void endTransaction();
+
+        void close();
+    }
+
+    private static Engine sqlcipher(File file, byte[] passphrase) {
+        file.getParentFile().mkdirs();
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file.getPath(), passphrase, null, null, null);
+        return new Engine() {
+            @Override
+            public void execSQL(String sql, Object[] args) {
+                db.execSQL(sql, args);
+            }
+
+            @Override
+            public Cursor rawQuery(String sql, String[] args) {
+                return db.rawQuery(sql, args);
+            }
+
+            @Override
+            public void beginTransaction() {
+                db.beginTransaction();
+            }
+
+            @Override
+            public void setTransactionSuccessful() {
+                db.setTransactionSuccessful();
+            }
+
+            @Override
+            public void endTransaction() {
+                db.endTransaction();
+            }
+
+            @Override
+            public void close() {
+                db.close();
+            }
+        };
+    }
+
+    /**
+     * Returns the median latency in microseconds of a single-row insert transaction, a type filter and
+     * the summary aggregates, run as raw SQL on the given engine.
+     */
+    private long[] measure(Engine engine) {
+        try {
+            engine.execSQL("CREATE TABLE workouts (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, " +
+                    "duration TEXT NOT NULL, type TEXT NOT NULL, completed INTEGER DEFAULT 0)", new Object[0]);
+            engine.execSQL("CREATE INDEX idx_workouts_type ON workouts(type)", new Object[0]);
+            engine.beginTransaction();
+            try {
+                for (int i = 0; i < SEED_ROWS; i++) {
+                    engine.execSQL("INSERT INTO workouts (name, duration, type) VALUES (?, ?, ?)",
+                            new Object[]{"Workout " + i, String.valueOf(20 + i % 60), i % 4 == 0 ? "Strength" : "Cardio"});
+                }
+                engine.setTransactionSuccessful();
+            } finally {
+                engine.endTransaction();
+            }
+
+            long[] inserts = new long[INSERTS];
+            for (int i = 0; i < INSERTS; i++) {
+                long start = System.nanoTime();
+                engine.beginTransaction();
+                try {
+                    engine.execSQL("INSERT INTO workouts (name, duration, type) VALUES (?, ?, ?)",
+                            new Object[]{"Timed " + i, "30", "Cardio"});
+                    engine.setTransactionSuccessful();
+                } finally {
+                    engine.endTransaction();
+                }
+                inserts[i] = (System.nanoTime() - start) / 1000;
+            }
+
+            long[] filters = new long[READ_REPEATS];
+            long[] aggregates = new long[READ_REPEATS];
+            for (int i = 0; i < READ_REPEATS; i++) {
+                long start = System.nanoTime();
+                try (Cursor cursor = engine.rawQuery("SELECT id FROM workouts WHERE type = ? ORDER BY id DESC",
+                        new String[]{"Strength"})) {
+                    assertEquals(SEED_ROWS / 4, cursor.getCount());
+                }
+                filters[i] = (System.nanoTime() - start) / 1000;
+
+                start = System.nanoTime();
+                try (Cursor cursor = engine.rawQuery("SELECT COUNT(*), SUM(CAST(duration AS INTEGER)), " +
+                        "(SELECT type FROM workouts GROUP BY type ORDER BY COUNT(*) DESC LIMIT 1) FROM workouts", null)) {
+                    assertTrue(cursor.moveToFirst());
+                }
+                aggregates[i] = (System.nanoTime() - start) / 1000;
+            }
+            return new long[]{median(inserts), median(filters), median(aggregates)};
+        } finally {
+            engine.close();
+        }
+    }
+
+    /**
+     * Returns the median latency in microseconds of a single insert, a type filter and the summary aggregates.
+     */
+    private long[] measure(WorkoutDatabaseManager dbManager) {
+        try {
+            SQLiteDatabase db = dbManager.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < SEED_ROWS; i++) {
+                    db.execSQL("INSERT INTO workouts (name, duration, type) VALUES (?, ?, ?)",
+                            new Object[]{"Workout " + i, String.valueOf(20 + i % 60), i % 4 == 0 ? "Strength" : "Cardio"});
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            long[] inserts = new long[INSERTS];
+            for (int i = 0; i < INSERTS; i++) {
+                long start = System.nanoTime();
+                dbManager.addWorkout("Timed " + i, "30", "Cardio");
+                inserts[i] = (System.nanoTime() - start) / 1000;
+            }
+
+            long[] filters = new long[READ_REPEATS];
+            long[] aggregates = new long[READ_REPEATS];
+            for (int i = 0; i < READ_REPEATS; i++) {
+                long start = System.nanoTime();
+                assertEquals(SEED_ROWS / 4, dbManager.getWorkoutIdsByType("Strength").size());
+                filters[i] = (System.nanoTime() - start) / 1000;
+
+                start = System.nanoTime();
+                dbManager.getTotalWorkouts();
+                dbManager.getTotalDuration();
+                dbManager.getMostFrequentWorkoutType();
+                aggregates[i] = (System.nanoTime() - start) / 1000;
+            }
+            return new long[]{median(inserts), median(filters), median(aggregates)};
+        } finally {
+            dbManager.close();
+        }
+    }
+
+    private void assertCannotOpen(byte[] wrongPassphrase) {
+        WorkoutDatabaseManager dbManager = new WorkoutDatabaseManager(context, ENCRYPTED_NAME, wrongPassphrase);
+        try {
+            dbManager.getTotalWorkouts();
+            fail("Opened the encrypted database with the wrong passphrase");
+        } catch (RuntimeException expected) {
+            // "file is not a database"
+        } finally {
+            dbManager.close();
+        }
+    }
+
+    private static boolean hasPlaintextHeader(File file) {
+        byte[] header = new byte[16];
+        try (FileInputStream in = new FileInputStream(file)) {
+            if (in.read(header) != header.length) {
+                return false;
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return new String(header, StandardCharsets.US_ASCII).startsWith("SQLite format 3");
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
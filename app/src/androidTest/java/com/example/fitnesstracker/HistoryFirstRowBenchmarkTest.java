@@ -0,0 +1,91 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented benchmark of the history screen's time to first row, launched with and without
+ * the prefetched first page. The screen is pointed at a database of its own for the run, so the
+ * user's workouts are never read or touched.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HistoryFirstRowBenchmarkTest {
+
+    private static final String TAG = "HistoryFirstRowBenchmark";
+    private static final String DB_NAME = "history-first-row.db";
+    private static final int SEED_ROWS = 2_000;
+    private static final int LAUNCHES = 10;
+
+    private Context context;
+    private WorkoutDatabaseManager dbManager;
+    private WorkoutDatabaseManager appManager;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        dbManager = new WorkoutDatabaseManager(context, DB_NAME);
+        appManager = WorkoutDatabaseManager.swapInstance(dbManager);
+        SQLiteDatabase db = dbManager.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < SEED_ROWS; i++) {
+                db.execSQL("INSERT INTO workouts (name, duration, type) VALUES (?, ?, ?)",
+                        new Object[]{"Workout " + i, "30", i % 4 == 0 ? "Strength" : "Cardio"});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        WorkoutMetrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        WorkoutDatabaseManager.swapInstance(appManager);
+        // The prefetched page came from the test database
+        HistoryWarmCache.invalidate();
+        dbManager.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void warmStart_reachesFirstRowBeforeColdStart() {
+        for (int i = 0; i < LAUNCHES; i++) {
+            HistoryWarmCache.invalidate();
+            launchHistory();
+            HistoryWarmCache.prefetch(dbManager);
+            assertNotNull(HistoryWarmCache.get());
+            launchHistory();
+        }
+
+        LatencyHistogram cold = WorkoutMetrics.get("screen.history.firstRow.cold").getLatency();
+        LatencyHistogram warm = WorkoutMetrics.get("screen.history.firstRow.warm").getLatency();
+        Log.i(TAG, "first row over " + SEED_ROWS + " workouts: cold p50=" + cold.getValueAtPercentile(50)
+                + "us p90=" + cold.getValueAtPercentile(90) + "us, warm p50=" + warm.getValueAtPercentile(50)
+                + "us p90=" + warm.getValueAtPercentile(90) + "us");
+        assertEquals(LAUNCHES, cold.getCount());
+        assertEquals(LAUNCHES, warm.getCount());
+        assertTrue(warm.getValueAtPercentile(50) < cold.getValueAtPercentile(50));
+    }
+
+    private static void launchHistory() {
+        try (ActivityScenario<ViewHistoryActivity> scenario = ActivityScenario.launch(ViewHistoryActivity.class)) {
+            // The first row is recorded from the pre-draw callback of the first frame
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.os.Debug;
+import android.util.Log;
+import android.view.View;
+import android.widget.ListView;
+import android.widget.TextView;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests counting allocations in the adapter's bind path and checking that reloads
+ * reuse the row holders. The item views are recycled by hand and never attached, measured or drawn,
+ * so the counts cover {@link WorkoutRowAdapter#getView} only, not a full scroll frame.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HistoryRowAllocationTest {
+
+    private static final String TAG = "HistoryRowAllocation";
+    private static final int ROWS = 500;
+    private static final int VISIBLE_ROWS = 12;
+    private static final int BINDS = 10_000;
+
+    private Context context;
+    private WorkoutDatabaseManager dbManager;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbManager = new WorkoutDatabaseManager(context, null); // In-memory database
+        for (int i = 0; i < ROWS; i++) {
+            dbManager.addWorkout("Workout " + i, String.valueOf(20 + i % 60), i % 2 == 0 ? "Cardio" : "Strength");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        dbManager.close();
+    }
+
+    @Test
+    public void reload_reusesRowHolders() {
+        List<WorkoutRow> rows = new ArrayList<>();
+        dbManager.getAllWorkoutRows(rows);
+        WorkoutRow first = rows.get(0);
+
+        dbManager.getWorkoutRowsByType("Strength", rows);
+
+        assertEquals(ROWS / 2, rows.size());
+        assertSame(first, rows.get(0));
+        assertEquals("Strength", rows.get(0).type);
+        assertEquals(dbManager.getWorkoutsByType("Strength").get(0), rows.get(0).toString());
+    }
+
+    @Test
+    public void bindPath_allocatesNothingPerRow() {
+        List<WorkoutRow> rows = new ArrayList<>();
+        dbManager.getAllWorkoutRows(rows);
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            ListView parent = new ListView(context);
+            WorkoutRowAdapter adapter = new WorkoutRowAdapter(context, rows, "No workouts found.");
+
+            // Detached item views recycled by hand, about one screen of them as a list would keep
+            View[] views = new View[VISIBLE_ROWS];
+            for (int position = 0; position < ROWS; position++) {
+                int slot = position % VISIBLE_ROWS;
+                views[slot] = adapter.getView(position, views[slot], parent);
+            }
+            assertEquals(rows.get(ROWS - 1).toString(), ((TextView) views[(ROWS - 1) % VISIBLE_ROWS]).getText().toString());
+
+            long adapterAllocations = countAllocations(() -> {
+                for (int i = 0; i < BINDS; i++) {
+                    int position = i % ROWS;
+                    int slot = position % VISIBLE_ROWS;
+                    adapter.getView(position, views[slot], parent);
+                }
+            });
+            // The previous approach, one concatenated String per row
+            long stringAllocations = countAllocations(() -> {
+                for (int i = 0; i < BINDS; i++) {
+                    WorkoutRow row = rows.get(i % ROWS);
+                    ((TextView) views[i % VISIBLE_ROWS]).setText("Name: " + row.name + "\nDuration: " + row.duration +
+                            " minutes\nType: " + row.type + (row.completed ? " (Completed)" : ""));
+                }
+            });
+
+            Log.i(TAG, "allocations per bind: adapter=" + (double) adapterAllocations / BINDS
+                    + ", concatenated strings=" + (double) stringAllocations / BINDS);
+            assertTrue("Adapter allocated " + adapterAllocations + " objects in " + BINDS + " binds",
+                    adapterAllocations < BINDS / 100);
+            assertTrue(adapterAllocations < stringAllocations);
+        });
+    }
+
+    @SuppressWarnings("deprecation") // Still the only per-thread allocation counter
+    private static long countAllocations(Runnable action) {
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        try {
+            action.run();
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        return Debug.getThreadAllocCount();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented benchmark proving that routing queries through the slow-query log
+ * adds negligible overhead when queries stay under the threshold.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SlowQueryLogBenchmarkTest {
+
+    private static final String TAG = "SlowQueryLogBenchmark";
+    private static final int ROWS = 1_000;
+    private static final int ITERATIONS = 500;
+    private static final String SQL = "SELECT * FROM workouts WHERE type = ? ORDER BY id DESC";
+
+    private WorkoutDatabaseManager dbManager;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbManager = new WorkoutDatabaseManager(context, null); // In-memory database
+        db = dbManager.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < ROWS; i++) {
+                db.execSQL("INSERT INTO workouts (name, duration, type) VALUES (?, ?, ?)",
+                        new Object[]{"Workout " + i, String.valueOf(i % 90), i % 2 == 0 ? "Cardio" : "Strength"});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        SlowQueryLog.clear();
+    }
+
+    @After
+    public void tearDown() {
+        SlowQueryLog.setThresholdMillis(50);
+        SlowQueryLog.clear();
+        dbManager.close();
+    }
+
+    @Test
+    public void fastPathOverhead_isNegligible() {
+        SlowQueryLog.setThresholdMillis(10_000); // Nothing should be considered slow
+        String[] args = {"Cardio"};
+
+        // Warm up both paths so statement compilation does not skew the first measurement
+        runDirect(args, 50);
+        runLogged(args, 50);
+
+        long directNanos = Long.MAX_VALUE;
+        long loggedNanos = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            directNanos = Math.min(directNanos, runDirect(args, ITERATIONS));
+            loggedNanos = Math.min(loggedNanos, runLogged(args, ITERATIONS));
+        }
+
+        double directMicros = directNanos / 1000.0 / ITERATIONS;
+        double loggedMicros = loggedNanos / 1000.0 / ITERATIONS;
+        Log.i(TAG, String.format("direct=%.1fus logged=%.1fus per query", directMicros, loggedMicros));
+
+        assertTrue(SlowQueryLog.getEntries().isEmpty());
+        // Allow 10% plus a small constant for timer noise on top of the direct query
+        assertTrue("logged " + loggedMicros + "us vs direct " + directMicros + "us",
+                loggedMicros <= directMicros * 1.10 + 5);
+    }
+
+    @Test
+    public void slowQuery_isCapturedWithPlan() {
+        SlowQueryLog.setThresholdMillis(0); // Every query is slow
+
+        Cursor cursor = dbManager.rawQuery(db, SQL, new String[]{"Strength"});
+        cursor.close();
+
+        assertEquals(1, SlowQueryLog.getEntries().size());
+        SlowQueryLog.Entry entry = SlowQueryLog.getEntries().get(0);
+        assertEquals(SQL, entry.sql);
+        assertEquals(ROWS / 2, entry.rowCount);
+        assertTrue(entry.queryPlan, entry.queryPlan.contains("workouts"));
+        // Bound values may be user data and must not reach the log or the export
+        assertEquals(1, entry.argCount);
+        String json = SlowQueryLog.toJson();
+        assertTrue(json, json.contains("\"arg_count\": 1"));
+        assertFalse(json, json.contains("Strength"));
+    }
+
+    private long runDirect(String[] args, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Cursor cursor = db.rawQuery(SQL, args);
+            cursor.getCount();
+            cursor.close();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long runLogged(String[] args, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Cursor cursor = dbManager.rawQuery(db, SQL, args);
+            cursor.close();
+        }
+        return System.nanoTime() - start;
+    }
+}
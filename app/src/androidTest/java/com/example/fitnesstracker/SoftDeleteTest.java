@@ -0,0 +1,89 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests for tombstone-based deletion, undo and background compaction.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SoftDeleteTest {
+
+    private WorkoutDatabaseManager dbManager;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbManager = new WorkoutDatabaseManager(context, null); // In-memory database
+        dbManager.addWorkout("Morning Run", "30", "Cardio");
+        dbManager.addWorkout("Deadlifts", "45", "Strength");
+    }
+
+    @After
+    public void tearDown() {
+        dbManager.close();
+    }
+
+    @Test
+    public void deletedWorkout_isHiddenAndRestorable() {
+        int id = dbManager.getWorkoutIds().get(0);
+
+        assertTrue(dbManager.deleteWorkoutById(id));
+        assertFalse(dbManager.getWorkoutIds().contains(id));
+        assertNull(dbManager.getWorkoutDetails(id));
+        assertEquals(1, dbManager.getTotalWorkouts());
+
+        assertTrue(dbManager.restoreWorkout(id));
+        assertTrue(dbManager.getWorkoutIds().contains(id));
+        assertEquals(2, dbManager.getTotalWorkouts());
+    }
+
+    @Test
+    public void deleteAll_canBeUndone() {
+        long deletedAt = dbManager.deleteAllWorkouts();
+        assertTrue(dbManager.getAllWorkouts().isEmpty());
+
+        assertEquals(2, dbManager.restoreDeletedAt(deletedAt));
+        assertEquals(2, dbManager.getAllWorkouts().size());
+    }
+
+    @Test
+    public void purge_removesOnlyExpiredTombstonesInBatches() {
+        for (int i = 0; i < 10; i++) {
+            dbManager.addWorkout("Workout " + i, "10", "Other");
+        }
+        dbManager.deleteAllWorkouts();
+
+        // Fixed tombstone times, so the test does not depend on the clock or on how far the write
+        // stamps have run ahead of it: the 7 oldest of the 12 workouts expired, the other 5 did not
+        long recent = 2_000_000_000_000L;
+        long expired = recent - TombstoneCompactor.UNDO_WINDOW_MILLIS;
+        dbManager.getWritableDatabase().execSQL("UPDATE workouts SET deleted_at = CASE WHEN id IN " +
+                "(SELECT id FROM workouts ORDER BY id LIMIT 7) THEN ? ELSE ? END", new Object[]{expired, recent});
+
+        // Only tombstones strictly older than the cutoff are purged
+        assertEquals(0, dbManager.purgeTombstones(expired, 5));
+
+        assertEquals(5, dbManager.purgeTombstones(recent, 5));
+        assertEquals(2, dbManager.purgeTombstones(recent, 5));
+        assertEquals(0, dbManager.purgeTombstones(recent, 5));
+
+        // The expired tombstones are gone for good, the recent ones can still be undone
+        assertEquals(0, dbManager.restoreDeletedAt(expired));
+        assertEquals(5, dbManager.restoreDeletedAt(recent));
+        List<String> remaining = dbManager.getAllWorkouts();
+        assertEquals(5, remaining.size());
+        assertTrue(remaining.get(remaining.size() - 1).contains("Workout 5"));
+    }
+}
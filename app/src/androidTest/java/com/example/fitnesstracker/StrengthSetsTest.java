@@ -0,0 +1,124 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests for strength sets, their incrementally maintained exercise totals and progress lookups.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StrengthSetsTest {
+
+    private static final String TAG = "StrengthSetsTest";
+
+    private WorkoutDatabaseManager dbManager;
+    private int today;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbManager = new WorkoutDatabaseManager(context, null); // In-memory database
+        today = RecurrenceRule.today();
+    }
+
+    @After
+    public void tearDown() {
+        dbManager.close();
+    }
+
+    private long logSession(double benchKg, double squatKg) {
+        return dbManager.addStrengthSession("Push day", "60", Arrays.asList(
+                WorkoutSet.ofKilograms("Bench Press", 5, benchKg),
+                WorkoutSet.ofKilograms("Bench Press", 5, benchKg),
+                WorkoutSet.ofKilograms("Squat", 3, squatKg)));
+    }
+
+    @Test
+    public void session_storesSetsInOrder() {
+        long id = logSession(80, 120);
+
+        List<WorkoutSet> sets = dbManager.getWorkoutSets((int) id);
+        assertEquals(3, sets.size());
+        assertEquals("Bench Press", sets.get(0).exercise);
+        assertEquals(80_000, sets.get(1).weightGrams);
+        assertEquals("Squat", sets.get(2).exercise);
+        assertEquals(3, sets.get(2).reps);
+        assertEquals("Strength", dbManager.getWorkoutDetails((int) id)[2]);
+    }
+
+    @Test
+    public void sessions_addUpInDailyTotals() {
+        logSession(80, 120);
+        logSession(90, 100);
+
+        ExerciseProgress bench = dbManager.getExerciseProgress("Bench Press", today - 30, today);
+        assertEquals(1, bench.size());
+        assertEquals(today, bench.days[0]);
+        assertEquals(4, bench.sets[0]);
+        assertEquals(2 * 5 * 80_000L + 2 * 5 * 90_000L, bench.volumes[0]);
+        assertEquals(WorkoutSet.estimateOneRepMax(90_000, 5), bench.getBestOneRepMax());
+
+        ExerciseProgress squat = dbManager.getExerciseProgress("Squat", today, today);
+        assertEquals(WorkoutSet.estimateOneRepMax(120_000, 3), squat.getBestOneRepMax());
+    }
+
+    @Test
+    public void deleteAndRestore_recomputeDailyTotals() {
+        logSession(80, 120);
+        long heavier = logSession(90, 100);
+
+        assertTrue(dbManager.deleteWorkoutById((int) heavier));
+        ExerciseProgress bench = dbManager.getExerciseProgress("Bench Press", today, today);
+        assertEquals(2, bench.sets[0]);
+        assertEquals(WorkoutSet.estimateOneRepMax(80_000, 5), bench.getBestOneRepMax());
+
+        assertTrue(dbManager.restoreWorkout((int) heavier));
+        bench = dbManager.getExerciseProgress("Bench Press", today, today);
+        assertEquals(4, bench.sets[0]);
+        assertEquals(WorkoutSet.estimateOneRepMax(90_000, 5), bench.getBestOneRepMax());
+    }
+
+    @Test
+    public void deletingOnlySession_removesItsTotals() {
+        long id = logSession(80, 120);
+
+        dbManager.deleteAllWorkouts();
+
+        assertEquals(0, dbManager.getExerciseProgress("Bench Press", today, today).size());
+        assertEquals(0, dbManager.getExerciseProgress("Squat", today, today).size());
+        assertEquals(3, dbManager.getWorkoutSets((int) id).size()); // Kept until the tombstone is purged
+
+        dbManager.purgeTombstones(Long.MAX_VALUE, 100);
+        assertEquals(0, dbManager.getWorkoutSets((int) id).size());
+    }
+
+    @Test
+    public void largeSession_isInsertedInOneBatch() {
+        List<WorkoutSet> sets = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            sets.add(new WorkoutSet("Exercise " + (i % 20), 8, 20_000 + i * 100));
+        }
+
+        WorkoutMetrics.reset();
+        assertNotEquals(-1, dbManager.addStrengthSession("Volume day", "90", sets));
+
+        WorkoutMetrics.OperationStats stats = WorkoutMetrics.get("db.addStrengthSession");
+        assertEquals(1_000, stats.getRowsReturned());
+        assertEquals(50, dbManager.getExerciseProgress("Exercise 0", today, today).sets[0]);
+        Log.i(TAG, "1000 sets inserted in " + stats.getLatency().getMax() + "us");
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests for the sync outbox and last-write-wins merging in the SQLite store.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SyncOutboxTest {
+
+    private WorkoutDatabaseManager dbManager;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbManager = new WorkoutDatabaseManager(context, null); // In-memory database
+    }
+
+    @After
+    public void tearDown() {
+        dbManager.close();
+    }
+
+    @Test
+    public void everyWrite_isRecordedInOrder() {
+        dbManager.addWorkout("Morning Run", "30", "Cardio");
+        int id = dbManager.getWorkoutIds().get(0);
+        dbManager.updateWorkout(id, "Evening Run", "35", "Cardio");
+        dbManager.markWorkoutAsComplete(id);
+        dbManager.deleteWorkoutById(id);
+        dbManager.restoreWorkout(id);
+
+        List<SyncChange> changes = dbManager.getPendingChanges(100);
+
+        List<String> ops = new ArrayList<>();
+        for (SyncChange change : changes) {
+            ops.add(change.op);
+            assertEquals(changes.get(0).uuid, change.uuid);
+        }
+        assertEquals(Arrays.asList(SyncChange.OP_INSERT, SyncChange.OP_UPDATE, SyncChange.OP_COMPLETE,
+                SyncChange.OP_DELETE, SyncChange.OP_RESTORE), ops);
+        assertEquals("Evening Run", changes.get(1).name);
+        assertTrue(changes.get(2).completed);
+        assertTrue(changes.get(3).isDeleted());
+        assertFalse(changes.get(4).isDeleted());
+        for (int i = 1; i < changes.size(); i++) {
+            assertTrue(changes.get(i).seq > changes.get(i - 1).seq);
+            assertTrue(changes.get(i).updatedAt > changes.get(i - 1).updatedAt);
+        }
+    }
+
+    @Test
+    public void bulkWrites_recordOneChangePerRow() {
+        for (int i = 0; i < 5; i++) {
+            dbManager.addWorkout("Workout " + i, "30", "Cardio");
+        }
+        List<Integer> ids = dbManager.getWorkoutIds();
+        dbManager.acknowledgeChanges(Long.MAX_VALUE);
+
+        dbManager.updateWorkoutsType(ids.subList(0, 3), "Strength");
+        dbManager.deleteWorkoutsByIds(ids);
+
+        List<SyncChange> changes = dbManager.getPendingChanges(100);
+        assertEquals(8, changes.size());
+        assertEquals(SyncChange.OP_UPDATE, changes.get(0).op);
+        assertEquals("Strength", changes.get(0).type);
+        assertEquals(SyncChange.OP_DELETE, changes.get(7).op);
+    }
+
+    @Test
+    public void acknowledgedChanges_leaveTheOutbox() {
+        dbManager.addWorkout("Morning Run", "30", "Cardio");
+        dbManager.addWorkout("Deadlifts", "45", "Strength");
+        List<SyncChange> changes = dbManager.getPendingChanges(1);
+        assertEquals(1, changes.size());
+
+        dbManager.acknowledgeChanges(changes.get(0).seq);
+
+        assertEquals(1, dbManager.getPendingChangeCount());
+        assertEquals("Deadlifts", dbManager.getPendingChanges(10).get(0).name);
+    }
+
+    @Test
+    public void remoteChanges_mergeWithLastWriteWins() {
+        dbManager.addWorkout("Morning Run", "30", "Cardio");
+        SyncChange local = dbManager.getPendingChanges(1).get(0);
+        dbManager.acknowledgeChanges(local.seq);
+
+        // An older remote edit is ignored, a newer one replaces the row, an unknown workout is inserted
+        SyncChange older = new SyncChange(0, SyncChange.OP_UPDATE, local.uuid, "Stale", "10", "Cardio",
+                false, 0, local.updatedAt - 1);
+        SyncChange newer = new SyncChange(0, SyncChange.OP_COMPLETE, local.uuid, "Long Run", "90", "Cardio",
+                true, 0, local.updatedAt + 1);
+        SyncChange unknown = new SyncChange(0, SyncChange.OP_INSERT, "remote-uuid", "Swim", "20", "Cardio",
+                false, 0, local.updatedAt);
+
+        assertEquals(0, dbManager.applyRemoteChanges(Collections.singletonList(older), 1));
+        assertEquals(2, dbManager.applyRemoteChanges(Arrays.asList(newer, unknown), 3));
+
+        assertEquals(2, dbManager.getTotalWorkouts());
+        assertEquals(3, dbManager.getPullCursor());
+        assertEquals(1, dbManager.getWorkoutsByStatus("Completed").size());
+        assertTrue(dbManager.getAllWorkouts().get(1).contains("Long Run")); // Newest ID first
+        assertEquals(0, dbManager.getPendingChangeCount()); // Merged rows are not pushed back
+    }
+
+    @Test
+    public void remoteDelete_tombstonesTheRow() {
+        dbManager.addWorkout("Morning Run", "30", "Cardio");
+        SyncChange local = dbManager.getPendingChanges(1).get(0);
+
+        dbManager.applyRemoteChanges(Collections.singletonList(new SyncChange(0, SyncChange.OP_DELETE, local.uuid,
+                local.name, local.duration, local.type, false, local.updatedAt + 1, local.updatedAt + 1)), 1);
+
+        assertEquals(0, dbManager.getTotalWorkouts());
+    }
+
+    @Test
+    public void purgedWorkout_isNotBroughtBackByAStaleChange() {
+        dbManager.addWorkout("Morning Run", "30", "Cardio");
+        int id = dbManager.getWorkoutIds().get(0);
+        SyncChange inserted = dbManager.getPendingChanges(1).get(0);
+        assertTrue(dbManager.deleteWorkoutById(id));
+        assertEquals(1, dbManager.purgeTombstones(Long.MAX_VALUE, 10));
+
+        // A late page of the pull feed still carries the edit made before the delete
+        SyncChange stale = new SyncChange(0, SyncChange.OP_UPDATE, inserted.uuid, "Stale", "30", "Cardio",
+                false, 0, inserted.updatedAt + 1);
+        assertEquals(0, dbManager.applyRemoteChanges(Collections.singletonList(stale), 1));
+        assertEquals(0, dbManager.getTotalWorkouts());
+
+        // A change written after the delete, such as a restore on another device, still wins
+        SyncChange restored = new SyncChange(0, SyncChange.OP_RESTORE, inserted.uuid, "Morning Run", "30", "Cardio",
+                false, 0, System.currentTimeMillis() + 60_000);
+        assertEquals(1, dbManager.applyRemoteChanges(Collections.singletonList(restored), 2));
+        assertEquals(1, dbManager.getTotalWorkouts());
+    }
+
+    @Test
+    public void localWrites_neverShareAStampWithPulledRows() {
+        // A remote device whose clock runs an hour ahead
+        long ahead = System.currentTimeMillis() + 3_600_000;
+        dbManager.applyRemoteChanges(Collections.singletonList(new SyncChange(0, SyncChange.OP_INSERT, "remote-uuid",
+                "Swim", "20", "Cardio", false, 0, ahead)), 1);
+
+        dbManager.addWorkout("Morning Run", "30", "Cardio");
+
+        List<SyncChange> changes = dbManager.getPendingChanges(10);
+        assertEquals(1, changes.size());
+        assertEquals("Morning Run", changes.get(0).name);
+        assertTrue(changes.get(0).updatedAt > ahead);
+    }
+
+    @Test
+    public void reopenedDatabase_stampsAfterStoredRows() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        String name = "stamp-test.db";
+        context.deleteDatabase(name);
+        long ahead = System.currentTimeMillis() + 3_600_000;
+        WorkoutDatabaseManager first = new WorkoutDatabaseManager(context, name);
+        first.applyRemoteChanges(Collections.singletonList(new SyncChange(0, SyncChange.OP_INSERT, "remote-uuid",
+                "Swim", "20", "Cardio", false, 0, ahead)), 1);
+        first.close();
+
+        // A new manager has no stamps in memory, as after a restart
+        WorkoutDatabaseManager second = new WorkoutDatabaseManager(context, name);
+        try {
+            second.addWorkout("Morning Run", "30", "Cardio");
+            List<SyncChange> changes = second.getPendingChanges(10);
+            assertEquals(1, changes.size());
+            assertEquals("Morning Run", changes.get(0).name);
+        } finally {
+            second.close();
+            context.deleteDatabase(name);
+        }
+    }
+
+    @Test
+    public void deviceId_isStable() {
+        String deviceId = dbManager.getSyncDeviceId();
+        assertNotNull(deviceId);
+        assertEquals(deviceId, dbManager.getSyncDeviceId());
+    }
+}
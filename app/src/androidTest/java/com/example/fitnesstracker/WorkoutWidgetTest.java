@@ -0,0 +1,87 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests for the widget summary cache, quick log and the cost of a widget update.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WorkoutWidgetTest {
+
+    private static final String TAG = "WorkoutWidgetTest";
+    private static final int UPDATES = 200;
+
+    private Context context;
+    private WorkoutDatabaseManager dbManager;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbManager = new WorkoutDatabaseManager(context, null); // In-memory database
+        dbManager.addWorkout("Morning Run", "30", "Cardio");
+        dbManager.addWorkout("Deadlifts", "45", "Strength");
+    }
+
+    @After
+    public void tearDown() {
+        dbManager.close();
+    }
+
+    @Test
+    public void refresh_matchesTodaysWorkouts() {
+        int today = RecurrenceRule.today();
+        WorkoutSummaryCache.refresh(context, dbManager);
+
+        WorkoutSummary summary = WorkoutSummaryCache.read(context, today);
+        assertNotNull(summary);
+        assertEquals(2, summary.getTodayCount(today));
+        assertEquals(75, summary.getTodayMinutes(today));
+        assertEquals(2, summary.getWeekCount(today));
+    }
+
+    @Test
+    public void quickLog_repeatsLastWorkout() throws Exception {
+        WorkoutWriteCoordinator coordinator = new WorkoutWriteCoordinator(dbManager);
+        try {
+            WorkoutWrite.Result result = WorkoutWidgetProvider.quickLog(dbManager, coordinator).get(10, TimeUnit.SECONDS);
+            assertEquals(WorkoutWrite.Status.APPLIED, result.status);
+        } finally {
+            coordinator.close();
+        }
+
+        assertEquals(3, dbManager.getTotalWorkouts());
+        assertArrayEquals(new String[]{"Deadlifts", "45", "Strength"}, dbManager.getLastWorkoutDetails());
+        assertEquals(120, WorkoutSummaryCache.refresh(context, dbManager).getTodayMinutes(RecurrenceRule.today()));
+    }
+
+    @Test
+    public void widgetUpdate_readsOnlyTheCache() {
+        int today = RecurrenceRule.today();
+        WorkoutSummaryCache.refresh(context, dbManager);
+        WorkoutWidgetProvider.buildViews(context, today); // Warm up
+        WorkoutMetrics.reset();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            assertNotNull(WorkoutWidgetProvider.buildViews(context, today));
+        }
+        double meanMillis = (System.nanoTime() - start) / 1e6 / UPDATES;
+
+        assertNull(WorkoutMetrics.get("db.getRecentSummary"));
+        assertTrue("Widget update took " + meanMillis + "ms", meanMillis < 3);
+        Log.i(TAG, "widget update: " + meanMillis + "ms mean over " + UPDATES + " updates");
+    }
+}
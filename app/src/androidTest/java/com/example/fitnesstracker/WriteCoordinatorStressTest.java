@@ -0,0 +1,210 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented stress tests for the single-writer queue: concurrent optimistic edits must never lose
+ * an update, and queued unconditional writes to one workout are merged.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WriteCoordinatorStressTest {
+
+    private static final String TAG = "WriteCoordinatorStress";
+    private static final int WRITERS = 8;
+    private static final int INCREMENTS_PER_WRITER = 50;
+
+    private WorkoutDatabaseManager dbManager;
+    private WorkoutWriteCoordinator coordinator;
+    private int workoutId;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbManager = new WorkoutDatabaseManager(context, null); // In-memory database
+        dbManager.addWorkout("Counter", "0", "Cardio");
+        workoutId = dbManager.getWorkoutIds().get(0);
+        coordinator = new WorkoutWriteCoordinator(dbManager);
+        WorkoutMetrics.reset();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        coordinator.close();
+        dbManager.close();
+    }
+
+    @Test
+    public void concurrentOptimisticIncrements_loseNoUpdates() throws Exception {
+        AtomicInteger conflicts = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        List<Future<?>> writers = new ArrayList<>();
+
+        long start = SystemClock.elapsedRealtime();
+        for (int w = 0; w < WRITERS; w++) {
+            writers.add(pool.submit(() -> {
+                for (int i = 0; i < INCREMENTS_PER_WRITER; i++) {
+                    // Read-modify-write, retried until it applies against the version it read
+                    while (true) {
+                        String[] details = dbManager.getWorkoutDetails(workoutId);
+                        int duration = Integer.parseInt(details[1]);
+                        int version = Integer.parseInt(details[3]);
+                        WorkoutWrite.Result result = coordinator.submit(WorkoutWrite.update(workoutId, version,
+                                details[0], String.valueOf(duration + 1), details[2])).get(10, TimeUnit.SECONDS);
+                        if (result.status == WorkoutWrite.Status.APPLIED) {
+                            break;
+                        }
+                        assertEquals(WorkoutWrite.Status.CONFLICT, result.status);
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get(60, TimeUnit.SECONDS);
+        }
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        pool.shutdown();
+
+        int total = WRITERS * INCREMENTS_PER_WRITER;
+        String[] details = dbManager.getWorkoutDetails(workoutId);
+        assertEquals(String.valueOf(total), details[1]);
+        assertEquals(conflicts.get(), WorkoutMetrics.getCount("writes.conflicts"));
+        Log.i(TAG, total + " increments by " + WRITERS + " writers in " + elapsed + "ms, "
+                + conflicts.get() + " conflicts retried");
+    }
+
+    @Test
+    public void staleEdit_isRejectedWithCurrentVersion() throws Exception {
+        int version = Integer.parseInt(dbManager.getWorkoutDetails(workoutId)[3]);
+
+        WorkoutWrite.Result first = coordinator.submit(
+                WorkoutWrite.update(workoutId, version, "Counter", "10", "Cardio")).get(10, TimeUnit.SECONDS);
+        WorkoutWrite.Result second = coordinator.submit(
+                WorkoutWrite.update(workoutId, version, "Counter", "20", "Cardio")).get(10, TimeUnit.SECONDS);
+
+        assertEquals(WorkoutWrite.Status.APPLIED, first.status);
+        assertEquals(version + 1, first.version);
+        assertEquals(WorkoutWrite.Status.CONFLICT, second.status);
+        assertEquals(first.version, second.version);
+        assertEquals("10", dbManager.getWorkoutDetails(workoutId)[1]);
+    }
+
+    @Test
+    public void directWrites_bumpVersion() throws Exception {
+        int version = Integer.parseInt(dbManager.getWorkoutDetails(workoutId)[3]);
+        dbManager.markWorkoutAsComplete(workoutId);
+
+        WorkoutWrite.Result result = coordinator.submit(
+                WorkoutWrite.update(workoutId, version, "Counter", "5", "Cardio")).get(10, TimeUnit.SECONDS);
+
+        assertEquals(WorkoutWrite.Status.CONFLICT, result.status);
+    }
+
+    @Test
+    public void missingWorkout_isNotFound() throws Exception {
+        dbManager.deleteWorkoutById(workoutId);
+
+        WorkoutWrite.Result result = coordinator.submit(WorkoutWrite.markComplete(workoutId)).get(10, TimeUnit.SECONDS);
+
+        assertEquals(WorkoutWrite.Status.NOT_FOUND, result.status);
+        assertEquals(-1, result.version);
+    }
+
+    @Test
+    public void queuedUnconditionalWrites_areCoalesced() throws Exception {
+        String[] types = {"Cardio", "Strength", "Flexibility"};
+        List<CompletableFuture<WorkoutWrite.Result>> results = new ArrayList<>();
+
+        // Hold the write lock so the writes pile up in the queue behind the first batch
+        SQLiteDatabase db = dbManager.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < 100; i++) {
+                results.add(coordinator.submit(WorkoutWrite.setType(workoutId, types[i % types.length])));
+            }
+            SystemClock.sleep(100);
+        } finally {
+            db.endTransaction();
+        }
+
+        for (CompletableFuture<WorkoutWrite.Result> result : results) {
+            assertEquals(WorkoutWrite.Status.APPLIED, result.get(10, TimeUnit.SECONDS).status);
+        }
+        assertTrue(WorkoutMetrics.getCount("writes.coalesced") > 0);
+        assertEquals(types[99 % types.length], dbManager.getWorkoutDetails(workoutId)[2]);
+    }
+
+    @Test
+    public void queuedInsertsDeletesAndRestores_applyOneByOne() throws Exception {
+        List<CompletableFuture<WorkoutWrite.Result>> results = new ArrayList<>();
+
+        SQLiteDatabase db = dbManager.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < 3; i++) {
+                results.add(coordinator.submit(WorkoutWrite.insert("Quick Workout", "30", "Cardio")));
+            }
+            results.add(coordinator.submit(WorkoutWrite.delete(workoutId)));
+            results.add(coordinator.submit(WorkoutWrite.restore(workoutId)));
+            results.add(coordinator.submit(WorkoutWrite.markComplete(workoutId)));
+            SystemClock.sleep(100);
+        } finally {
+            db.endTransaction();
+        }
+
+        for (CompletableFuture<WorkoutWrite.Result> result : results) {
+            assertEquals(WorkoutWrite.Status.APPLIED, result.get(10, TimeUnit.SECONDS).status);
+        }
+        // None of them may be folded into another
+        assertEquals(0, WorkoutMetrics.getCount("writes.coalesced"));
+        assertEquals(4, dbManager.getTotalWorkouts());
+        assertEquals(1, dbManager.getWorkoutIdsByStatus("Completed").size());
+    }
+
+    @Test
+    public void planOccurrencesAndStrengthSessions_goThroughTheQueue() throws Exception {
+        int today = RecurrenceRule.today();
+        long templateId = dbManager.addTemplate("Leg Day", "45", "Strength");
+        dbManager.addPlan(templateId, RecurrenceRule.weekly(today, 1, RecurrenceRule.MONDAY | RecurrenceRule.THURSDAY));
+        WorkoutPlan plan = dbManager.getPlansInWindow(today, today + 6).get(0);
+
+        WorkoutWrite.Result logged = coordinator.submit(WorkoutWrite.logOccurrence(plan, today, true))
+                .get(10, TimeUnit.SECONDS);
+        WorkoutWrite.Result session = coordinator.submit(WorkoutWrite.strengthSession("Push day", "60", Arrays.asList(
+                WorkoutSet.ofKilograms("Bench Press", 5, 80), WorkoutSet.ofKilograms("Bench Press", 5, 85))))
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(WorkoutWrite.Status.APPLIED, logged.status);
+        assertEquals(WorkoutWrite.Status.APPLIED, session.status);
+        assertEquals(3, dbManager.getTotalWorkouts());
+        assertEquals(1, dbManager.getLoggedOccurrences(today, today).size());
+        assertEquals(2, dbManager.getExerciseProgress("Bench Press", today, today).sets[0]);
+        // Both workouts are queued for the next push, each in its own transaction with the write
+        assertEquals(3, dbManager.getPendingChangeCount());
+    }
+}
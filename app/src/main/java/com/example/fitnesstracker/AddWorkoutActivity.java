@@ -1,5 +1,6 @@
 package com.example.fitnesstracker;
 
+import android.content.Intent;
 import android.os.Bundle;
 import android.view.MenuItem; // Import for the "Up" button functionality
 import android.widget.ArrayAdapter;
@@ -7,8 +8,11 @@ import android.widget.Button;
 import android.widget.EditText;
 import android.widget.Spinner;
 import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.util.List;
+
 public class AddWorkoutActivity extends AppCompatActivity {
 
     // UI components for user input and interaction
@@ -40,6 +44,18 @@ public class AddWorkoutActivity extends AppCompatActivity {
 
         // Set up button listener for saving workout
         btnSaveWorkout.setOnClickListener(v -> saveWorkout());
+
+        // Template and plan buttons
+        Button btnLoadTemplate = findViewById(R.id.btn_load_template);
+        Button btnSaveTemplate = findViewById(R.id.btn_save_template);
+        Button btnRecurringPlans = findViewById(R.id.btn_recurring_plans);
+        btnLoadTemplate.setOnClickListener(v -> showTemplatesDialog());
+        btnSaveTemplate.setOnClickListener(v -> saveTemplate());
+        btnRecurringPlans.setOnClickListener(v -> startActivity(new Intent(this, AddWorkoutClass.class)));
+
+        // Strength workouts are logged set by set on their own screen
+        Button btnStrengthSession = findViewById(R.id.btn_strength_session);
+        btnStrengthSession.setOnClickListener(v -> startActivity(new Intent(this, StrengthSessionActivity.class)));
     }
 
     /**
@@ -57,6 +73,51 @@ public class AddWorkoutActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Shows the saved templates and fills the input fields with the chosen one.
+     */
+    private void showTemplatesDialog() {
+        List<String[]> templates = WorkoutDatabaseManager.getInstance(this).getTemplates();
+        if (templates.isEmpty()) {
+            Toast.makeText(this, "No templates saved yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        String[] names = new String[templates.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = templates.get(i)[1] + " (" + templates.get(i)[2] + " minutes)";
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("Use Template")
+                .setItems(names, (dialog, which) -> {
+                    String[] template = templates.get(which);
+                    etWorkoutName.setText(template[1]);
+                    etDuration.setText(template[2]);
+                    @SuppressWarnings("unchecked")
+                    ArrayAdapter<CharSequence> adapter = (ArrayAdapter<CharSequence>) spinnerWorkoutType.getAdapter();
+                    spinnerWorkoutType.setSelection(Math.max(0, adapter.getPosition(template[3])));
+                })
+                .show();
+    }
+
+    /**
+     * Saves the entered workout as a reusable template.
+     */
+    private void saveTemplate() {
+        String name = etWorkoutName.getText().toString().trim();
+        String duration = etDuration.getText().toString().trim();
+        String type = spinnerWorkoutType.getSelectedItem().toString();
+
+        if (name.isEmpty() || duration.isEmpty()) {
+            Toast.makeText(this, "Please fill in all fields", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        long templateId = WorkoutDatabaseManager.getInstance(this).addTemplate(name, duration, type);
+        Toast.makeText(this, templateId != -1 ? "Template saved!" : "Error saving template!", Toast.LENGTH_SHORT).show();
+    }
+
     /**
      * Saves the workout data entered by the user into the database.
      * Handles errors and ensures all required fields are filled before saving.
@@ -74,25 +135,34 @@ public class AddWorkoutActivity extends AppCompatActivity {
                 return;
             }
 
-            // Save workout to the database
-            WorkoutDatabaseManager dbManager = new WorkoutDatabaseManager(this);
-            boolean success = dbManager.addWorkout(name, duration, type);
-
-            // Provide feedback to the user
-            if (success) {
-                Toast.makeText(this, "Workout saved!", Toast.LENGTH_SHORT).show();
-
-                // Clear input fields
-                etWorkoutName.setText("");
-                etDuration.setText("");
-                spinnerWorkoutType.setSelection(0);
-            } else {
-                Toast.makeText(this, "Error saving workout!", Toast.LENGTH_SHORT).show();
-            }
+            // Save workout to the database through the writer queue, like every other single-workout write
+            btnSaveWorkout.setEnabled(false);
+            WorkoutWriteCoordinator.getInstance(this)
+                    .submit(WorkoutWrite.insert(name, duration, type))
+                    .whenComplete((result, error) -> runOnUiThread(() -> onSaveResult(result, error)));
         } catch (Exception e) {
             // Handle unexpected errors and display an error message
             Toast.makeText(this, "An unexpected error occurred: " + e.getMessage(), Toast.LENGTH_LONG).show();
             e.printStackTrace(); // Log the error for debugging purposes
         }
     }
+
+    private void onSaveResult(WorkoutWrite.Result result, Throwable error) {
+        if (isFinishing()) {
+            return;
+        }
+        btnSaveWorkout.setEnabled(true);
+
+        // Provide feedback to the user
+        if (error == null && result.status == WorkoutWrite.Status.APPLIED) {
+            Toast.makeText(this, "Workout saved!", Toast.LENGTH_SHORT).show();
+
+            // Clear input fields
+            etWorkoutName.setText("");
+            etDuration.setText("");
+            spinnerWorkoutType.setSelection(0);
+        } else {
+            Toast.makeText(this, "Error saving workout!", Toast.LENGTH_SHORT).show();
+        }
+    }
 }
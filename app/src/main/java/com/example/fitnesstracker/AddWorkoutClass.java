@@ -1,13 +1,202 @@
 package com.example.fitnesstracker;
 
 import android.os.Bundle;
+import android.view.MenuItem;
+import android.widget.ArrayAdapter;
+import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.EditText;
+import android.widget.ListView;
+import android.widget.Spinner;
+import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Creates recurring training plans and lists their upcoming occurrences. Occurrences are
+ * expanded from the plan rules for the visible window only and stored once they are logged.
+ */
 public class AddWorkoutClass extends AppCompatActivity {
 
+    private static final int VISIBLE_DAYS = 14; // Size of the upcoming window
+
+    // UI components for creating a plan
+    private EditText etPlanName, etPlanDuration, etPlanWeeks;
+    private Spinner spinnerPlanType;
+    private CheckBox[] weekdayBoxes; // Monday first, matching the RecurrenceRule weekday bits
+    private ListView lvUpcomingOccurrences;
+
+    private List<PlanSchedule.Occurrence> occurrences = new ArrayList<>(); // Occurrences shown in the list
+    private final SimpleDateFormat dayFormat = new SimpleDateFormat("EEE, MMM d", Locale.getDefault());
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_add_workoutclass); // Create this layout file next
+        setContentView(R.layout.activity_add_workoutclass);
+
+        // Enable "Up" button in the app bar
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+
+        // Epoch days are formatted as UTC midnights
+        dayFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        // Initialize UI components
+        etPlanName = findViewById(R.id.et_plan_name);
+        etPlanDuration = findViewById(R.id.et_plan_duration);
+        etPlanWeeks = findViewById(R.id.et_plan_weeks);
+        spinnerPlanType = findViewById(R.id.spinner_plan_type);
+        lvUpcomingOccurrences = findViewById(R.id.lv_upcoming_occurrences);
+        Button btnCreatePlan = findViewById(R.id.btn_create_plan);
+        weekdayBoxes = new CheckBox[]{
+                findViewById(R.id.cb_monday), findViewById(R.id.cb_tuesday), findViewById(R.id.cb_wednesday),
+                findViewById(R.id.cb_thursday), findViewById(R.id.cb_friday), findViewById(R.id.cb_saturday),
+                findViewById(R.id.cb_sunday)
+        };
+
+        // Populate the workout type dropdown with predefined options
+        ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(
+                this, R.array.workout_types, android.R.layout.simple_spinner_item);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerPlanType.setAdapter(adapter);
+
+        btnCreatePlan.setOnClickListener(v -> createPlan());
+        lvUpcomingOccurrences.setOnItemClickListener((parent, view, position, id) -> {
+            if (position < occurrences.size() && !occurrences.get(position).logged) {
+                showLogOccurrenceDialog(occurrences.get(position));
+            }
+        });
+
+        loadUpcomingOccurrences();
+    }
+
+    /**
+     * Saves the entered workout as a template and creates a weekly plan for it starting today.
+     */
+    private void createPlan() {
+        String name = etPlanName.getText().toString().trim();
+        String duration = etPlanDuration.getText().toString().trim();
+        String weeksStr = etPlanWeeks.getText().toString().trim();
+        String type = spinnerPlanType.getSelectedItem().toString();
+
+        int weekdayMask = 0;
+        for (int i = 0; i < weekdayBoxes.length; i++) {
+            if (weekdayBoxes[i].isChecked()) {
+                weekdayMask |= 1 << i;
+            }
+        }
+
+        // Validate input fields
+        if (name.isEmpty() || duration.isEmpty() || weeksStr.isEmpty()) {
+            Toast.makeText(this, "Please fill in all fields", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (weekdayMask == 0) {
+            Toast.makeText(this, "Please select at least one day", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        int weeks;
+        try {
+            weeks = Integer.parseInt(weeksStr);
+        } catch (NumberFormatException e) {
+            weeks = 0;
+        }
+        if (weeks < 1) {
+            Toast.makeText(this, "Please enter a valid number of weeks", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (weeks > RecurrenceRule.MAX_WEEKS) {
+            Toast.makeText(this, "Plans can run for at most " + RecurrenceRule.MAX_WEEKS + " weeks", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        WorkoutDatabaseManager dbManager = WorkoutDatabaseManager.getInstance(this);
+        long templateId = dbManager.addTemplate(name, duration, type);
+        long planId = templateId != -1
+                ? dbManager.addPlan(templateId, RecurrenceRule.weekly(RecurrenceRule.today(), weeks, weekdayMask))
+                : -1;
+
+        if (planId != -1) {
+            Toast.makeText(this, "Plan created!", Toast.LENGTH_SHORT).show();
+            etPlanName.setText("");
+            etPlanDuration.setText("");
+            etPlanWeeks.setText("");
+            for (CheckBox box : weekdayBoxes) {
+                box.setChecked(false);
+            }
+            loadUpcomingOccurrences();
+        } else {
+            Toast.makeText(this, "Error creating plan!", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * Expands the active plans for the next two weeks and shows which occurrences were logged.
+     */
+    private void loadUpcomingOccurrences() {
+        long start = WorkoutMetrics.begin("screen.plans.load");
+        int fromDay = RecurrenceRule.today();
+        int toDay = fromDay + VISIBLE_DAYS - 1;
+
+        WorkoutDatabaseManager dbManager = WorkoutDatabaseManager.getInstance(this);
+        occurrences = PlanSchedule.expand(dbManager.getPlansInWindow(fromDay, toDay), fromDay, toDay,
+                dbManager.getLoggedOccurrences(fromDay, toDay));
+
+        List<String> items = new ArrayList<>(occurrences.size());
+        for (PlanSchedule.Occurrence occurrence : occurrences) {
+            items.add(dayFormat.format(new Date(RecurrenceRule.toUtcMillis(occurrence.day))) +
+                    "\n" + occurrence.plan.getName() + " (" + occurrence.plan.getDuration() + " minutes, " +
+                    occurrence.plan.getType() + ")" + (occurrence.logged ? " (Logged)" : ""));
+        }
+        if (items.isEmpty()) {
+            items.add("No planned workouts.");
+        }
+
+        lvUpcomingOccurrences.setAdapter(new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, items));
+        WorkoutMetrics.end("screen.plans.load", start, 0, occurrences.size());
+    }
+
+    private void showLogOccurrenceDialog(PlanSchedule.Occurrence occurrence) {
+        new AlertDialog.Builder(this)
+                .setTitle(occurrence.plan.getName())
+                .setMessage("Log this planned workout?")
+                .setPositiveButton("Log as Complete", (dialog, which) -> logOccurrence(occurrence, true))
+                .setNeutralButton("Log", (dialog, which) -> logOccurrence(occurrence, false))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void logOccurrence(PlanSchedule.Occurrence occurrence, boolean completed) {
+        WorkoutWriteCoordinator.getInstance(this)
+                .submit(WorkoutWrite.logOccurrence(occurrence.plan, occurrence.day, completed))
+                .whenComplete((result, error) -> runOnUiThread(() -> {
+                    if (isFinishing()) {
+                        return;
+                    }
+                    if (error == null && result.status == WorkoutWrite.Status.APPLIED) {
+                        Toast.makeText(this, "Workout logged!", Toast.LENGTH_SHORT).show();
+                        loadUpcomingOccurrences();
+                    } else {
+                        Toast.makeText(this, "Error logging workout!", Toast.LENGTH_SHORT).show();
+                    }
+                }));
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            onBackPressed();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
     }
 }
@@ -0,0 +1,53 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes the nightly incremental backup while the device is idle and charging.
+ */
+public class BackupWorker extends Worker {
+
+    private static final String TAG = "BackupWorker";
+    private static final String PERIODIC_WORK_NAME = "workout-backup-nightly";
+
+    public BackupWorker(Context context, WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Schedules the daily backup, keeping an existing schedule.
+     */
+    public static void scheduleNightlyBackup(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(BackupWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(PERIODIC_WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @Override
+    public Result doWork() {
+        try {
+            DatabaseBackup.backup(getApplicationContext());
+            return Result.success();
+        } catch (IOException e) {
+            Log.e(TAG, "Backup failed", e);
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Incremental backups of the workout database into the app's no-backup directory, and restore from them.
+ */
+public final class DatabaseBackup {
+
+    private static final String TAG = "DatabaseBackup";
+    private static final String BACKUP_DIR_NAME = "backups";
+
+    private DatabaseBackup() {
+    }
+
+    /**
+     * Writes an incremental backup containing only the pages changed since the last one.
+     */
+    public static PageBackupEngine.Result backup(Context context) throws IOException {
+        WorkoutDatabaseManager dbManager = WorkoutDatabaseManager.getInstance(context);
+        PageBackupEngine.Result result = dbManager.backupTo(engine(context));
+        Log.i(TAG, "Backup " + result.sequence + (result.full ? " (full)" : "") + ": " + result.pagesWritten + " of "
+                + result.pageCount + " pages, " + result.bytesWritten + " bytes");
+        return result;
+    }
+
+    public static boolean hasBackup(Context context) {
+        return engine(context).hasBackup();
+    }
+
+    /**
+     * Replaces the database contents with the latest backup. The backup is restored and verified into a
+     * temporary file first, so a damaged backup leaves the current database untouched. The rows are then
+     * copied into the open database in one transaction, which every other writer waits for, so no write
+     * can slip in between or be lost, and open screens keep their connection. Call off the main thread.
+     */
+    public static void restore(Context context) throws IOException {
+        long start = WorkoutMetrics.begin("backup.restore");
+        try {
+            WorkoutDatabaseManager dbManager = WorkoutDatabaseManager.getInstance(context);
+            File restored = new File(context.getCacheDir(), "restore.db");
+            try {
+                engine(context).restore(restored);
+                dbManager.replaceContentsWith(restored);
+            } finally {
+                // Opening the copy may have left a write-ahead log next to it
+                restored.delete();
+                new File(restored.getPath() + "-wal").delete();
+                new File(restored.getPath() + "-shm").delete();
+            }
+            Log.i(TAG, "Restored the latest backup");
+        } finally {
+            WorkoutMetrics.end("backup.restore", start);
+        }
+    }
+
+    private static PageBackupEngine engine(Context context) {
+        // Excluded from Auto Backup, these copies are for on-device recovery
+        return new PageBackupEngine(new File(context.getNoBackupFilesDir(), BACKUP_DIR_NAME));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.util.Log;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Optional encryption at rest for the workout database, using SQLCipher with a key from {@link DatabaseKeyStore}.
+ * Enabled by the {@code encrypt_database} resource. A plaintext database from any earlier version is
+ * encrypted once, before it is first opened, and then upgraded as usual. The key cannot leave the device,
+ * so an encrypted database that arrives without it, from a backup or a device transfer, is replaced by an empty one.
+ */
+public final class DatabaseEncryption {
+
+    private static final String TAG = "DatabaseEncryption";
+    private static final String PREFS_NAME = "database";
+    private static final String KEY_ENCRYPTED = "encrypted";
+
+    // An empty passphrase makes SQLCipher read and write a standard SQLite file
+    private static final byte[] NO_PASSPHRASE = new byte[0];
+
+    private DatabaseEncryption() {
+    }
+
+    /**
+     * Returns true once the database has been encrypted.
+     */
+    public static boolean isEncrypted(Context context) {
+        return prefs(context).getBoolean(KEY_ENCRYPTED, false);
+    }
+
+    /**
+     * Prepares the database file for opening and returns its passphrase. Called by
+     * {@link WorkoutDatabaseManager#getInstance} before the database is first opened in this process.
+     */
+    static byte[] prepare(Context context, String databaseName) {
+        if (isEncrypted(context)) {
+            try {
+                return DatabaseKeyStore.getOrCreatePassphrase(context);
+            } catch (DatabaseKeyStore.KeyLostException e) {
+                // Nothing can ever read this database again, failing every open would only crash every screen
+                Log.w(TAG, "Database key lost, starting with an empty database", e);
+                context.deleteDatabase(databaseName);
+                DatabaseKeyStore.clear(context);
+                prefs(context).edit().remove(KEY_ENCRYPTED).commit();
+            }
+        }
+        if (!context.getResources().getBoolean(R.bool.encrypt_database)) {
+            return NO_PASSPHRASE;
+        }
+
+        File databaseFile = context.getDatabasePath(databaseName);
+        long start = WorkoutMetrics.begin("db.encrypt");
+        try {
+            byte[] passphrase;
+            try {
+                passphrase = DatabaseKeyStore.getOrCreatePassphrase(context);
+            } catch (DatabaseKeyStore.KeyLostException e) {
+                // The database is still plaintext, so no page uses the lost key
+                Log.w(TAG, "Replacing an unusable database key", e);
+                DatabaseKeyStore.clear(context);
+                passphrase = DatabaseKeyStore.getOrCreatePassphrase(context);
+            }
+            if (databaseFile.exists()) {
+                File encrypted = new File(databaseFile.getPath() + ".encrypted");
+                encrypt(databaseFile, encrypted, passphrase);
+                deleteJournals(databaseFile);
+                if (!encrypted.renameTo(databaseFile)) {
+                    throw new IOException("Cannot replace " + databaseFile);
+                }
+            }
+            prefs(context).edit().putBoolean(KEY_ENCRYPTED, true).commit();
+            return passphrase;
+        } catch (IOException | RuntimeException e) {
+            // The plaintext database is untouched, try again on the next start
+            Log.e(TAG, "Encrypting the database failed", e);
+            return NO_PASSPHRASE;
+        } finally {
+            WorkoutMetrics.end("db.encrypt", start);
+        }
+    }
+
+    /**
+     * Writes an encrypted copy of a plaintext database with sqlcipher_export, keeping its schema
+     * version so the usual upgrade runs when the copy is opened.
+     */
+    static void encrypt(File plaintext, File target, byte[] passphrase) throws IOException {
+        target.delete();
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(plaintext.getPath(), NO_PASSPHRASE, null,
+                SQLiteDatabase.OPEN_READWRITE, null, null);
+        try {
+            int version = db.getVersion();
+            db.execSQL("ATTACH DATABASE ? AS encrypted KEY ?",
+                    new Object[]{target.getPath(), new String(passphrase, StandardCharsets.US_ASCII)});
+            // Set before the first table is created, so freed pages can still be returned incrementally
+            db.execSQL("PRAGMA encrypted.auto_vacuum = INCREMENTAL");
+            Cursor cursor = db.rawQuery("SELECT sqlcipher_export('encrypted')", (String[]) null);
+            cursor.moveToFirst();
+            cursor.close();
+            db.execSQL("PRAGMA encrypted.user_version = " + version);
+            db.execSQL("DETACH DATABASE encrypted");
+        } catch (RuntimeException e) {
+            target.delete();
+            throw new IOException("Cannot encrypt " + plaintext, e);
+        } finally {
+            db.close();
+        }
+    }
+
+    private static void deleteJournals(File databaseFile) {
+        // Everything was checkpointed into the copy, stale journals must not be applied to it
+        new File(databaseFile.getPath() + "-wal").delete();
+        new File(databaseFile.getPath() + "-shm").delete();
+        new File(databaseFile.getPath() + "-journal").delete();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
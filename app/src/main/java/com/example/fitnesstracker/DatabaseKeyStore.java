@@ -0,0 +1,140 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Base64;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Holds the database encryption key. The 256-bit key is random and stored only wrapped by an AES key
+ * that lives in the Android Keystore and never leaves it, so copying the app's files does not expose it.
+ */
+public final class DatabaseKeyStore {
+
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String WRAPPING_KEY_ALIAS = "workout_db_key_wrapper";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int GCM_TAG_BITS = 128;
+    private static final int KEY_BYTES = 32;
+
+    private static final String PREFS_NAME = "database_key";
+    private static final String KEY_WRAPPED = "wrapped_key";
+    private static final String KEY_IV = "iv";
+
+    private DatabaseKeyStore() {
+    }
+
+    /**
+     * Thrown when a stored key can never be unwrapped again, because its wrapping key is not in this
+     * device's keystore. Happens after the preferences were restored from a backup or moved to a new device.
+     */
+    static final class KeyLostException extends IllegalStateException {
+        KeyLostException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Returns the SQLCipher passphrase for the database key, creating the key on first use.
+     * The passphrase uses SQLCipher's raw key syntax, x'...', which skips the slow key derivation
+     * on every open since the key is already random.
+     */
+    public static synchronized byte[] getOrCreatePassphrase(Context context) {
+        try {
+            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            String wrapped = prefs.getString(KEY_WRAPPED, null);
+            byte[] key;
+            if (wrapped == null) {
+                key = new byte[KEY_BYTES];
+                new SecureRandom().nextBytes(key);
+                Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+                cipher.init(Cipher.ENCRYPT_MODE, getOrCreateWrappingKey());
+                // commit() so the key is on disk before any page is encrypted with it
+                prefs.edit()
+                        .putString(KEY_WRAPPED, Base64.encodeToString(cipher.doFinal(key), Base64.NO_WRAP))
+                        .putString(KEY_IV, Base64.encodeToString(cipher.getIV(), Base64.NO_WRAP))
+                        .commit();
+            } else {
+                SecretKey wrappingKey = getWrappingKey(loadKeyStore());
+                if (wrappingKey == null) {
+                    throw new KeyLostException("Database key wrapper is not in the keystore", null);
+                }
+                Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+                cipher.init(Cipher.DECRYPT_MODE, wrappingKey, new GCMParameterSpec(GCM_TAG_BITS,
+                        Base64.decode(prefs.getString(KEY_IV, ""), Base64.NO_WRAP)));
+                try {
+                    key = cipher.doFinal(Base64.decode(wrapped, Base64.NO_WRAP));
+                } catch (AEADBadTagException e) {
+                    // Wrapped by a different device's keystore key
+                    throw new KeyLostException("Database key cannot be unwrapped", e);
+                }
+            }
+            return rawKeyPassphrase(key);
+        } catch (GeneralSecurityException e) {
+            // Without the key the database cannot be opened at all
+            throw new IllegalStateException("Database key unavailable", e);
+        }
+    }
+
+    /**
+     * Forgets the stored key, so the next call to {@link #getOrCreatePassphrase} creates a new one.
+     * Anything encrypted with the old key becomes unreadable.
+     */
+    static synchronized void clear(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().clear().commit();
+    }
+
+    /**
+     * Formats a key as SQLCipher's raw key passphrase, x'<64 hex digits>'.
+     */
+    static byte[] rawKeyPassphrase(byte[] key) {
+        StringBuilder passphrase = new StringBuilder(key.length * 2 + 3).append("x'");
+        for (byte b : key) {
+            passphrase.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return passphrase.append('\'').toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static KeyStore loadKeyStore() throws GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        try {
+            keyStore.load(null);
+        } catch (IOException e) {
+            throw new GeneralSecurityException(e);
+        }
+        return keyStore;
+    }
+
+    private static SecretKey getWrappingKey(KeyStore keyStore) throws GeneralSecurityException {
+        KeyStore.Entry entry = keyStore.getEntry(WRAPPING_KEY_ALIAS, null);
+        return entry instanceof KeyStore.SecretKeyEntry ? ((KeyStore.SecretKeyEntry) entry).getSecretKey() : null;
+    }
+
+    private static SecretKey getOrCreateWrappingKey() throws GeneralSecurityException {
+        SecretKey existing = getWrappingKey(loadKeyStore());
+        if (existing != null) {
+            return existing;
+        }
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+        generator.init(new KeyGenParameterSpec.Builder(WRAPPING_KEY_ALIAS,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .setKeySize(256)
+                .build());
+        return generator.generateKey();
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.fitnesstracker;
+
+import android.util.Log;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Periodic upkeep of the workout database: integrity check, planner statistics and returning free
+ * pages to the file system. Each phase is measured in {@link WorkoutMetrics} under "maintenance.*".
+ */
+public final class DatabaseMaintenance {
+
+    private static final String TAG = "DatabaseMaintenance";
+
+    // Problems reported by a single integrity check
+    private static final int MAX_INTEGRITY_ERRORS = 100;
+    private static final int PURGE_BATCH_SIZE = 500;
+    private static final int VACUUM_PAGES_PER_STEP = 256;
+
+    private DatabaseMaintenance() {
+    }
+
+    /**
+     * Outcome of a maintenance pass.
+     */
+    public static final class Result {
+        public final boolean integrityOk;
+        public final List<String> problems; // Integrity problems left after repair
+        public final int tombstonesPurged;
+        public final long bytesReclaimed;
+        public final long elapsedMillis;
+        public final boolean stopped; // True if the pass was cut short
+
+        Result(boolean integrityOk, List<String> problems, int tombstonesPurged, long bytesReclaimed,
+               long elapsedMillis, boolean stopped) {
+            this.integrityOk = integrityOk;
+            this.problems = problems;
+            this.tombstonesPurged = tombstonesPurged;
+            this.bytesReclaimed = bytesReclaimed;
+            this.elapsedMillis = elapsedMillis;
+            this.stopped = stopped;
+        }
+    }
+
+    /**
+     * Runs a full maintenance pass. Integrity is checked first: index damage is repaired with REINDEX,
+     * and any other damage skips the remaining phases so nothing rewrites a corrupt file.
+     *
+     * @param isStopped Polled between phases and vacuum steps, e.g. when the device stops being idle
+     */
+    public static Result run(WorkoutDatabaseManager dbManager, BooleanSupplier isStopped) {
+        long start = WorkoutMetrics.begin("maintenance.run");
+        try {
+            List<String> problems = checkIntegrity(dbManager);
+            if (!problems.isEmpty()) {
+                Log.e(TAG, "Integrity check failed: " + problems);
+                return result(problems, 0, 0, start, false);
+            }
+
+            // Tombstones left behind when the process died before the compactor ran
+            int purged = 0;
+            boolean stopped = isStopped.getAsBoolean();
+            if (!stopped) {
+                purged = purgeTombstones(dbManager);
+                stopped = isStopped.getAsBoolean();
+            }
+
+            if (!stopped) {
+                long analyzeStart = WorkoutMetrics.begin("maintenance.analyze");
+                try {
+                    dbManager.analyze();
+                } finally {
+                    WorkoutMetrics.end("maintenance.analyze", analyzeStart);
+                }
+                stopped = isStopped.getAsBoolean();
+            }
+
+            // The one-time switch to incremental auto-vacuum rewrites the file, so it only happens here
+            if (!stopped && dbManager.enableIncrementalVacuum()) {
+                Log.i(TAG, "Switched to incremental auto-vacuum");
+                stopped = isStopped.getAsBoolean();
+            }
+
+            // Small steps so a foreground writer never waits long for the lock
+            long reclaimed = 0;
+            long vacuumStart = WorkoutMetrics.begin("maintenance.vacuum");
+            try {
+                while (!stopped) {
+                    long bytes = dbManager.incrementalVacuum(VACUUM_PAGES_PER_STEP);
+                    if (bytes <= 0) {
+                        break;
+                    }
+                    reclaimed += bytes;
+                    stopped = isStopped.getAsBoolean();
+                }
+            } finally {
+                WorkoutMetrics.end("maintenance.vacuum", vacuumStart);
+                WorkoutMetrics.count("maintenance.bytesReclaimed", reclaimed);
+            }
+            return result(problems, purged, reclaimed, start, stopped);
+        } finally {
+            WorkoutMetrics.end("maintenance.run", start);
+        }
+    }
+
+    private static List<String> checkIntegrity(WorkoutDatabaseManager dbManager) {
+        long start = WorkoutMetrics.begin("maintenance.integrityCheck");
+        try {
+            List<String> problems = dbManager.checkIntegrity(MAX_INTEGRITY_ERRORS);
+            if (!problems.isEmpty() && onlyIndexProblems(problems)) {
+                Log.w(TAG, "Rebuilding indexes: " + problems);
+                dbManager.reindex();
+                problems = dbManager.checkIntegrity(MAX_INTEGRITY_ERRORS);
+            }
+            return problems;
+        } finally {
+            WorkoutMetrics.end("maintenance.integrityCheck", start);
+        }
+    }
+
+    /**
+     * Returns true if every problem is an index out of step with its table, which REINDEX can fix.
+     */
+    static boolean onlyIndexProblems(List<String> problems) {
+        for (String problem : problems) {
+            if (!problem.contains("missing from index") && !problem.startsWith("wrong # of entries in index")
+                    && !problem.startsWith("non-unique entry in index")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int purgeTombstones(WorkoutDatabaseManager dbManager) {
+        long deletedBefore = System.currentTimeMillis() - TombstoneCompactor.UNDO_WINDOW_MILLIS;
+        int total = 0;
+        int purged;
+        do {
+            purged = dbManager.purgeTombstones(deletedBefore, PURGE_BATCH_SIZE);
+            total += purged;
+        } while (purged == PURGE_BATCH_SIZE);
+        return total;
+    }
+
+    private static Result result(List<String> problems, int purged, long reclaimed, long startNanos, boolean stopped) {
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        Log.i(TAG, "Maintenance " + (stopped ? "stopped" : "done") + " in " + elapsedMillis + " ms: purged "
+                + purged + " workouts, reclaimed " + reclaimed + " bytes, integrity "
+                + (problems.isEmpty() ? "ok" : problems.size() + " problems"));
+        return new Result(problems.isEmpty(), problems, purged, reclaimed, elapsedMillis, stopped);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * Opens and migrates the workout database on a background thread at app start, compiles the
+ * common statements and prefetches the first history page, so the first screen renders from warm data.
+ */
+public final class DatabasePrewarmer {
+
+    private static final String TAG = "DatabasePrewarmer";
+
+    private DatabasePrewarmer() {
+    }
+
+    /**
+     * Starts pre-warming on a low-priority background thread.
+     */
+    public static void start(Context context) {
+        Context appContext = context.getApplicationContext();
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            long start = WorkoutMetrics.begin("startup.prewarm");
+            try {
+                WorkoutDatabaseManager dbManager = WorkoutDatabaseManager.getInstance(appContext);
+                dbManager.prewarm();
+                HistoryWarmCache.prefetch(dbManager);
+            } catch (RuntimeException e) {
+                // Screens fall back to loading from the database themselves
+                Log.e(TAG, "Pre-warming failed", e);
+            } finally {
+                WorkoutMetrics.end("startup.prewarm", start);
+            }
+        }, TAG);
+        thread.start();
+    }
+}
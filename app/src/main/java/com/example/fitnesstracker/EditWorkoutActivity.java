@@ -6,6 +6,7 @@ import android.widget.Button;
 import android.widget.EditText;
 import android.widget.Spinner;
 import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
 public class EditWorkoutActivity extends AppCompatActivity {
@@ -15,6 +16,7 @@ public class EditWorkoutActivity extends AppCompatActivity {
     private Spinner spinnerWorkoutType;
     private Button btnUpdateWorkout;
     private int workoutId; // ID of the workout being edited, passed via intent
+    private int workoutVersion; // Row version the form was loaded from, checked on save
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -58,14 +60,18 @@ public class EditWorkoutActivity extends AppCompatActivity {
      * @param id The ID of the workout to be loaded
      */
     private void loadWorkoutDetails(int id) {
-        WorkoutDatabaseManager dbManager = new WorkoutDatabaseManager(this);
+        long start = WorkoutMetrics.begin("screen.edit.load");
+        WorkoutDatabaseManager dbManager = WorkoutDatabaseManager.getInstance(this);
         String[] details = dbManager.getWorkoutDetails(id);
+        WorkoutMetrics.end("screen.edit.load", start);
 
         if (details == null) {
             showErrorAndExit("Workout not found");
             return;
         }
 
+        workoutVersion = Integer.parseInt(details[3]);
+
         // Populate input fields
         etWorkoutName.setText(details[0]);
         etDuration.setText(details[1]);
@@ -94,16 +100,61 @@ public class EditWorkoutActivity extends AppCompatActivity {
             return;
         }
 
-        WorkoutDatabaseManager dbManager = new WorkoutDatabaseManager(this);
-        boolean success = dbManager.updateWorkout(workoutId, name, duration, type);
+        // Saved through the writer queue so an edit made against a stale copy is rejected instead of
+        // overwriting a sync or completion that landed while the form was open
+        btnUpdateWorkout.setEnabled(false);
+        WorkoutWriteCoordinator.getInstance(this)
+                .submit(WorkoutWrite.update(workoutId, workoutVersion, name, duration, type))
+                .whenComplete((result, error) -> runOnUiThread(() -> onUpdateResult(result, error)));
+    }
 
-        if (success) {
-            Toast.makeText(this, "Workout updated successfully!", Toast.LENGTH_SHORT).show();
-            setResult(RESULT_OK);
-            finish();
-        } else {
+    private void onUpdateResult(WorkoutWrite.Result result, Throwable error) {
+        if (isFinishing()) {
+            return;
+        }
+        btnUpdateWorkout.setEnabled(true);
+        if (error != null) {
             Toast.makeText(this, "Error updating workout!", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        switch (result.status) {
+            case APPLIED:
+                Toast.makeText(this, "Workout updated successfully!", Toast.LENGTH_SHORT).show();
+                setResult(RESULT_OK);
+                finish();
+                break;
+            case CONFLICT:
+                showConflictDialog();
+                break;
+            case NOT_FOUND:
+                showErrorAndExit("Workout not found");
+                break;
+        }
+    }
+
+    /**
+     * Shows what the workout was changed to while the form was open. The user's edits stay in the form
+     * until they choose to overwrite the other change with them or to discard them.
+     */
+    private void showConflictDialog() {
+        String[] current = WorkoutDatabaseManager.getInstance(this).getWorkoutDetails(workoutId);
+        if (current == null) {
+            showErrorAndExit("Workout not found");
+            return;
         }
+        int currentVersion = Integer.parseInt(current[3]);
+        new AlertDialog.Builder(this)
+                .setTitle("Workout changed elsewhere")
+                .setMessage("It now reads:\n" + current[0] + " (" + current[1] + " minutes, " + current[2] + ")\n\n" +
+                        "Your changes are still in the form.")
+                .setPositiveButton("Overwrite", (dialog, which) -> {
+                    workoutVersion = currentVersion;
+                    updateWorkout();
+                })
+                .setNeutralButton("Keep Editing", (dialog, which) -> workoutVersion = currentVersion)
+                .setNegativeButton("Discard Mine", (dialog, which) -> loadWorkoutDetails(workoutId))
+                .show();
     }
 
     /**
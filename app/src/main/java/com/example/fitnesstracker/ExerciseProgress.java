@@ -0,0 +1,45 @@
+package com.example.fitnesstracker;
+
+/**
+ * Daily totals of one exercise over a range of days, in ascending day order. Only days the exercise
+ * was trained on are included.
+ */
+public final class ExerciseProgress {
+
+    public final String exercise;
+    public final int[] days; // Epoch days
+    public final int[] sets;
+    public final long[] volumes; // Gram-reps
+    public final int[] oneRepMaxes; // Best estimated one-rep max of the day, in grams
+
+    ExerciseProgress(String exercise, int[] days, int[] sets, long[] volumes, int[] oneRepMaxes) {
+        this.exercise = exercise;
+        this.days = days;
+        this.sets = sets;
+        this.volumes = volumes;
+        this.oneRepMaxes = oneRepMaxes;
+    }
+
+    public int size() {
+        return days.length;
+    }
+
+    public long getTotalVolume() {
+        long total = 0;
+        for (long volume : volumes) {
+            total += volume;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the best estimated one-rep max in the range, or 0 if the exercise was not trained.
+     */
+    public int getBestOneRepMax() {
+        int best = 0;
+        for (int oneRepMax : oneRepMaxes) {
+            best = Math.max(best, oneRepMax);
+        }
+        return best;
+    }
+}
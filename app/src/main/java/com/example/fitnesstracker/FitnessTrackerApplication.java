@@ -0,0 +1,23 @@
+package com.example.fitnesstracker;
+
+import android.app.Application;
+
+public class FitnessTrackerApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Open the database and prefetch the first history page before any screen needs it
+        DatabasePrewarmer.start(this);
+
+        // Pull changes from other devices periodically, does nothing until a sync server is configured
+        SyncWorker.schedulePeriodicSync(this);
+
+        // Back up only the pages that changed since last night
+        BackupWorker.scheduleNightlyBackup(this);
+
+        // Refresh planner statistics, reclaim free pages and check integrity while the device is idle
+        MaintenanceWorker.scheduleDailyMaintenance(this);
+    }
+}
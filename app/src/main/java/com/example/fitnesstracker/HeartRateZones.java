@@ -0,0 +1,102 @@
+package com.example.fitnesstracker;
+
+/**
+ * Heart-rate zones from the heart-rate reserve (Karvonen), and per-workout intensity from
+ * per-second heart-rate samples. Zone and TRIMP weights are precomputed for every bpm,
+ * so analysing a workout is one table lookup per sample.
+ */
+public final class HeartRateZones {
+
+    public static final int ZONE_COUNT = 6; // Zone 0 is below zone 1, zones 1 to 5 start at 50/60/70/80/90% of reserve
+
+    private static final int MAX_BPM = 255;
+    private static final double[] ZONE_FLOORS = {0.5, 0.6, 0.7, 0.8, 0.9};
+
+    private final int restingHr;
+    private final int maxHr;
+    private final byte[] zoneByBpm = new byte[MAX_BPM + 1];
+    private final double[] trimpPerSecondByBpm = new double[MAX_BPM + 1];
+
+    /**
+     * @param restingHr Resting heart rate in bpm
+     * @param maxHr     Maximum heart rate in bpm
+     * @param female    Selects the Banister TRIMP weighting for women (0.86, 1.67) instead of men (0.64, 1.92)
+     */
+    public HeartRateZones(int restingHr, int maxHr, boolean female) {
+        if (restingHr <= 0 || maxHr <= restingHr || maxHr > MAX_BPM) {
+            throw new IllegalArgumentException("Expected 0 < restingHr < maxHr <= " + MAX_BPM);
+        }
+        this.restingHr = restingHr;
+        this.maxHr = maxHr;
+
+        double a = female ? 0.86 : 0.64;
+        double b = female ? 1.67 : 1.92;
+        double reserve = maxHr - restingHr;
+        for (int bpm = 0; bpm <= MAX_BPM; bpm++) {
+            double fraction = Math.max(0, Math.min(1, (bpm - restingHr) / reserve));
+            int zone = 0;
+            while (zone < ZONE_FLOORS.length && fraction >= ZONE_FLOORS[zone]) {
+                zone++;
+            }
+            zoneByBpm[bpm] = (byte) zone;
+            // Banister TRIMP is defined per minute, so one second contributes 1/60 of the weight
+            trimpPerSecondByBpm[bpm] = fraction * a * Math.exp(b * fraction) / 60.0;
+        }
+    }
+
+    public int getRestingHr() {
+        return restingHr;
+    }
+
+    public int getMaxHr() {
+        return maxHr;
+    }
+
+    /**
+     * Returns the zone (0-5) of a heart rate.
+     */
+    public int zoneOf(int bpm) {
+        return zoneByBpm[clamp(bpm)];
+    }
+
+    /**
+     * Returns the lowest heart rate of a zone (1-5).
+     */
+    public int zoneFloor(int zone) {
+        return (int) Math.ceil(restingHr + ZONE_FLOORS[zone - 1] * (maxHr - restingHr));
+    }
+
+    /**
+     * Computes time in zone and TRIMP for one workout.
+     *
+     * @param samples One heart rate per second; values of 0 or less are sensor dropouts and are skipped
+     * @param count   The number of samples to read from the start of the array
+     */
+    public SessionLoad analyze(short[] samples, int count) {
+        int[] secondsInZone = new int[ZONE_COUNT];
+        double trimp = 0;
+        long sum = 0;
+        int validSeconds = 0;
+        int peak = 0;
+        for (int i = 0; i < count; i++) {
+            int bpm = samples[i];
+            if (bpm <= 0) {
+                continue;
+            }
+            bpm = Math.min(bpm, MAX_BPM);
+            secondsInZone[zoneByBpm[bpm]]++;
+            trimp += trimpPerSecondByBpm[bpm];
+            sum += bpm;
+            validSeconds++;
+            if (bpm > peak) {
+                peak = bpm;
+            }
+        }
+        return new SessionLoad(secondsInZone, validSeconds, trimp,
+                validSeconds > 0 ? (double) sum / validSeconds : 0, peak);
+    }
+
+    private static int clamp(int bpm) {
+        return bpm < 0 ? 0 : Math.min(bpm, MAX_BPM);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.fitnesstracker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory copy of the first history page and the summary totals, prefetched at app start
+ * so the first history and summary screens can render without waiting on the database.
+ * Any write to the workouts table invalidates it.
+ */
+public final class HistoryWarmCache {
+
+    // Number of workouts prefetched for the first history screen
+    public static final int FIRST_PAGE_SIZE = 50;
+
+    private static final AtomicInteger VERSION = new AtomicInteger();
+    private static volatile Snapshot snapshot;
+
+    private HistoryWarmCache() {
+    }
+
+    /**
+     * Immutable prefetched data.
+     */
+    public static final class Snapshot {
+        public final List<WorkoutRow> firstPage; // Shared, copy a row before changing it
+        public final int totalWorkouts;
+        public final int totalDuration;
+        public final String mostFrequentType;
+
+        Snapshot(List<WorkoutRow> firstPage, int totalWorkouts, int totalDuration, String mostFrequentType) {
+            this.firstPage = Collections.unmodifiableList(firstPage);
+            this.totalWorkouts = totalWorkouts;
+            this.totalDuration = totalDuration;
+            this.mostFrequentType = mostFrequentType;
+        }
+
+        /**
+         * Returns true if the first page already holds every workout.
+         */
+        public boolean isComplete() {
+            return firstPage.size() == totalWorkouts;
+        }
+    }
+
+    /**
+     * Reads the first history page and summary totals. The result is discarded if a write
+     * happened while it was being read.
+     */
+    public static void prefetch(WorkoutDatabaseManager dbManager) {
+        int version = VERSION.get();
+
+        List<WorkoutRow> firstPage = new ArrayList<>(FIRST_PAGE_SIZE);
+        dbManager.getRecentWorkoutRows(FIRST_PAGE_SIZE, firstPage);
+        Snapshot prefetched = new Snapshot(firstPage, dbManager.getTotalWorkouts(),
+                dbManager.getTotalDuration(), dbManager.getMostFrequentWorkoutType());
+
+        synchronized (HistoryWarmCache.class) {
+            if (VERSION.get() == version) {
+                snapshot = prefetched;
+            }
+        }
+    }
+
+    /**
+     * Returns the prefetched data, or null if it is missing or stale.
+     */
+    public static Snapshot get() {
+        return snapshot;
+    }
+
+    /**
+     * Drops the prefetched data after a write.
+     */
+    public static void invalidate() {
+        synchronized (HistoryWarmCache.class) {
+            VERSION.incrementAndGet();
+            snapshot = null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.fitnesstracker;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, log-linear latency histogram (HdrHistogram-style buckets).
+ * Values are recorded in microseconds. Recording never allocates, so it is safe to call
+ * from database methods and UI callbacks on every invocation.
+ */
+public class LatencyHistogram {
+
+    // Values below 16us get one bucket each, every power of two above that is split into 8 sub-buckets
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 40; // ~12 days in microseconds, anything above is clamped
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (MAX_MAGNITUDE - 4) * SUB_BUCKETS + 1; // last bucket is overflow
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLongArray totals = new AtomicLongArray(3); // count, sum, max
+
+    /**
+     * Records a single latency value.
+     *
+     * @param micros The elapsed time in microseconds
+     */
+    public void record(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        counts.incrementAndGet(bucketIndex(micros));
+        totals.incrementAndGet(0);
+        totals.addAndGet(1, micros);
+
+        long max;
+        do {
+            max = totals.get(2);
+        } while (micros > max && !totals.compareAndSet(2, max, micros));
+    }
+
+    public long getCount() {
+        return totals.get(0);
+    }
+
+    public long getMax() {
+        return totals.get(2);
+    }
+
+    public double getMean() {
+        long count = totals.get(0);
+        return count == 0 ? 0 : (double) totals.get(1) / count;
+    }
+
+    /**
+     * Returns the value at the given percentile, reported as the upper bound of its bucket.
+     *
+     * @param percentile A value between 0 and 100
+     * @return The latency in microseconds, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totals.get(0);
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(count * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+        if (target < 1) {
+            target = 1;
+        }
+
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), totals.get(2));
+            }
+        }
+        return totals.get(2);
+    }
+
+    /**
+     * Clears all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        for (int i = 0; i < 3; i++) {
+            totals.set(i, 0);
+        }
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros); // >= 4
+        if (magnitude >= MAX_MAGNITUDE) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (micros >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (magnitude - 4) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        if (index == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        int magnitude = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+        int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
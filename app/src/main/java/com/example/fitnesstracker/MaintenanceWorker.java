@@ -0,0 +1,65 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link DatabaseMaintenance} once a day while the device is idle and charging.
+ * WorkManager stops the worker when either constraint is lost, which ends the pass at the next step.
+ */
+public class MaintenanceWorker extends Worker {
+
+    static final String PERIODIC_WORK_NAME = "workout-db-maintenance";
+
+    // Output data keys, for tests and diagnostics
+    public static final String KEY_BYTES_RECLAIMED = "bytes_reclaimed";
+    public static final String KEY_ELAPSED_MILLIS = "elapsed_millis";
+    public static final String KEY_INTEGRITY_OK = "integrity_ok";
+
+    public MaintenanceWorker(Context context, WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Returns the constraints maintenance runs under.
+     */
+    public static Constraints constraints() {
+        return new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .build();
+    }
+
+    /**
+     * Schedules the daily maintenance, keeping an existing schedule.
+     */
+    public static void scheduleDailyMaintenance(Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(MaintenanceWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints())
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(PERIODIC_WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @Override
+    public Result doWork() {
+        DatabaseMaintenance.Result result = DatabaseMaintenance.run(
+                WorkoutDatabaseManager.getInstance(getApplicationContext()), this::isStopped);
+        Data output = new Data.Builder()
+                .putLong(KEY_BYTES_RECLAIMED, result.bytesReclaimed)
+                .putLong(KEY_ELAPSED_MILLIS, result.elapsedMillis)
+                .putBoolean(KEY_INTEGRITY_OK, result.integrityOk)
+                .build();
+        // A damaged database needs a restore, retrying would not help
+        return result.integrityOk ? Result.success(output) : Result.failure(output);
+    }
+}
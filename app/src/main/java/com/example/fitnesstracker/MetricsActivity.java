@@ -0,0 +1,114 @@
+package com.example.fitnesstracker;
+
+import android.os.Bundle;
+import android.util.Log;
+import android.view.MenuItem;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.File;
+import java.io.IOException;
+
+public class MetricsActivity extends AppCompatActivity {
+
+    private static final String TAG = "MetricsActivity";
+
+    private TextView tvMetricsReport; // Displays the JSON metrics report
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        // Enable the "Up" button in the app bar for navigation
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+
+        tvMetricsReport = findViewById(R.id.tv_metrics_report);
+        Button btnRefresh = findViewById(R.id.btn_refresh_metrics);
+        Button btnDump = findViewById(R.id.btn_dump_metrics);
+        Button btnReset = findViewById(R.id.btn_reset_metrics);
+        Button btnRestore = findViewById(R.id.btn_restore_backup);
+
+        btnRefresh.setOnClickListener(v -> showReport());
+        btnDump.setOnClickListener(v -> dumpReport());
+        btnReset.setOnClickListener(v -> {
+            WorkoutMetrics.reset();
+            SlowQueryLog.clear();
+            showReport();
+        });
+        btnRestore.setOnClickListener(v -> confirmRestore());
+
+        showReport();
+    }
+
+    /**
+     * Asks before replacing every workout with the contents of the latest nightly backup.
+     */
+    private void confirmRestore() {
+        if (!DatabaseBackup.hasBackup(this)) {
+            Toast.makeText(this, "No backup yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Restore Backup")
+                .setMessage("Replace all workouts with the latest backup? Changes made since then are lost.")
+                .setPositiveButton("Restore", (dialog, which) -> restoreBackup())
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void restoreBackup() {
+        // Copies the whole database, so it runs off the main thread; other writes wait for it
+        new Thread(() -> {
+            boolean restored;
+            try {
+                DatabaseBackup.restore(getApplicationContext());
+                restored = true;
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Restore failed", e);
+                restored = false;
+            }
+            boolean success = restored;
+            runOnUiThread(() -> {
+                Toast.makeText(this, success ? "Backup restored" : "Failed to restore backup", Toast.LENGTH_SHORT).show();
+                showReport();
+            });
+        }, TAG).start();
+    }
+
+    /**
+     * Shows the current p50/p95/p99 report for every recorded operation.
+     */
+    private void showReport() {
+        tvMetricsReport.setText(WorkoutMetrics.toJson()
+                + "\n\nSlow queries (over " + SlowQueryLog.getThresholdMillis() + " ms):\n"
+                + SlowQueryLog.toJson());
+    }
+
+    /**
+     * Writes the metrics report and the slow query log to the app's files directory so they can be pulled with adb.
+     */
+    private void dumpReport() {
+        File file = WorkoutMetrics.dumpReport(this);
+        File slowQueries = SlowQueryLog.export(this);
+        if (file != null && slowQueries != null) {
+            Toast.makeText(this, "Reports written to " + file.getParent(), Toast.LENGTH_LONG).show();
+        } else {
+            Toast.makeText(this, "Failed to write reports", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            onBackPressed();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+}
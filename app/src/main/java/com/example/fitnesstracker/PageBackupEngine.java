@@ -0,0 +1,414 @@
+package com.example.fitnesstracker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Incremental page-level backup of a SQLite database file.
+ *
+ * <p>Each backup compares a 64-bit fingerprint of every page with the manifest of the previous backup
+ * and writes only the changed pages to a new gzip-compressed segment. A segment ends with a CRC32 over
+ * its header and uncompressed content, so corruption is detected before a restore is trusted.
+ * Restoring streams the segments of the current chain, oldest first, into a fresh file.
+ * A new full backup starts the chain again once it grows longer or larger than its base,
+ * which keeps restore time bounded.
+ *
+ * <p>The caller must make sure the file does not change while a backup reads it.
+ */
+public final class PageBackupEngine {
+
+    static final int SEGMENT_MAGIC = 0x57544253; // "WTBS"
+    static final int MANIFEST_MAGIC = 0x5754424D; // "WTBM"
+    static final int FORMAT_VERSION = 1;
+    static final int DEFAULT_MAX_CHAIN_LENGTH = 14;
+
+    private static final String MANIFEST_FILE_NAME = "manifest.bin";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".bak";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int SQLITE_HEADER_SIZE = 100;
+
+    private final File backupDir;
+    private final int maxChainLength;
+
+    /**
+     * Outcome of one backup.
+     */
+    public static final class Result {
+        public final long sequence;
+        public final boolean full;
+        public final int pageCount;
+        public final int pagesWritten;
+        public final long bytesWritten;
+
+        Result(long sequence, boolean full, int pageCount, int pagesWritten, long bytesWritten) {
+            this.sequence = sequence;
+            this.full = full;
+            this.pageCount = pageCount;
+            this.pagesWritten = pagesWritten;
+            this.bytesWritten = bytesWritten;
+        }
+    }
+
+    /**
+     * State of the last completed backup, used to diff the next one.
+     */
+    static final class Manifest {
+        final long sequence;
+        final long baseSequence; // First segment of the chain, a full backup
+        final int pageSize;
+        final int pageCount;
+        final long baseBytes;
+        final long chainBytes; // Bytes of all incremental segments after the base
+        final long[] fingerprints;
+
+        Manifest(long sequence, long baseSequence, int pageSize, int pageCount, long baseBytes, long chainBytes,
+                 long[] fingerprints) {
+            this.sequence = sequence;
+            this.baseSequence = baseSequence;
+            this.pageSize = pageSize;
+            this.pageCount = pageCount;
+            this.baseBytes = baseBytes;
+            this.chainBytes = chainBytes;
+            this.fingerprints = fingerprints;
+        }
+    }
+
+    public PageBackupEngine(File backupDir) {
+        this(backupDir, DEFAULT_MAX_CHAIN_LENGTH);
+    }
+
+    PageBackupEngine(File backupDir, int maxChainLength) {
+        this.backupDir = backupDir;
+        this.maxChainLength = maxChainLength;
+    }
+
+    /**
+     * Returns true if a complete backup exists.
+     */
+    public boolean hasBackup() {
+        return readManifest() != null;
+    }
+
+    /**
+     * Backs up the database file, writing only the pages that changed since the previous backup.
+     */
+    public Result backup(File databaseFile) throws IOException {
+        return backup(databaseFile, readPageSize(databaseFile));
+    }
+
+    /**
+     * Backs up a database whose page size cannot be read from its header, such as an encrypted one.
+     */
+    public Result backup(File databaseFile, int pageSize) throws IOException {
+        if (!backupDir.isDirectory() && !backupDir.mkdirs()) {
+            throw new IOException("Cannot create " + backupDir);
+        }
+        long fileLength = databaseFile.length();
+        if (fileLength % pageSize != 0) {
+            throw new IOException("Database size " + fileLength + " is not a multiple of the page size " + pageSize);
+        }
+        int pageCount = (int) (fileLength / pageSize);
+
+        Manifest previous = readManifest();
+        boolean full = previous == null || previous.pageSize != pageSize
+                || previous.sequence - previous.baseSequence + 1 >= maxChainLength
+                || previous.chainBytes > previous.baseBytes;
+        long sequence = previous != null ? previous.sequence + 1 : 1;
+        long baseSequence = full ? sequence : previous.baseSequence;
+
+        long[] fingerprints = new long[pageCount];
+        File segment = segmentFile(sequence);
+        File tempSegment = new File(segment.getPath() + TEMP_SUFFIX);
+        int pagesWritten = 0;
+
+        CRC32 checksum = new CRC32();
+        byte[] header = segmentHeader(sequence, baseSequence, pageSize, pageCount);
+        checksum.update(header, 0, header.length);
+
+        try (FileOutputStream fileOut = new FileOutputStream(tempSegment);
+             InputStream in = new BufferedInputStream(new FileInputStream(databaseFile), 64 * 1024)) {
+            fileOut.write(header);
+            GZIPOutputStream gzip = new GZIPOutputStream(fileOut, 64 * 1024);
+            DataOutputStream records = new DataOutputStream(new CheckedOutputStream(gzip, checksum));
+
+            byte[] page = new byte[pageSize];
+            PageFingerprint fingerprint = new PageFingerprint();
+            for (int i = 0; i < pageCount; i++) {
+                readPage(in, page);
+                fingerprints[i] = fingerprint.of(page);
+                if (full || i >= previous.pageCount || previous.fingerprints[i] != fingerprints[i]) {
+                    records.writeInt(i + 1); // SQLite page numbers start at 1
+                    records.write(page);
+                    pagesWritten++;
+                }
+            }
+            records.writeInt(0); // End of records
+            records.flush();
+            gzip.finish();
+
+            DataOutputStream trailer = new DataOutputStream(fileOut);
+            trailer.writeInt(pagesWritten);
+            trailer.writeLong(checksum.getValue());
+            trailer.flush();
+            fileOut.getFD().sync();
+        } catch (IOException | RuntimeException e) {
+            tempSegment.delete();
+            throw e;
+        }
+        long bytesWritten = tempSegment.length();
+        renameOrThrow(tempSegment, segment);
+
+        long baseBytes = full ? bytesWritten : previous.baseBytes;
+        long chainBytes = full ? 0 : previous.chainBytes + bytesWritten;
+        writeManifest(new Manifest(sequence, baseSequence, pageSize, pageCount, baseBytes, chainBytes, fingerprints));
+        if (full) {
+            deleteSegmentsBefore(baseSequence);
+        }
+        return new Result(sequence, full, pageCount, pagesWritten, bytesWritten);
+    }
+
+    /**
+     * Rebuilds the database file from the current backup chain into {@code target} and verifies every
+     * page against the manifest. Restore into a temporary file and move it into place only on success.
+     *
+     * @return The number of pages in the restored file
+     * @throws IOException if there is no backup or any segment is missing or corrupt
+     */
+    public int restore(File target) throws IOException {
+        Manifest manifest = readManifest();
+        if (manifest == null) {
+            throw new IOException("No backup found in " + backupDir);
+        }
+
+        int pageSize = manifest.pageSize;
+        try (RandomAccessFile out = new RandomAccessFile(target, "rw")) {
+            out.setLength(0);
+            byte[] page = new byte[pageSize];
+            for (long sequence = manifest.baseSequence; sequence <= manifest.sequence; sequence++) {
+                applySegment(sequence, manifest, out, page);
+            }
+            out.setLength((long) manifest.pageCount * pageSize);
+
+            // End-to-end check that the chain reproduced exactly the pages that were backed up
+            out.seek(0);
+            PageFingerprint fingerprint = new PageFingerprint();
+            for (int i = 0; i < manifest.pageCount; i++) {
+                out.readFully(page);
+                if (fingerprint.of(page) != manifest.fingerprints[i]) {
+                    throw new IOException("Restored page " + (i + 1) + " does not match the backup");
+                }
+            }
+            out.getFD().sync();
+        }
+        return manifest.pageCount;
+    }
+
+    private void applySegment(long sequence, Manifest manifest, RandomAccessFile out, byte[] page) throws IOException {
+        File segment = segmentFile(sequence);
+        try (FileInputStream fileIn = new FileInputStream(segment)) {
+            DataInputStream headerIn = new DataInputStream(fileIn);
+            byte[] header = new byte[segmentHeader(0, 0, 0, 0).length];
+            headerIn.readFully(header);
+            DataInputStream fields = new DataInputStream(new ByteArrayInputStream(header));
+            if (fields.readInt() != SEGMENT_MAGIC || fields.readInt() != FORMAT_VERSION || fields.readLong() != sequence
+                    || fields.readLong() != manifest.baseSequence || fields.readInt() != manifest.pageSize) {
+                throw new IOException("Segment " + sequence + " does not belong to this backup");
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(header, 0, header.length);
+
+            // GZIPInputStream stops at the end of the gzip member and ignores the trailer, which is read below
+            GZIPInputStream gzip = new GZIPInputStream(fileIn, 64 * 1024);
+            DataInputStream records = new DataInputStream(new BufferedInputStream(new CheckedInputStream(gzip, checksum)));
+            int pages = 0;
+            int pageNumber;
+            while ((pageNumber = records.readInt()) != 0) {
+                records.readFully(page);
+                out.seek((long) (pageNumber - 1) * manifest.pageSize);
+                out.write(page);
+                pages++;
+            }
+            // Drain the gzip stream so the checksum covers everything and the trailer position is known
+            while (records.read() != -1) {
+                // Nothing after the end marker
+            }
+            long trailerOffset = segment.length() - 12;
+            try (RandomAccessFile trailer = new RandomAccessFile(segment, "r")) {
+                trailer.seek(trailerOffset);
+                if (trailer.readInt() != pages || trailer.readLong() != checksum.getValue()) {
+                    throw new IOException("Checksum mismatch in backup segment " + sequence);
+                }
+            }
+        } catch (EOFException | ZipException e) {
+            throw new IOException("Backup segment " + sequence + " is truncated or corrupt", e);
+        }
+    }
+
+    /**
+     * Reads the manifest of the last backup, or null if there is none or it is damaged.
+     */
+    Manifest readManifest() {
+        File file = new File(backupDir, MANIFEST_FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+        CRC32 checksum = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(file)), checksum))) {
+            if (in.readInt() != MANIFEST_MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            long sequence = in.readLong();
+            long baseSequence = in.readLong();
+            int pageSize = in.readInt();
+            int pageCount = in.readInt();
+            long baseBytes = in.readLong();
+            long chainBytes = in.readLong();
+            long[] fingerprints = new long[pageCount];
+            for (int i = 0; i < pageCount; i++) {
+                fingerprints[i] = in.readLong();
+            }
+            long expected = checksum.getValue();
+            if (new DataInputStream(in).readLong() != expected) {
+                return null;
+            }
+            return new Manifest(sequence, baseSequence, pageSize, pageCount, baseBytes, chainBytes, fingerprints);
+        } catch (IOException e) {
+            // A damaged manifest only costs a full backup next time
+            return null;
+        }
+    }
+
+    private void writeManifest(Manifest manifest) throws IOException {
+        File file = new File(backupDir, MANIFEST_FILE_NAME);
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        CRC32 checksum = new CRC32();
+        try (FileOutputStream fileOut = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fileOut, checksum)));
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(manifest.sequence);
+            out.writeLong(manifest.baseSequence);
+            out.writeInt(manifest.pageSize);
+            out.writeInt(manifest.pageCount);
+            out.writeLong(manifest.baseBytes);
+            out.writeLong(manifest.chainBytes);
+            for (long fingerprint : manifest.fingerprints) {
+                out.writeLong(fingerprint);
+            }
+            out.flush();
+            new DataOutputStream(fileOut).writeLong(checksum.getValue());
+            fileOut.getFD().sync();
+        }
+        renameOrThrow(temp, file);
+    }
+
+    private void deleteSegmentsBefore(long sequence) {
+        File[] files = backupDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    long segmentSequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length()));
+                    if (segmentSequence < sequence) {
+                        file.delete();
+                    }
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours
+                }
+            }
+        }
+    }
+
+    File segmentFile(long sequence) {
+        return new File(backupDir, SEGMENT_PREFIX + sequence + SEGMENT_SUFFIX);
+    }
+
+    private static byte[] segmentHeader(long sequence, long baseSequence, int pageSize, int pageCount) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SEGMENT_MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(sequence);
+        out.writeLong(baseSequence);
+        out.writeInt(pageSize);
+        out.writeInt(pageCount);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the page size from the SQLite file header (big-endian at offset 16, 1 means 65536).
+     */
+    static int readPageSize(File databaseFile) throws IOException {
+        byte[] header = new byte[SQLITE_HEADER_SIZE];
+        try (FileInputStream in = new FileInputStream(databaseFile)) {
+            readPage(in, header);
+        }
+        int pageSize = ((header[16] & 0xFF) << 8) | (header[17] & 0xFF);
+        if (pageSize == 1) {
+            return 65536;
+        }
+        if (pageSize < 512 || Integer.bitCount(pageSize) != 1) {
+            throw new IOException("Not a SQLite database: " + databaseFile);
+        }
+        return pageSize;
+    }
+
+    private static void readPage(InputStream in, byte[] page) throws IOException {
+        int offset = 0;
+        while (offset < page.length) {
+            int read = in.read(page, offset, page.length - offset);
+            if (read == -1) {
+                throw new EOFException("Database file ended mid-page");
+            }
+            offset += read;
+        }
+    }
+
+    private static void renameOrThrow(File from, File to) throws IOException {
+        if (!from.renameTo(to)) {
+            from.delete();
+            throw new IOException("Cannot move " + from + " to " + to);
+        }
+    }
+
+    /**
+     * 64-bit page fingerprint built from CRC32 and Adler32, both hardware-accelerated or native,
+     * so diffing a large file costs little more than reading it.
+     */
+    private static final class PageFingerprint {
+        private final CRC32 crc = new CRC32();
+        private final Adler32 adler = new Adler32();
+
+        long of(byte[] page) {
+            crc.reset();
+            adler.reset();
+            crc.update(page, 0, page.length);
+            adler.update(page, 0, page.length);
+            return (crc.getValue() << 32) | adler.getValue();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.fitnesstracker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Materializes plan occurrences for a visible date window only. Nothing is stored until an
+ * occurrence is logged, at which point it becomes a regular row in the workouts table.
+ */
+public final class PlanSchedule {
+
+    private PlanSchedule() {
+    }
+
+    /**
+     * A single scheduled session of a plan.
+     */
+    public static final class Occurrence implements Comparable<Occurrence> {
+        public final WorkoutPlan plan;
+        public final int day;
+        public final boolean logged;
+
+        Occurrence(WorkoutPlan plan, int day, boolean logged) {
+            this.plan = plan;
+            this.day = day;
+            this.logged = logged;
+        }
+
+        @Override
+        public int compareTo(Occurrence other) {
+            if (day != other.day) {
+                return Integer.compare(day, other.day);
+            }
+            return Long.compare(plan.getId(), other.plan.getId());
+        }
+    }
+
+    /**
+     * Expands every plan within [fromDay, toDay] and merges in which occurrences were already logged.
+     *
+     * @param plans  The plans to expand
+     * @param logged Keys from {@link #occurrenceKey} of the occurrences that have workout rows
+     * @return The occurrences sorted by day, then plan
+     */
+    public static List<Occurrence> expand(List<WorkoutPlan> plans, int fromDay, int toDay, Set<Long> logged) {
+        List<Occurrence> occurrences = new ArrayList<>();
+        if (toDay < fromDay) {
+            return occurrences;
+        }
+
+        int[] days = new int[toDay - fromDay + 1]; // Reused for every plan
+        for (WorkoutPlan plan : plans) {
+            int count = plan.getRule().expand(fromDay, toDay, days);
+            for (int i = 0; i < count; i++) {
+                occurrences.add(new Occurrence(plan, days[i], logged.contains(occurrenceKey(plan.getId(), days[i]))));
+            }
+        }
+        Collections.sort(occurrences);
+        return occurrences;
+    }
+
+    /**
+     * Packs a plan ID and epoch day into a single key.
+     */
+    public static long occurrenceKey(long planId, int day) {
+        return (planId << 32) | (day & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.fitnesstracker;
+
+import java.util.TimeZone;
+
+/**
+ * Compact weekly recurrence rule, e.g. "Mon/Wed/Fri every week for 12 weeks".
+ * Days are epoch days (days since 1970-01-01) so rules can be stored as four integers and
+ * expanded for any date window without allocating or touching the database.
+ */
+public final class RecurrenceRule {
+
+    // Weekday bits, Monday is bit 0
+    public static final int MONDAY = 1;
+    public static final int TUESDAY = 1 << 1;
+    public static final int WEDNESDAY = 1 << 2;
+    public static final int THURSDAY = 1 << 3;
+    public static final int FRIDAY = 1 << 4;
+    public static final int SATURDAY = 1 << 5;
+    public static final int SUNDAY = 1 << 6;
+
+    // Longest plan that can be created, ten years
+    public static final int MAX_WEEKS = 520;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final int startDay;
+    private final int endDay; // Inclusive
+    private final int weekdayMask;
+    private final int intervalWeeks;
+
+    /**
+     * @param startDay      First day of the plan (epoch day)
+     * @param endDay        Last day of the plan, inclusive (epoch day)
+     * @param weekdayMask   Combination of the weekday bits the workout repeats on
+     * @param intervalWeeks Repeat every n-th week, counted from the week containing startDay
+     */
+    public RecurrenceRule(int startDay, int endDay, int weekdayMask, int intervalWeeks) {
+        if (endDay < startDay) {
+            throw new IllegalArgumentException("endDay must not be before startDay");
+        }
+        if ((weekdayMask & 0x7F) == 0 || (weekdayMask & ~0x7F) != 0) {
+            throw new IllegalArgumentException("weekdayMask must select at least one weekday");
+        }
+        if (intervalWeeks < 1) {
+            throw new IllegalArgumentException("intervalWeeks must be at least 1");
+        }
+        this.startDay = startDay;
+        this.endDay = endDay;
+        this.weekdayMask = weekdayMask;
+        this.intervalWeeks = intervalWeeks;
+    }
+
+    /**
+     * Creates a rule repeating every week for the given number of weeks.
+     *
+     * @param weeks Between 1 and {@link #MAX_WEEKS}
+     */
+    public static RecurrenceRule weekly(int startDay, int weeks, int weekdayMask) {
+        if (weeks < 1 || weeks > MAX_WEEKS) {
+            throw new IllegalArgumentException("weeks must be between 1 and " + MAX_WEEKS);
+        }
+        long endDay = startDay + weeks * 7L - 1;
+        if (endDay > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("endDay is out of range");
+        }
+        return new RecurrenceRule(startDay, (int) endDay, weekdayMask, 1);
+    }
+
+    public int getStartDay() {
+        return startDay;
+    }
+
+    public int getEndDay() {
+        return endDay;
+    }
+
+    public int getWeekdayMask() {
+        return weekdayMask;
+    }
+
+    public int getIntervalWeeks() {
+        return intervalWeeks;
+    }
+
+    /**
+     * Returns true if the rule produces an occurrence on the given day.
+     */
+    public boolean occursOn(int day) {
+        if (day < startDay || day > endDay || (weekdayMask & (1 << dayOfWeek(day))) == 0) {
+            return false;
+        }
+        int week = (day - weekStart(startDay)) / 7;
+        return week % intervalWeeks == 0;
+    }
+
+    /**
+     * Writes every occurrence within [fromDay, toDay] into {@code out} in ascending order.
+     *
+     * @param fromDay First day of the window (epoch day)
+     * @param toDay   Last day of the window, inclusive (epoch day)
+     * @param out     Receives the occurrence days; expansion stops when it is full
+     * @return The number of days written
+     */
+    public int expand(int fromDay, int toDay, int[] out) {
+        int from = Math.max(fromDay, startDay);
+        int to = Math.min(toDay, endDay);
+        if (from > to || out.length == 0) {
+            return 0;
+        }
+
+        int firstWeekStart = weekStart(startDay);
+        // Jump straight to the first active week at or before the window instead of walking from the start
+        int week = (weekStart(from) - firstWeekStart) / 7;
+        week -= week % intervalWeeks;
+
+        int count = 0;
+        for (int monday = firstWeekStart + week * 7; monday <= to; monday += intervalWeeks * 7) {
+            for (int weekday = 0; weekday < 7; weekday++) {
+                int day = monday + weekday;
+                if (day > to) {
+                    return count;
+                }
+                if (day >= from && (weekdayMask & (1 << weekday)) != 0) {
+                    out[count++] = day;
+                    if (count == out.length) {
+                        return count;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the day of week for an epoch day, Monday = 0 ... Sunday = 6.
+     */
+    public static int dayOfWeek(int epochDay) {
+        // 1970-01-01 was a Thursday
+        return Math.floorMod(epochDay + 3, 7);
+    }
+
+    /**
+     * Returns the Monday on or before the given epoch day.
+     */
+    public static int weekStart(int epochDay) {
+        return epochDay - dayOfWeek(epochDay);
+    }
+
+    /**
+     * Returns today's epoch day in the device's time zone.
+     */
+    public static int today() {
+        long now = System.currentTimeMillis();
+        return (int) Math.floorDiv(now + TimeZone.getDefault().getOffset(now), MILLIS_PER_DAY);
+    }
+
+    /**
+     * Returns midnight UTC of the given epoch day, for formatting with a UTC date formatter.
+     */
+    public static long toUtcMillis(int epochDay) {
+        return epochDay * MILLIS_PER_DAY;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.view.View;
+import androidx.core.content.ContextCompat;
+
+/**
+ * Draws a {@link WorkoutSeries.Series} as a line over a day range. The series is expected to have
+ * at most one point per pixel of {@link #getPlotWidth()}, so drawing cost does not grow with history.
+ */
+public class SeriesChartView extends View {
+
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint axisPaint = new Paint();
+    private final Path path = new Path();
+
+    private WorkoutSeries.Series series;
+    private int fromDay;
+    private int toDay;
+
+    public SeriesChartView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeWidth(2 * getResources().getDisplayMetrics().density);
+        linePaint.setColor(ContextCompat.getColor(getContext(), R.color.primary_color));
+        axisPaint.setColor(0xFFBDBDBD);
+    }
+
+    /**
+     * Returns the number of pixels available for data points.
+     */
+    public int getPlotWidth() {
+        return Math.max(1, getWidth() - getPaddingLeft() - getPaddingRight());
+    }
+
+    /**
+     * Shows a series covering [fromDay, toDay].
+     */
+    public void setSeries(WorkoutSeries.Series series, int fromDay, int toDay) {
+        this.series = series;
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        float left = getPaddingLeft();
+        float bottom = getHeight() - getPaddingBottom();
+        float width = getPlotWidth();
+        float height = bottom - getPaddingTop();
+        canvas.drawLine(left, bottom, left + width, bottom, axisPaint);
+        if (series == null || series.size() == 0) {
+            return;
+        }
+
+        float max = 0;
+        for (float value : series.y) {
+            max = Math.max(max, value);
+        }
+        float xScale = toDay > fromDay ? width / (toDay - fromDay) : 0;
+        float yScale = max > 0 ? height / max : 0;
+
+        path.rewind();
+        for (int i = 0; i < series.size(); i++) {
+            float x = left + (series.x[i] - fromDay) * xScale;
+            float y = bottom - series.y[i] * yScale;
+            if (i == 0) {
+                path.moveTo(x, y);
+            } else {
+                path.lineTo(x, y);
+            }
+        }
+        if (series.size() == 1) {
+            canvas.drawPoint(left + (series.x[0] - fromDay) * xScale, bottom - series.y[0] * yScale, linePaint);
+        } else {
+            canvas.drawPath(path, linePaint);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.fitnesstracker;
+
+/**
+ * Downsamples a dense daily series into at most one (LTTB) or two (min/max) points per bucket.
+ * Buckets are aligned to multiples of the bucket size in absolute days, so the points chosen for
+ * a bucket do not depend on where a chart's viewport starts.
+ */
+final class SeriesDownsampler {
+
+    private SeriesDownsampler() {
+    }
+
+    /**
+     * Returns the number of aligned buckets of {@code bucketDays} that cover [firstDay, lastDay].
+     */
+    static int bucketCount(int firstDay, int lastDay, int bucketDays) {
+        return Math.floorDiv(lastDay, bucketDays) - Math.floorDiv(firstDay, bucketDays) + 1;
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets: keeps the first and last point, and from every bucket in between the
+     * point forming the largest triangle with the previously kept point and the next bucket's average.
+     * Preserves peaks and dips that averaging would flatten.
+     *
+     * @param values   One value per day, starting at {@code firstDay}
+     * @param length   Number of days in {@code values}
+     * @param outX     Receives the day of each kept point, needs room for one point per bucket
+     * @param outY     Receives the value of each kept point
+     * @return The number of points written
+     */
+    static int lttb(float[] values, int length, int firstDay, int bucketDays, float[] outX, float[] outY) {
+        if (length == 0) {
+            return 0;
+        }
+        int buckets = bucketCount(firstDay, firstDay + length - 1, bucketDays);
+        if (bucketDays == 1 || buckets <= 2) {
+            return copyOrMinMaxFallback(values, length, firstDay, bucketDays, outX, outY, buckets);
+        }
+
+        int count = 0;
+        int kept = 0; // Index of the previously kept point, the first point is always kept
+        outX[count] = firstDay;
+        outY[count++] = values[0];
+        for (int bucket = 1; bucket < buckets - 1; bucket++) {
+            int chosen = lttbPoint(values, length, firstDay, bucketDays, bucket, kept);
+            outX[count] = firstDay + chosen;
+            outY[count++] = values[chosen];
+            kept = chosen;
+        }
+        outX[count] = firstDay + length - 1;
+        outY[count++] = values[length - 1];
+        return count;
+    }
+
+    /**
+     * Returns the index of the point LTTB keeps from a bucket between the first and the last one.
+     *
+     * @param kept Index of the point kept from the previous bucket
+     */
+    static int lttbPoint(float[] values, int length, int firstDay, int bucketDays, int bucket, int kept) {
+        int start = bucketStart(bucket, firstDay, bucketDays);
+        int end = bucketStart(bucket + 1, firstDay, bucketDays);
+        int nextEnd = Math.min(length, bucketStart(bucket + 2, firstDay, bucketDays));
+
+        // Average of the next bucket is the triangle's third corner
+        float averageX = 0;
+        float averageY = 0;
+        for (int i = end; i < nextEnd; i++) {
+            averageX += i;
+            averageY += values[i];
+        }
+        int nextSize = nextEnd - end;
+        averageX /= nextSize;
+        averageY /= nextSize;
+
+        float keptX = kept;
+        float keptY = values[kept];
+        float maxArea = -1;
+        int chosen = start;
+        for (int i = start; i < end; i++) {
+            float area = Math.abs((keptX - averageX) * (values[i] - keptY) - (keptX - i) * (averageY - keptY));
+            if (area > maxArea) {
+                maxArea = area;
+                chosen = i;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Keeps the minimum and maximum of every bucket, in day order, so no extreme is lost.
+     *
+     * @param outX Receives the day of each kept point, needs room for two points per bucket
+     * @param outY Receives the value of each kept point
+     * @return The number of points written
+     */
+    static int minMax(float[] values, int length, int firstDay, int bucketDays, float[] outX, float[] outY) {
+        if (length == 0) {
+            return 0;
+        }
+        int buckets = bucketCount(firstDay, firstDay + length - 1, bucketDays);
+        int count = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            count = minMaxBucket(values, length, firstDay, bucketDays, bucket, outX, outY, count);
+        }
+        return count;
+    }
+
+    /**
+     * Writes the minimum and maximum of one bucket at {@code count}, or a single point if they are the same day.
+     *
+     * @return The number of points in {@code outX} afterwards
+     */
+    static int minMaxBucket(float[] values, int length, int firstDay, int bucketDays, int bucket,
+                            float[] outX, float[] outY, int count) {
+        int start = Math.max(0, bucketStart(bucket, firstDay, bucketDays));
+        int end = Math.min(length, bucketStart(bucket + 1, firstDay, bucketDays));
+        int min = start;
+        int max = start;
+        for (int i = start + 1; i < end; i++) {
+            if (values[i] < values[min]) {
+                min = i;
+            }
+            if (values[i] > values[max]) {
+                max = i;
+            }
+        }
+        int first = Math.min(min, max);
+        int second = Math.max(min, max);
+        outX[count] = firstDay + first;
+        outY[count++] = values[first];
+        if (second != first) {
+            outX[count] = firstDay + second;
+            outY[count++] = values[second];
+        }
+        return count;
+    }
+
+    /**
+     * Returns the index of the first day of an aligned bucket; bucket 0 starts at index 0.
+     */
+    static int bucketStart(int bucket, int firstDay, int bucketDays) {
+        return bucket == 0 ? 0 : (Math.floorDiv(firstDay, bucketDays) + bucket) * bucketDays - firstDay;
+    }
+
+    /**
+     * Returns the aligned bucket that holds the day at {@code index}.
+     */
+    static int bucketOf(int index, int firstDay, int bucketDays) {
+        return Math.floorDiv(firstDay + index, bucketDays) - Math.floorDiv(firstDay, bucketDays);
+    }
+
+    private static int copyOrMinMaxFallback(float[] values, int length, int firstDay, int bucketDays,
+                                            float[] outX, float[] outY, int buckets) {
+        if (bucketDays == 1) {
+            for (int i = 0; i < length; i++) {
+                outX[i] = firstDay + i;
+                outY[i] = values[i];
+            }
+            return length;
+        }
+        // One or two buckets: the first and last point are all LTTB would keep
+        outX[0] = firstDay;
+        outY[0] = values[0];
+        if (buckets == 1 || length == 1) {
+            return 1;
+        }
+        outX[1] = firstDay + length - 1;
+        outY[1] = values[length - 1];
+        return 2;
+    }
+}
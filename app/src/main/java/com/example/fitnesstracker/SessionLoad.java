@@ -0,0 +1,50 @@
+package com.example.fitnesstracker;
+
+/**
+ * Intensity summary of one workout computed by {@link HeartRateZones#analyze}.
+ */
+public final class SessionLoad {
+
+    private final int[] secondsInZone;
+    private final int validSeconds;
+    private final double trimp;
+    private final double averageHr;
+    private final int peakHr;
+
+    SessionLoad(int[] secondsInZone, int validSeconds, double trimp, double averageHr, int peakHr) {
+        this.secondsInZone = secondsInZone;
+        this.validSeconds = validSeconds;
+        this.trimp = trimp;
+        this.averageHr = averageHr;
+        this.peakHr = peakHr;
+    }
+
+    /**
+     * Returns the seconds spent in a zone (0-5).
+     */
+    public int getSecondsInZone(int zone) {
+        return secondsInZone[zone];
+    }
+
+    /**
+     * Returns the seconds with a valid heart-rate sample.
+     */
+    public int getValidSeconds() {
+        return validSeconds;
+    }
+
+    /**
+     * Returns the Banister training impulse, the load added to {@link TrainingLoadEngine}.
+     */
+    public double getTrimp() {
+        return trimp;
+    }
+
+    public double getAverageHr() {
+        return averageHr;
+    }
+
+    public int getPeakHr() {
+        return peakHr;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records queries that run longer than a configurable threshold, together with their
+ * EXPLAIN QUERY PLAN output, in a bounded ring buffer that can be exported.
+ * Queries under the threshold only cost a single comparison. Bound arguments can hold
+ * user data, so only their count is logged or kept.
+ * <p>
+ * Every query on the live database goes through {@link WorkoutDatabaseManager#rawQuery}, pragmas included.
+ * Only reads of a restored backup copy and the one-time encryption migration, which runs before the
+ * manager opens the database, are not logged.
+ */
+public final class SlowQueryLog {
+
+    private static final String TAG = "SlowQueryLog";
+    private static final String EXPORT_FILE_NAME = "slow_queries.json";
+    private static final int DEFAULT_THRESHOLD_MILLIS = 50;
+    private static final int CAPACITY = 64;
+
+    private static volatile long thresholdNanos = DEFAULT_THRESHOLD_MILLIS * 1_000_000L;
+
+    // Ring buffer of the most recent slow queries, guarded by the class lock
+    private static final Entry[] ENTRIES = new Entry[CAPACITY];
+    private static int nextIndex = 0;
+    private static int size = 0;
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * A single slow query captured by the log.
+     */
+    public static final class Entry {
+        public final long timestampMillis;
+        public final String sql;
+        public final int argCount;
+        public final int rowCount;
+        public final long elapsedMicros;
+        public final String queryPlan;
+
+        Entry(long timestampMillis, String sql, int argCount, int rowCount, long elapsedMicros, String queryPlan) {
+            this.timestampMillis = timestampMillis;
+            this.sql = sql;
+            this.argCount = argCount;
+            this.rowCount = rowCount;
+            this.elapsedMicros = elapsedMicros;
+            this.queryPlan = queryPlan;
+        }
+    }
+
+    /**
+     * Sets the threshold above which a query is considered slow.
+     *
+     * @param millis The threshold in milliseconds, 0 logs every query
+     */
+    public static void setThresholdMillis(long millis) {
+        thresholdNanos = Math.max(0, millis) * 1_000_000L;
+    }
+
+    public static long getThresholdMillis() {
+        return thresholdNanos / 1_000_000L;
+    }
+
+    /**
+     * Called after every query has been executed. Logs and captures the plan only if the
+     * query exceeded the threshold.
+     *
+     * @param db           The database the query ran on, used to capture its plan
+     * @param sql          The executed SQL
+     * @param args         The bound selection arguments, may be null
+     * @param rowCount     The number of rows the query returned
+     * @param elapsedNanos The time spent executing the query
+     */
+    public static void onQueryExecuted(SQLiteDatabase db, String sql, String[] args, int rowCount, long elapsedNanos) {
+        if (elapsedNanos < thresholdNanos) {
+            return;
+        }
+
+        long elapsedMicros = elapsedNanos / 1000;
+        int argCount = args != null ? args.length : 0;
+        String plan = explainQueryPlan(db, sql, args);
+        Log.w(TAG, "Slow query (" + elapsedMicros + "us, " + rowCount + " rows): " + sql
+                + " args=" + argCount + "\n" + plan);
+
+        Entry entry = new Entry(System.currentTimeMillis(), sql, argCount, rowCount, elapsedMicros, plan);
+        synchronized (SlowQueryLog.class) {
+            ENTRIES[nextIndex] = entry;
+            nextIndex = (nextIndex + 1) % CAPACITY;
+            if (size < CAPACITY) {
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Returns the captured slow queries, oldest first.
+     */
+    public static List<Entry> getEntries() {
+        synchronized (SlowQueryLog.class) {
+            List<Entry> entries = new ArrayList<>(size);
+            int first = (nextIndex - size + CAPACITY) % CAPACITY;
+            for (int i = 0; i < size; i++) {
+                entries.add(ENTRIES[(first + i) % CAPACITY]);
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Clears all captured slow queries.
+     */
+    public static void clear() {
+        synchronized (SlowQueryLog.class) {
+            Arrays.fill(ENTRIES, null);
+            nextIndex = 0;
+            size = 0;
+        }
+    }
+
+    /**
+     * Builds a JSON array with every captured slow query, oldest first.
+     */
+    public static String toJson() {
+        StringBuilder json = new StringBuilder("[\n");
+        List<Entry> entries = getEntries();
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            json.append("  {\"timestamp\": ").append(entry.timestampMillis)
+                    .append(", \"elapsed_us\": ").append(entry.elapsedMicros)
+                    .append(", \"rows\": ").append(entry.rowCount)
+                    .append(", \"sql\": ").append(quote(entry.sql))
+                    .append(", \"arg_count\": ").append(entry.argCount)
+                    .append(", \"plan\": ").append(quote(entry.queryPlan)).append('}')
+                    .append(i < entries.size() - 1 ? ",\n" : "\n");
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Writes the captured slow queries to the app's files directory.
+     *
+     * @return The export file, or null if it could not be written
+     */
+    public static File export(Context context) {
+        File file = new File(context.getFilesDir(), EXPORT_FILE_NAME);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(toJson().getBytes(StandardCharsets.UTF_8));
+            return file;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to export slow query log", e);
+            return null;
+        }
+    }
+
+    private static String explainQueryPlan(SQLiteDatabase db, String sql, String[] args) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args)) {
+            // The last column is the human readable "detail" on every SQLite version
+            int detailIndex = cursor.getColumnCount() - 1;
+            while (cursor.moveToNext()) {
+                if (plan.length() > 0) {
+                    plan.append('\n');
+                }
+                plan.append(cursor.getString(detailIndex));
+            }
+        } catch (RuntimeException e) {
+            plan.append("EXPLAIN failed: ").append(e.getMessage());
+        }
+        return plan.toString();
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.fitnesstracker;
+
+import android.os.Bundle;
+import android.view.MenuItem;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Logs a strength workout set by set and shows the recent progress of an exercise. Sets are kept
+ * on this device only; the workout itself is synced like any other.
+ */
+public class StrengthSessionActivity extends AppCompatActivity {
+
+    // Days of progress shown for an exercise
+    private static final int PROGRESS_DAYS = 90;
+
+    private EditText etSessionName, etSessionDuration, etExercise, etReps, etWeight;
+    private TextView tvSets;
+    private Button btnSaveSession;
+    private final List<WorkoutSet> sets = new ArrayList<>(); // Sets of the session being logged
+
+    // Epoch days are UTC based, so they are formatted in UTC as well
+    private final SimpleDateFormat dayFormat = new SimpleDateFormat("EEE, MMM d", Locale.getDefault());
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_strength_session);
+
+        // Enable the "Up" button in the app bar
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+        dayFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        // Initialize UI components
+        etSessionName = findViewById(R.id.et_session_name);
+        etSessionDuration = findViewById(R.id.et_session_duration);
+        etExercise = findViewById(R.id.et_exercise);
+        etReps = findViewById(R.id.et_reps);
+        etWeight = findViewById(R.id.et_weight);
+        tvSets = findViewById(R.id.tv_sets);
+        btnSaveSession = findViewById(R.id.btn_save_session);
+
+        Button btnAddSet = findViewById(R.id.btn_add_set);
+        Button btnShowProgress = findViewById(R.id.btn_show_progress);
+        btnAddSet.setOnClickListener(v -> addSet());
+        btnShowProgress.setOnClickListener(v -> showProgress());
+        btnSaveSession.setOnClickListener(v -> saveSession());
+    }
+
+    /**
+     * Adds the entered set to the session. The exercise stays filled in for the next set.
+     */
+    private void addSet() {
+        String exercise = etExercise.getText().toString().trim();
+        String reps = etReps.getText().toString().trim();
+        String weight = etWeight.getText().toString().trim();
+        if (exercise.isEmpty() || reps.isEmpty() || weight.isEmpty()) {
+            Toast.makeText(this, "Please fill in exercise, reps and weight", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        try {
+            sets.add(WorkoutSet.ofKilograms(exercise, Integer.parseInt(reps), Double.parseDouble(weight)));
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException for values the keyboard lets through, such as "."
+            Toast.makeText(this, "Invalid set: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        etReps.setText("");
+        showSets();
+    }
+
+    private void showSets() {
+        if (sets.isEmpty()) {
+            tvSets.setText("No sets yet.");
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < sets.size(); i++) {
+            WorkoutSet set = sets.get(i);
+            text.append(i + 1).append(". ").append(set.exercise).append(": ").append(set.reps).append(" x ")
+                    .append(formatKilograms(set.weightGrams)).append(" kg\n");
+        }
+        tvSets.setText(text.toString().trim());
+    }
+
+    /**
+     * Saves the session with all its sets through the writer queue.
+     */
+    private void saveSession() {
+        String name = etSessionName.getText().toString().trim();
+        String duration = etSessionDuration.getText().toString().trim();
+        if (name.isEmpty() || duration.isEmpty()) {
+            Toast.makeText(this, "Please fill in all fields", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (sets.isEmpty()) {
+            Toast.makeText(this, "Add at least one set", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        btnSaveSession.setEnabled(false);
+        WorkoutWriteCoordinator.getInstance(this)
+                .submit(WorkoutWrite.strengthSession(name, duration, sets))
+                .whenComplete((result, error) -> runOnUiThread(() -> onSaveResult(result, error)));
+    }
+
+    private void onSaveResult(WorkoutWrite.Result result, Throwable error) {
+        if (isFinishing()) {
+            return;
+        }
+        btnSaveSession.setEnabled(true);
+
+        if (error == null && result.status == WorkoutWrite.Status.APPLIED) {
+            Toast.makeText(this, "Session saved!", Toast.LENGTH_SHORT).show();
+            etSessionName.setText("");
+            etSessionDuration.setText("");
+            sets.clear();
+            showSets();
+        } else {
+            Toast.makeText(this, "Error saving session!", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * Shows the daily sets, volume and best estimated one-rep max of the entered exercise.
+     */
+    private void showProgress() {
+        String exercise = etExercise.getText().toString().trim();
+        if (exercise.isEmpty()) {
+            Toast.makeText(this, "Please enter an exercise", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        int today = RecurrenceRule.today();
+        ExerciseProgress progress = WorkoutDatabaseManager.getInstance(this)
+                .getExerciseProgress(exercise, today - PROGRESS_DAYS + 1, today);
+
+        StringBuilder message = new StringBuilder();
+        if (progress.size() == 0) {
+            message.append("No sets logged in the last ").append(PROGRESS_DAYS).append(" days.");
+        } else {
+            message.append("Best estimated 1RM: ").append(formatKilograms(progress.getBestOneRepMax())).append(" kg\n")
+                    .append("Total volume: ").append(progress.getTotalVolume() / 1000).append(" kg\n");
+            for (int i = progress.size() - 1; i >= 0; i--) {
+                message.append('\n').append(dayFormat.format(new Date(RecurrenceRule.toUtcMillis(progress.days[i]))))
+                        .append(": ").append(progress.sets[i]).append(" sets, ")
+                        .append(progress.volumes[i] / 1000).append(" kg, 1RM ")
+                        .append(formatKilograms(progress.oneRepMaxes[i])).append(" kg");
+            }
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle(progress.exercise)
+                .setMessage(message.toString())
+                .setPositiveButton("OK", null)
+                .show();
+    }
+
+    private static String formatKilograms(long grams) {
+        return grams % 1000 == 0 ? String.valueOf(grams / 1000) : String.format(Locale.getDefault(), "%.1f", grams / 1000.0);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            onBackPressed();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.fitnesstracker;
 
+import android.content.Intent;
 import android.os.Bundle;
 import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
@@ -10,6 +11,14 @@ public class SummaryActivity extends AppCompatActivity {
     private TextView tvTotalWorkouts; // TextView for total workouts
     private TextView tvTotalDuration; // TextView for total duration
     private TextView tvMostFrequentType; // TextView for most frequent workout type
+    private TextView tvChartRange; // Tapping cycles through the chart ranges
+    private SeriesChartView chartDuration;
+    private SeriesChartView chartFrequency;
+
+    // Chart ranges in days, 0 shows the whole history
+    private static final int[] CHART_RANGES = {30, 365, 0};
+    private static final String[] CHART_RANGE_LABELS = {"Last 30 days", "Last year", "All time"};
+    private int chartRange;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -25,9 +34,26 @@ public class SummaryActivity extends AppCompatActivity {
         tvTotalWorkouts = findViewById(R.id.tv_total_workouts);
         tvTotalDuration = findViewById(R.id.tv_total_duration);
         tvMostFrequentType = findViewById(R.id.tv_most_frequent_type);
+        tvChartRange = findViewById(R.id.tv_chart_range);
+        chartDuration = findViewById(R.id.chart_duration);
+        chartFrequency = findViewById(R.id.chart_frequency);
+
+        // Long-press the totals to open the performance metrics debug screen
+        tvTotalWorkouts.setOnLongClickListener(v -> {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
+        });
+
+        tvChartRange.setOnClickListener(v -> {
+            chartRange = (chartRange + 1) % CHART_RANGES.length;
+            loadCharts();
+        });
 
         // Load and display summary data
         loadSummary();
+
+        // The charts need their width, which is known once they are laid out
+        chartDuration.post(this::loadCharts);
     }
 
     /**
@@ -35,17 +61,51 @@ public class SummaryActivity extends AppCompatActivity {
      * Displays total workouts, total duration, and the most frequent workout type.
      */
     private void loadSummary() {
-        // Access the database to retrieve summary information
-        WorkoutDatabaseManager dbManager = new WorkoutDatabaseManager(this);
+        long start = WorkoutMetrics.begin("screen.summary.load");
+
+        int totalWorkouts;
+        int totalDuration;
+        String mostFrequentType;
+
+        HistoryWarmCache.Snapshot warm = HistoryWarmCache.get();
+        if (warm != null) {
+            // Use the totals prefetched at app start
+            totalWorkouts = warm.totalWorkouts;
+            totalDuration = warm.totalDuration;
+            mostFrequentType = warm.mostFrequentType;
+        } else {
+            // Access the database to retrieve summary information
+            WorkoutDatabaseManager dbManager = WorkoutDatabaseManager.getInstance(this);
 
-        int totalWorkouts = dbManager.getTotalWorkouts(); // Get total number of workouts
-        int totalDuration = dbManager.getTotalDuration(); // Get total workout duration in minutes
-        String mostFrequentType = dbManager.getMostFrequentWorkoutType(); // Get the most frequent workout type
+            totalWorkouts = dbManager.getTotalWorkouts(); // Get total number of workouts
+            totalDuration = dbManager.getTotalDuration(); // Get total workout duration in minutes
+            mostFrequentType = dbManager.getMostFrequentWorkoutType(); // Get the most frequent workout type
+        }
 
         // Update the TextViews with the retrieved data
         tvTotalWorkouts.setText("Total Workouts: " + totalWorkouts);
         tvTotalDuration.setText("Total Duration: " + totalDuration + " minutes");
         tvMostFrequentType.setText("Most Frequent Type: " + (mostFrequentType != null ? mostFrequentType : "None"));
+
+        WorkoutMetrics.end("screen.summary.load", start);
+    }
+
+    /**
+     * Loads the duration and frequency charts for the selected range, with one point per pixel at most.
+     * Minutes per day keeps its shape with LTTB; workouts per day keeps every peak with min/max buckets.
+     */
+    private void loadCharts() {
+        WorkoutDatabaseManager dbManager = WorkoutDatabaseManager.getInstance(this);
+        int toDay = RecurrenceRule.today();
+        int fromDay = CHART_RANGES[chartRange] > 0
+                ? toDay - CHART_RANGES[chartRange] + 1
+                : Math.min(dbManager.getFirstSeriesDay(), toDay);
+
+        tvChartRange.setText(CHART_RANGE_LABELS[chartRange]);
+        chartDuration.setSeries(dbManager.getSeries(WorkoutSeries.Metric.DURATION, WorkoutSeries.Downsampling.LTTB,
+                fromDay, toDay, chartDuration.getPlotWidth()), fromDay, toDay);
+        chartFrequency.setSeries(dbManager.getSeries(WorkoutSeries.Metric.COUNT, WorkoutSeries.Downsampling.MIN_MAX,
+                fromDay, toDay, chartFrequency.getPlotWidth()), fromDay, toDay);
     }
 
     /**
@@ -0,0 +1,93 @@
+package com.example.fitnesstracker;
+
+import java.util.Map;
+
+/**
+ * One entry of the sync change log: the full state of a workout right after a local write,
+ * or a remote version of it received on pull. Changes carry the whole row rather than a diff,
+ * so applying one twice, or out of order under last-write-wins, leaves the same result.
+ */
+public final class SyncChange {
+
+    // Operations recorded in the outbox
+    public static final String OP_INSERT = "insert";
+    public static final String OP_UPDATE = "update";
+    public static final String OP_COMPLETE = "complete";
+    public static final String OP_DELETE = "delete";
+    public static final String OP_RESTORE = "restore";
+
+    public final long seq; // Outbox sequence number, 0 for remote changes
+    public final String op;
+    public final String uuid;
+    public final String name;
+    public final String duration;
+    public final String type;
+    public final boolean completed;
+    public final long deletedAt; // 0 while the workout is live
+    public final long updatedAt;
+    public final int day; // Epoch day the workout was done on, 0 if unknown
+
+    public SyncChange(long seq, String op, String uuid, String name, String duration, String type,
+                      boolean completed, long deletedAt, long updatedAt) {
+        this(seq, op, uuid, name, duration, type, completed, deletedAt, updatedAt, 0);
+    }
+
+    public SyncChange(long seq, String op, String uuid, String name, String duration, String type,
+                      boolean completed, long deletedAt, long updatedAt, int day) {
+        this.seq = seq;
+        this.op = op;
+        this.uuid = uuid;
+        this.name = name;
+        this.duration = duration;
+        this.type = type;
+        this.completed = completed;
+        this.deletedAt = deletedAt;
+        this.updatedAt = updatedAt;
+        this.day = day;
+    }
+
+    public boolean isDeleted() {
+        return deletedAt != 0;
+    }
+
+    /**
+     * Returns true if this change should replace a local row last written at {@code localUpdatedAt}.
+     * Ties keep the local row, so re-applying our own change after a pull is a no-op.
+     */
+    public boolean winsOver(long localUpdatedAt) {
+        return updatedAt > localUpdatedAt;
+    }
+
+    void appendJson(StringBuilder json) {
+        json.append("{\"seq\": ").append(seq)
+                .append(", \"op\": ").append(SyncJson.quote(op))
+                .append(", \"uuid\": ").append(SyncJson.quote(uuid))
+                .append(", \"name\": ").append(SyncJson.quote(name))
+                .append(", \"duration\": ").append(SyncJson.quote(duration))
+                .append(", \"type\": ").append(SyncJson.quote(type))
+                .append(", \"completed\": ").append(completed)
+                .append(", \"deleted_at\": ").append(deletedAt != 0 ? String.valueOf(deletedAt) : "null")
+                .append(", \"updated_at\": ").append(updatedAt)
+                .append(", \"day\": ").append(day != 0 ? String.valueOf(day) : "null")
+                .append('}');
+    }
+
+    static SyncChange fromJson(Map<String, Object> json) {
+        Object uuid = json.get("uuid");
+        if (!(uuid instanceof String)) {
+            throw new IllegalArgumentException("Change without uuid: " + json);
+        }
+        return new SyncChange(0, stringOr(json.get("op"), OP_UPDATE), (String) uuid,
+                stringOr(json.get("name"), ""), stringOr(json.get("duration"), "0"), stringOr(json.get("type"), ""),
+                Boolean.TRUE.equals(json.get("completed")), longOr(json.get("deleted_at")), longOr(json.get("updated_at")),
+                (int) longOr(json.get("day")));
+    }
+
+    private static String stringOr(Object value, String fallback) {
+        return value instanceof String ? (String) value : fallback;
+    }
+
+    private static long longOr(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+}
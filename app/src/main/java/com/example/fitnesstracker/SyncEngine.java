@@ -0,0 +1,275 @@
+package com.example.fitnesstracker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pushes the outbox to the sync server and pulls remote changes back.
+ *
+ * <p>Protocol, relative to the server's base URL:
+ * <ul>
+ *     <li>{@code POST /sync/push}: gzip-compressed JSON {@code {"device_id", "changes": [...]}} with an
+ *     {@code Idempotency-Key} header. The key is derived from the batch's outbox sequence range, so a
+ *     batch re-sent after a timeout or crash carries the same key and the server can ignore it.</li>
+ *     <li>{@code GET /sync/changes?since=<cursor>&limit=<n>}: returns
+ *     {@code {"cursor", "has_more", "changes": [...]}}, merged locally with last-write-wins.</li>
+ * </ul>
+ * Transient failures (I/O errors, 408, 429 and 5xx) are retried with exponential backoff and jitter;
+ * the outbox is only acknowledged after the server accepted a batch. Only workout rows are synced; the
+ * sets of strength workouts stay on the device that logged them.
+ */
+public final class SyncEngine {
+
+    static final int PUSH_BATCH_SIZE = 200;
+    static final int PULL_PAGE_SIZE = 500;
+    static final int MAX_ATTEMPTS = 5;
+    static final long BASE_BACKOFF_MILLIS = 1_000;
+    static final long MAX_BACKOFF_MILLIS = 60_000;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 15_000;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    private final SyncStore store;
+    private final String baseUrl;
+    private final Sleeper sleeper;
+    private final Random random = new Random();
+
+    /**
+     * Waits between retries, replaced in tests.
+     */
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    private interface HttpCall<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * Outcome of one sync run.
+     */
+    public static final class Result {
+        public final boolean success;
+        public final boolean retryable; // Only meaningful when the run failed
+        public final int pushed;
+        public final int pulled;
+        public final String error;
+
+        Result(boolean success, boolean retryable, int pushed, int pulled, String error) {
+            this.success = success;
+            this.retryable = retryable;
+            this.pushed = pushed;
+            this.pulled = pulled;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Thrown for a non-2xx response.
+     */
+    static final class HttpStatusException extends IOException {
+        final int status;
+        final long retryAfterMillis;
+
+        HttpStatusException(int status, long retryAfterMillis) {
+            super("HTTP " + status);
+            this.status = status;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        boolean isRetryable() {
+            return status == 408 || status == 429 || status >= 500;
+        }
+    }
+
+    public SyncEngine(SyncStore store, String baseUrl) {
+        this(store, baseUrl, Thread::sleep);
+    }
+
+    SyncEngine(SyncStore store, String baseUrl, Sleeper sleeper) {
+        this.store = store;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Pushes every pending change, then pulls until the server has nothing newer.
+     */
+    public Result sync() {
+        int pushed = 0;
+        int pulled = 0;
+        try {
+            String deviceId = store.getSyncDeviceId();
+            List<SyncChange> batch;
+            while (!(batch = store.getPendingChanges(PUSH_BATCH_SIZE)).isEmpty()) {
+                long firstSeq = batch.get(0).seq;
+                long lastSeq = batch.get(batch.size() - 1).seq;
+                byte[] body = gzip(SyncJson.encodePush(deviceId, batch));
+                String idempotencyKey = deviceId + ":" + firstSeq + "-" + lastSeq;
+
+                withRetries(() -> {
+                    post("/sync/push", body, idempotencyKey);
+                    return null;
+                });
+                store.acknowledgeChanges(lastSeq);
+                pushed += batch.size();
+            }
+
+            boolean hasMore = true;
+            while (hasMore) {
+                long cursor = store.getPullCursor();
+                Map<String, Object> page = withRetries(() -> get("/sync/changes?since=" + cursor + "&limit=" + PULL_PAGE_SIZE));
+                List<SyncChange> changes = parseChanges(page.get("changes"));
+                Object nextCursor = page.get("cursor");
+                store.applyRemoteChanges(changes, nextCursor instanceof Number ? ((Number) nextCursor).longValue() : cursor);
+                pulled += changes.size();
+                hasMore = Boolean.TRUE.equals(page.get("has_more")) && !changes.isEmpty();
+            }
+            return new Result(true, false, pushed, pulled, null);
+        } catch (HttpStatusException e) {
+            return new Result(false, e.isRetryable(), pushed, pulled, e.getMessage());
+        } catch (IOException | IllegalArgumentException e) {
+            // Network errors are transient; a malformed response may be fixed by a server deploy
+            return new Result(false, true, pushed, pulled, e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(false, true, pushed, pulled, "Interrupted");
+        }
+    }
+
+    /**
+     * Returns the delay before retry number {@code attempt} (0-based): exponential with "equal jitter",
+     * so concurrent clients spread out while the delay still grows with every attempt.
+     */
+    long backoffMillis(int attempt) {
+        long delay = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+        return delay / 2 + (long) (random.nextDouble() * (delay / 2));
+    }
+
+    private <T> T withRetries(HttpCall<T> call) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return call.call();
+            } catch (IOException e) {
+                boolean retryable = !(e instanceof HttpStatusException) || ((HttpStatusException) e).isRetryable();
+                if (!retryable || attempt + 1 >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                long delay = backoffMillis(attempt);
+                if (e instanceof HttpStatusException) {
+                    // Honour Retry-After, but never wait longer than the backoff cap
+                    delay = Math.min(MAX_BACKOFF_MILLIS, Math.max(delay, ((HttpStatusException) e).retryAfterMillis));
+                }
+                sleeper.sleep(delay);
+            }
+        }
+    }
+
+    private void post(String path, byte[] gzippedBody, String idempotencyKey) throws IOException {
+        HttpURLConnection connection = open(path);
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            connection.setRequestProperty("Idempotency-Key", idempotencyKey);
+            connection.setFixedLengthStreamingMode(gzippedBody.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(gzippedBody);
+            }
+            checkStatus(connection);
+            // Drain the response so the connection can be reused
+            readBody(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> get(String path) throws IOException {
+        HttpURLConnection connection = open(path);
+        try {
+            connection.setRequestProperty("Accept", "application/json");
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            checkStatus(connection);
+            Object json = SyncJson.parse(readBody(connection));
+            if (!(json instanceof Map)) {
+                throw new IllegalArgumentException("Expected a JSON object");
+            }
+            return (Map<String, Object>) json;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        return connection;
+    }
+
+    private static void checkStatus(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        if (status / 100 != 2) {
+            long retryAfterMillis = 0;
+            String retryAfter = connection.getHeaderField("Retry-After");
+            if (retryAfter != null) {
+                try {
+                    retryAfterMillis = Long.parseLong(retryAfter.trim()) * 1000;
+                } catch (NumberFormatException ignored) {
+                    // HTTP-date form, fall back to our own backoff
+                }
+            }
+            throw new HttpStatusException(status, retryAfterMillis);
+        }
+    }
+
+    private static String readBody(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getInputStream();
+        if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+            in = new GZIPInputStream(in);
+        }
+        try (InputStream body = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    static byte[] gzip(String json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<SyncChange> parseChanges(Object json) {
+        List<SyncChange> changes = new ArrayList<>();
+        if (json instanceof List) {
+            for (Object change : (List<Object>) json) {
+                if (change instanceof Map) {
+                    changes.add(SyncChange.fromJson((Map<String, Object>) change));
+                }
+            }
+        }
+        return changes;
+    }
+}
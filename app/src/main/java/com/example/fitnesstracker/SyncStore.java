@@ -0,0 +1,38 @@
+package com.example.fitnesstracker;
+
+import java.util.List;
+
+/**
+ * Local side of the sync protocol: the ordered outbox of pending changes and the pull cursor.
+ * Implemented by {@link WorkoutDatabaseManager}.
+ */
+public interface SyncStore {
+
+    /**
+     * Returns the stable ID of this installation, used to build idempotency keys.
+     */
+    String getSyncDeviceId();
+
+    /**
+     * Returns up to {@code limit} pending changes, oldest first.
+     */
+    List<SyncChange> getPendingChanges(int limit);
+
+    /**
+     * Removes every pending change up to and including {@code seq} once the server has accepted it.
+     */
+    void acknowledgeChanges(long seq);
+
+    /**
+     * Returns the server cursor after the last pulled change, 0 before the first pull.
+     */
+    long getPullCursor();
+
+    /**
+     * Merges remote changes with last-write-wins and stores the new cursor in the same transaction,
+     * so a crash can never skip changes or advance the cursor past unapplied ones.
+     *
+     * @return The number of changes that replaced or created a local row
+     */
+    int applyRemoteChanges(List<SyncChange> changes, long cursor);
+}
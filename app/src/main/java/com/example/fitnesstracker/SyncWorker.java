@@ -0,0 +1,127 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs {@link SyncEngine} against the configured server whenever the outbox has changes and the
+ * device is online. Sync stays off until a server URL is set with {@link #setServerUrl}.
+ */
+public class SyncWorker extends Worker {
+
+    private static final String TAG = "SyncWorker";
+    private static final String PREFS_NAME = "sync";
+    private static final String PREF_SERVER_URL = "server_url";
+    private static final String UNIQUE_WORK_NAME = "workout-sync";
+    private static final String PERIODIC_WORK_NAME = "workout-sync-periodic";
+
+    // Writes within this delay are pushed together
+    private static final long COALESCE_DELAY_SECONDS = 5;
+
+    // Set while a one-time sync is enqueued but has not started, so further writes ride along with it
+    private static final AtomicBoolean QUEUED = new AtomicBoolean(false);
+
+    public SyncWorker(Context context, WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Sets the base URL of the sync server, or clears it to turn sync off.
+     */
+    public static void setServerUrl(Context context, String url) {
+        prefs(context).edit().putString(PREF_SERVER_URL, url).apply();
+        if (url != null && !url.isEmpty()) {
+            schedulePeriodicSync(context);
+            requestSync(context);
+        } else {
+            WorkManager.getInstance(context).cancelUniqueWork(PERIODIC_WORK_NAME);
+        }
+    }
+
+    /**
+     * Schedules a sync shortly after a local write. Calls made while one is waiting to start are coalesced;
+     * calls made while one is running queue another behind it, so writes it already read past are still pushed.
+     */
+    public static void requestSync(Context context) {
+        if (getServerUrl(context) == null || !QUEUED.compareAndSet(false, true)) {
+            return;
+        }
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(SyncWorker.class)
+                .setConstraints(networkConstraints())
+                .setInitialDelay(COALESCE_DELAY_SECONDS, TimeUnit.SECONDS)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(UNIQUE_WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    /**
+     * Schedules an hourly sync that pulls changes made on other devices.
+     */
+    public static void schedulePeriodicSync(Context context) {
+        if (getServerUrl(context) == null) {
+            return;
+        }
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(SyncWorker.class, 1, TimeUnit.HOURS)
+                .setConstraints(networkConstraints())
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(PERIODIC_WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @Override
+    public Result doWork() {
+        // Writes from here on need another run; this one may already be past them
+        QUEUED.set(false);
+        String serverUrl = getServerUrl(getApplicationContext());
+        if (serverUrl == null) {
+            return Result.success();
+        }
+
+        long start = WorkoutMetrics.begin("sync.run");
+        SyncEngine.Result result;
+        try {
+            WorkoutDatabaseManager dbManager = WorkoutDatabaseManager.getInstance(getApplicationContext());
+            result = new SyncEngine(dbManager, serverUrl).sync();
+        } finally {
+            WorkoutMetrics.end("sync.run", start);
+        }
+
+        if (result.success) {
+            Log.i(TAG, "Sync finished, pushed " + result.pushed + ", pulled " + result.pulled);
+            return Result.success();
+        }
+        Log.w(TAG, "Sync failed after pushing " + result.pushed + ": " + result.error);
+        // WorkManager keeps backing off between runs; the outbox survives until the server accepts it
+        return result.retryable ? Result.retry() : Result.failure();
+    }
+
+    private static String getServerUrl(Context context) {
+        String url = prefs(context).getString(PREF_SERVER_URL, null);
+        return url != null && !url.isEmpty() ? url : null;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static Constraints networkConstraints() {
+        return new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+    }
+}
@@ -83,11 +83,14 @@ public class TimerActivity extends AppCompatActivity {
         protected Void doInBackground(Void... voids) {
             // Keep running while not cancelled
             while (isRunning && !isCancelled()) {
+                long tickStart = System.nanoTime();
                 try {
                     Thread.sleep(1000); // Sleep for a second
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                 }
+                // Track how far each tick drifts from the intended second
+                WorkoutMetrics.record("timer.tickDrift", Math.abs((System.nanoTime() - tickStart) / 1000 - 1_000_000));
             }
             return null;
         }
@@ -0,0 +1,95 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Purges soft-deleted workouts in the background once their undo window has passed,
+ * then returns the freed pages with incremental vacuum. Work is split into small batches
+ * so a large delete never holds the database lock for long. Files that still need the one-time
+ * switch to incremental auto-vacuum are left to {@link DatabaseMaintenance}.
+ */
+public final class TombstoneCompactor {
+
+    private static final String TAG = "TombstoneCompactor";
+
+    // How long a deleted workout can still be restored
+    public static final int UNDO_WINDOW_MILLIS = 10_000;
+
+    // How long a purged workout is remembered, so stale changes pulled from other devices cannot bring it back
+    static final long PURGED_RETENTION_MILLIS = 90L * 24 * 60 * 60 * 1000;
+
+    private static final int PURGE_BATCH_SIZE = 500;
+    private static final int VACUUM_PAGES_PER_STEP = 128;
+    private static final int MAX_VACUUM_STEPS = 64;
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AtomicBoolean PENDING = new AtomicBoolean(false);
+
+    private TombstoneCompactor() {
+    }
+
+    /**
+     * Schedules a compaction pass to run after the undo window. Repeated calls while a pass
+     * is pending are coalesced into that pass.
+     */
+    public static void schedule(Context context) {
+        Context appContext = context.getApplicationContext();
+        if (PENDING.compareAndSet(false, true)) {
+            EXECUTOR.schedule(() -> {
+                PENDING.set(false);
+                try {
+                    compact(WorkoutDatabaseManager.getInstance(appContext));
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Compaction failed", e);
+                }
+            }, UNDO_WINDOW_MILLIS + 1_000, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Purges every tombstone older than the undo window in bounded batches and vacuums the freed pages.
+     *
+     * @return The number of purged workouts
+     */
+    public static int compact(WorkoutDatabaseManager dbManager) {
+        long deletedBefore = System.currentTimeMillis() - UNDO_WINDOW_MILLIS;
+
+        int totalPurged = 0;
+        int purged;
+        do {
+            purged = dbManager.purgeTombstones(deletedBefore, PURGE_BATCH_SIZE);
+            totalPurged += purged;
+            Thread.yield(); // Let foreground writers grab the lock between batches
+        } while (purged == PURGE_BATCH_SIZE);
+        dbManager.forgetPurgedWorkouts(System.currentTimeMillis() - PURGED_RETENTION_MILLIS);
+
+        long reclaimed = 0;
+        if (totalPurged > 0) {
+            for (int step = 0; step < MAX_VACUUM_STEPS; step++) {
+                long bytes = dbManager.incrementalVacuum(VACUUM_PAGES_PER_STEP);
+                if (bytes <= 0) {
+                    break;
+                }
+                reclaimed += bytes;
+                Thread.yield();
+            }
+        }
+
+        Log.i(TAG, "Purged " + totalPurged + " workouts, reclaimed " + reclaimed + " bytes");
+        return totalPurged;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.fitnesstracker;
+
+/**
+ * Acute (7-day) and chronic (28-day) training load as exponentially weighted moving averages of
+ * daily load, with lambda = 2 / (N + 1).
+ *
+ * <p>Only the averages as of the latest day are kept. Because the average is linear in the daily
+ * loads, a workout on day d contributes {@code lambda * load * (1 - lambda)^(latest - d)}, so adding,
+ * back-dating or removing a workout is O(1) and never replays history.
+ */
+public final class TrainingLoadEngine {
+
+    public static final int ACUTE_DAYS = 7;
+    public static final int CHRONIC_DAYS = 28;
+
+    private static final double ACUTE_LAMBDA = 2.0 / (ACUTE_DAYS + 1);
+    private static final double CHRONIC_LAMBDA = 2.0 / (CHRONIC_DAYS + 1);
+
+    private int latestDay = Integer.MIN_VALUE; // Day the averages are current for, MIN_VALUE while empty
+    private double acute;
+    private double chronic;
+
+    /**
+     * Adds the load of a workout on the given epoch day.
+     */
+    public void addLoad(int day, double load) {
+        if (latestDay == Integer.MIN_VALUE) {
+            latestDay = day;
+        } else if (day > latestDay) {
+            advanceTo(day);
+        }
+        int age = latestDay - day;
+        acute += ACUTE_LAMBDA * load * decay(1 - ACUTE_LAMBDA, age);
+        chronic += CHRONIC_LAMBDA * load * decay(1 - CHRONIC_LAMBDA, age);
+    }
+
+    /**
+     * Removes the load of a deleted or edited workout previously passed to {@link #addLoad}.
+     */
+    public void removeLoad(int day, double load) {
+        addLoad(day, -load);
+    }
+
+    /**
+     * Returns the acute load as of the given day, which must not be before the latest added workout.
+     */
+    public double getAcuteLoad(int day) {
+        return latestDay == Integer.MIN_VALUE ? 0 : acute * decay(1 - ACUTE_LAMBDA, checkedAge(day));
+    }
+
+    /**
+     * Returns the chronic load as of the given day, which must not be before the latest added workout.
+     */
+    public double getChronicLoad(int day) {
+        return latestDay == Integer.MIN_VALUE ? 0 : chronic * decay(1 - CHRONIC_LAMBDA, checkedAge(day));
+    }
+
+    /**
+     * Returns the acute:chronic workload ratio as of the given day, or 0 without chronic load.
+     */
+    public double getAcuteChronicRatio(int day) {
+        double chronicLoad = getChronicLoad(day);
+        return chronicLoad > 1e-9 ? getAcuteLoad(day) / chronicLoad : 0;
+    }
+
+    public int getLatestDay() {
+        return latestDay;
+    }
+
+    /**
+     * Restores the state saved from {@link #getLatestDay}, {@link #getAcuteLoad} and {@link #getChronicLoad}.
+     */
+    public void restore(int latestDay, double acute, double chronic) {
+        this.latestDay = latestDay;
+        this.acute = acute;
+        this.chronic = chronic;
+    }
+
+    private void advanceTo(int day) {
+        int gap = day - latestDay;
+        acute *= decay(1 - ACUTE_LAMBDA, gap);
+        chronic *= decay(1 - CHRONIC_LAMBDA, gap);
+        latestDay = day;
+    }
+
+    private int checkedAge(int day) {
+        if (day < latestDay) {
+            throw new IllegalArgumentException("Day " + day + " is before the latest workout on " + latestDay);
+        }
+        return day - latestDay;
+    }
+
+    private static double decay(double base, int days) {
+        switch (days) {
+            case 0:
+                return 1;
+            case 1:
+                return base;
+            default:
+                return Math.pow(base, days);
+        }
+    }
+}
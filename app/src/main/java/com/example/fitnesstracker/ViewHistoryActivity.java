@@ -2,7 +2,12 @@ package com.example.fitnesstracker;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.util.Log;
+import android.util.SparseBooleanArray;
+import android.view.ActionMode;
+import android.view.Menu;
 import android.view.MenuItem;
+import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.ListView;
@@ -10,19 +15,42 @@ import android.widget.Spinner;
 import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import com.google.android.material.snackbar.Snackbar;
 import android.view.View;  // Add this import
+import android.view.ViewTreeObserver;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class ViewHistoryActivity extends AppCompatActivity {
 
+    private static final String TAG = "ViewHistoryActivity";
+
+    // Bulk writes run one after another, in the order they were picked
+    private static final ExecutorService BULK_WRITES = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private ListView lvWorkoutHistory; // ListView to display workout history
-    private List<String> workoutList; // Stores the display data for workouts
-    private List<Integer> workoutIds; // Stores the IDs of the workouts
+    private final List<WorkoutRow> workoutRows = new ArrayList<>(); // Refilled in place by every load
+    private WorkoutRowAdapter historyAdapter; // Formats the rows when they are bound
     private Spinner spinnerFilterType, spinnerFilterStatus; // Spinners for filtering workouts
+    private int typeFilterPosition = 0, statusFilterPosition = 0; // Last applied spinner positions
+    private int loadGeneration = 0; // Incremented on every load so stale deferred loads are dropped
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long createStart = System.nanoTime();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_view_history);
 
@@ -35,10 +63,14 @@ public class ViewHistoryActivity extends AppCompatActivity {
         lvWorkoutHistory = findViewById(R.id.lv_workout_history);
         spinnerFilterType = findViewById(R.id.spinner_filter_type);
         spinnerFilterStatus = findViewById(R.id.spinner_filter_status);
-
-        // Populate the workout type filter spinner
-        ArrayAdapter<CharSequence> typeAdapter = ArrayAdapter.createFromResource(this,
-                R.array.workout_types, android.R.layout.simple_spinner_item);
+        historyAdapter = new WorkoutRowAdapter(this, workoutRows, "No workouts found.");
+
+        // Populate the workout type filter spinner, with "All types" first so every real type can be picked
+        List<CharSequence> typeFilters = new ArrayList<>();
+        typeFilters.add(getString(R.string.filter_all_types));
+        typeFilters.addAll(Arrays.asList(getResources().getStringArray(R.array.workout_types)));
+        ArrayAdapter<CharSequence> typeAdapter = new ArrayAdapter<>(this,
+                android.R.layout.simple_spinner_item, typeFilters);
         typeAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spinnerFilterType.setAdapter(typeAdapter);
 
@@ -52,6 +84,14 @@ public class ViewHistoryActivity extends AppCompatActivity {
         spinnerFilterType.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parentView, View selectedItemView, int position, long id) {
+                if (position == typeFilterPosition) {
+                    return; // Ignore the callback fired for the initial selection during layout
+                }
+                typeFilterPosition = position;
+                if (position == 0) {
+                    loadWorkoutHistory();  // "All types" shows every workout
+                    return;
+                }
                 String selectedType = parentView.getItemAtPosition(position).toString();
                 loadFilteredWorkoutHistory(selectedType, null);  // Filter by workout type
             }
@@ -65,6 +105,14 @@ public class ViewHistoryActivity extends AppCompatActivity {
         spinnerFilterStatus.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parentView, View selectedItemView, int position, long id) {
+                if (position == statusFilterPosition) {
+                    return; // Ignore the callback fired for the initial selection during layout
+                }
+                statusFilterPosition = position;
+                if (position == 0) {
+                    loadWorkoutHistory();  // "All" shows every workout
+                    return;
+                }
                 String selectedStatus = parentView.getItemAtPosition(position).toString();
                 loadFilteredWorkoutHistory(null, selectedStatus);  // Filter by completion status
             }
@@ -75,52 +123,107 @@ public class ViewHistoryActivity extends AppCompatActivity {
             }
         });
 
-        // Load workout history from the database
+        // Load workout history, from the prefetched first page when it is available
+        boolean warm = HistoryWarmCache.get() != null;
         loadWorkoutHistory();
+        recordTimeToFirstRow(createStart, warm);
 
         // Set up item click listener for ListView items
         lvWorkoutHistory.setOnItemClickListener((parent, view, position, id) -> {
             // Get the selected workout's ID
-            int workoutId = workoutIds.get(position);
+            int workoutId = workoutRows.get(position).id;
 
             // Show a dialog with options to edit, delete, or mark as complete
             showWorkoutOptionsDialog(workoutId, position);
         });
+
+        // Long-press starts multi-select mode for bulk operations
+        lvWorkoutHistory.setChoiceMode(ListView.CHOICE_MODE_MULTIPLE_MODAL);
+        lvWorkoutHistory.setMultiChoiceModeListener(new HistorySelectionListener());
     }
 
     private void loadWorkoutHistory() {
-        WorkoutDatabaseManager dbManager = new WorkoutDatabaseManager(this);
-        workoutList = dbManager.getAllWorkouts(); // Fetch workout details
-        workoutIds = dbManager.getWorkoutIds(); // Fetch workout IDs
+        HistoryWarmCache.Snapshot warm = HistoryWarmCache.get();
+        if (warm == null) {
+            loadWorkoutHistoryFromDatabase();
+            return;
+        }
 
-        if (workoutList.isEmpty()) {
-            workoutList.add("No workouts found.");
+        // Render the prefetched first page right away
+        int generation = ++loadGeneration;
+        workoutRows.clear();
+        for (WorkoutRow row : warm.firstPage) {
+            workoutRows.add(row.copy());
+        }
+        lvWorkoutHistory.setAdapter(historyAdapter);
+
+        if (!warm.isComplete()) {
+            // Read the rest once the first page is on screen, unless another load replaced it meanwhile
+            runAfterNextDraw(() -> {
+                if (generation == loadGeneration) {
+                    loadWorkoutHistoryFromDatabase();
+                }
+            });
         }
+    }
+
+    private void loadWorkoutHistoryFromDatabase() {
+        long start = WorkoutMetrics.begin("screen.history.load");
+        loadGeneration++;
+        WorkoutDatabaseManager dbManager = WorkoutDatabaseManager.getInstance(this);
+        dbManager.getAllWorkoutRows(workoutRows); // Fetch workout details and IDs
 
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, workoutList);
-        lvWorkoutHistory.setAdapter(adapter);
+        lvWorkoutHistory.setAdapter(historyAdapter);
+        WorkoutMetrics.end("screen.history.load", start, 0, workoutRows.size());
     }
 
     private void loadFilteredWorkoutHistory(String workoutType, String status) {
-        WorkoutDatabaseManager dbManager = new WorkoutDatabaseManager(this);
+        long start = WorkoutMetrics.begin("screen.history.filter");
+        loadGeneration++;
+        WorkoutDatabaseManager dbManager = WorkoutDatabaseManager.getInstance(this);
 
         if (workoutType != null && !workoutType.isEmpty()) {
-            workoutList = dbManager.getWorkoutsByType(workoutType); // Fetch workouts by type
-            workoutIds = dbManager.getWorkoutIdsByType(workoutType); // Fetch workout IDs by type
+            dbManager.getWorkoutRowsByType(workoutType, workoutRows); // Fetch workouts by type
         } else if (status != null && !status.isEmpty()) {
-            workoutList = dbManager.getWorkoutsByStatus(status); // Fetch workouts by completion status
-            workoutIds = dbManager.getWorkoutIdsByStatus(status); // Fetch workout IDs by status
+            dbManager.getWorkoutRowsByStatus(status, workoutRows); // Fetch workouts by completion status
         } else {
+            WorkoutMetrics.end("screen.history.filter", start);
             loadWorkoutHistory();  // Load all workouts if no filter is applied
             return;
         }
 
-        if (workoutList.isEmpty()) {
-            workoutList.add("No workouts found.");
-        }
+        lvWorkoutHistory.setAdapter(historyAdapter);
+        WorkoutMetrics.end("screen.history.filter", start, 0, workoutRows.size());
+    }
 
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, workoutList);
-        lvWorkoutHistory.setAdapter(adapter);
+    /**
+     * Runs the action right after the next frame has been drawn.
+     */
+    private void runAfterNextDraw(Runnable action) {
+        lvWorkoutHistory.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                lvWorkoutHistory.getViewTreeObserver().removeOnPreDrawListener(this);
+                lvWorkoutHistory.post(action);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Records the time from onCreate until the first rows are drawn, split by whether the
+     * prefetched data was available, so warm and cold starts can be compared in the metrics report.
+     */
+    private void recordTimeToFirstRow(long createStart, boolean warm) {
+        lvWorkoutHistory.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                lvWorkoutHistory.getViewTreeObserver().removeOnPreDrawListener(this);
+                WorkoutMetrics.record(warm ? "screen.history.firstRow.warm" : "screen.history.firstRow.cold",
+                        (System.nanoTime() - createStart) / 1000);
+                return true;
+            }
+        });
     }
 
     private void showWorkoutOptionsDialog(int workoutId, int position) {
@@ -154,32 +257,269 @@ public class ViewHistoryActivity extends AppCompatActivity {
     }
 
     private void deleteWorkout(int workoutId, int position) {
-        WorkoutDatabaseManager dbManager = new WorkoutDatabaseManager(this);
-        boolean success = dbManager.deleteWorkoutById(workoutId);
-
-        if (success) {
-            Toast.makeText(this, "Workout deleted successfully!", Toast.LENGTH_SHORT).show();
-            workoutList.remove(position);
-            workoutIds.remove(position);
-            ((ArrayAdapter) lvWorkoutHistory.getAdapter()).notifyDataSetChanged();
-        } else {
-            Toast.makeText(this, "Failed to delete workout.", Toast.LENGTH_SHORT).show();
-        }
+        submit(WorkoutWrite.delete(workoutId), result -> {
+            if (result == null) {
+                Toast.makeText(this, "Failed to delete workout.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            int index = indexOfWorkout(workoutId, position);
+            if (index < 0) {
+                return; // A reload already dropped it from the list
+            }
+            WorkoutRow removedWorkout = workoutRows.remove(index);
+            historyAdapter.notifyDataSetChanged();
+
+            // The row is only tombstoned, so offer an undo until the compactor purges it
+            Snackbar.make(lvWorkoutHistory, "Workout deleted", Snackbar.LENGTH_LONG)
+                    .setDuration(TombstoneCompactor.UNDO_WINDOW_MILLIS)
+                    .setAction("Undo", v -> undoDeleteWorkout(workoutId, index, removedWorkout))
+                    .show();
+            TombstoneCompactor.schedule(this);
+        });
     }
 
-    private void markWorkoutAsComplete(int workoutId, int position) {
-        WorkoutDatabaseManager dbManager = new WorkoutDatabaseManager(this);
-        boolean success = dbManager.markWorkoutAsComplete(workoutId);
+    private void undoDeleteWorkout(int workoutId, int position, WorkoutRow workout) {
+        submit(WorkoutWrite.restore(workoutId), result -> {
+            if (result == null) {
+                Toast.makeText(this, "Workout can no longer be restored.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            workoutRows.add(Math.min(position, workoutRows.size()), workout);
+            historyAdapter.notifyDataSetChanged();
+        });
+    }
 
-        if (success) {
+    private void markWorkoutAsComplete(int workoutId, int position) {
+        submit(WorkoutWrite.markComplete(workoutId), result -> {
+            if (result == null) {
+                Toast.makeText(this, "Failed to mark workout as complete.", Toast.LENGTH_SHORT).show();
+                return;
+            }
             Toast.makeText(this, "Workout marked as complete!", Toast.LENGTH_SHORT).show();
-            workoutList.set(position, workoutList.get(position) + " (Completed)");
-            ((ArrayAdapter) lvWorkoutHistory.getAdapter()).notifyDataSetChanged();
-        } else {
-            Toast.makeText(this, "Failed to mark workout as complete.", Toast.LENGTH_SHORT).show();
+            int index = indexOfWorkout(workoutId, position);
+            if (index >= 0) {
+                workoutRows.get(index).completed = true;
+                historyAdapter.notifyDataSetChanged();
+            }
+        });
+    }
+
+    /**
+     * Queues a single-workout write and hands the applied result to {@code onDone} on the UI thread,
+     * or null if the write did not apply.
+     */
+    private void submit(WorkoutWrite write, Consumer<WorkoutWrite.Result> onDone) {
+        WorkoutWriteCoordinator.getInstance(this).submit(write).whenComplete((result, error) -> runOnUiThread(() -> {
+            if (!isFinishing()) {
+                onDone.accept(error == null && result.status == WorkoutWrite.Status.APPLIED ? result : null);
+            }
+        }));
+    }
+
+    /**
+     * Returns where the workout is listed now, or -1 if it is not. The list can change while a write
+     * is queued, so the position it was picked at is only a hint.
+     */
+    private int indexOfWorkout(int workoutId, int position) {
+        if (position < workoutRows.size() && workoutRows.get(position).id == workoutId) {
+            return position;
+        }
+        for (int i = 0; i < workoutRows.size(); i++) {
+            if (workoutRows.get(i).id == workoutId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Handles the contextual action bar shown while workouts are selected.
+     */
+    private class HistorySelectionListener implements AbsListView.MultiChoiceModeListener {
+
+        @Override
+        public void onItemCheckedStateChanged(ActionMode mode, int position, long id, boolean checked) {
+            if (checked && position >= workoutRows.size()) {
+                // The "No workouts found." placeholder cannot be selected
+                lvWorkoutHistory.setItemChecked(position, false);
+                return;
+            }
+            mode.setTitle(lvWorkoutHistory.getCheckedItemCount() + " selected");
+        }
+
+        @Override
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            getMenuInflater().inflate(R.menu.menu_history_selection, menu);
+            return true;
+        }
+
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            return false;
+        }
+
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            List<Integer> positions = getSelectedPositions();
+            if (positions.isEmpty()) {
+                mode.finish();
+                return true;
+            }
+
+            int itemId = item.getItemId();
+            if (itemId == R.id.action_bulk_complete) {
+                markWorkoutsAsComplete(positions);
+            } else if (itemId == R.id.action_bulk_retype) {
+                showRetypeDialog(positions);
+            } else if (itemId == R.id.action_bulk_delete) {
+                confirmDeleteWorkouts(positions);
+            } else {
+                return false;
+            }
+            mode.finish();
+            return true;
+        }
+
+        @Override
+        public void onDestroyActionMode(ActionMode mode) {
         }
     }
 
+    /**
+     * Returns the checked list positions in ascending order, skipping the placeholder row.
+     */
+    private List<Integer> getSelectedPositions() {
+        List<Integer> positions = new ArrayList<>();
+        SparseBooleanArray checked = lvWorkoutHistory.getCheckedItemPositions();
+        for (int i = 0; i < checked.size(); i++) {
+            if (checked.valueAt(i) && checked.keyAt(i) < workoutRows.size()) {
+                positions.add(checked.keyAt(i));
+            }
+        }
+        return positions;
+    }
+
+    private List<Integer> getIdsAt(List<Integer> positions) {
+        List<Integer> ids = new ArrayList<>(positions.size());
+        for (int position : positions) {
+            ids.add(workoutRows.get(position).id);
+        }
+        return ids;
+    }
+
+    private void confirmDeleteWorkouts(List<Integer> positions) {
+        new AlertDialog.Builder(this)
+                .setTitle("Delete Workouts")
+                .setMessage("Are you sure you want to delete " + positions.size() + " workouts?")
+                .setPositiveButton("Yes", (dialog, which) -> deleteWorkouts(positions))
+                .setNegativeButton("No", null)
+                .show();
+    }
+
+    private void deleteWorkouts(List<Integer> positions) {
+        List<Integer> ids = getIdsAt(positions);
+        Set<Integer> deleted = new HashSet<>();
+        runBulkWrite(() -> WorkoutDatabaseManager.getInstance(this).deleteWorkoutsByIds(ids, deleted), deletedAt -> {
+            if (deletedAt == null || deletedAt == -1) {
+                Toast.makeText(this, "Failed to delete workouts.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+
+            // Only remove what was deleted, in ascending order of where it was listed
+            List<Integer> removedPositions = new ArrayList<>(deleted.size());
+            List<WorkoutRow> removedWorkouts = new ArrayList<>(deleted.size());
+            for (int i = 0, position = 0; i < workoutRows.size(); position++) {
+                if (deleted.contains(workoutRows.get(i).id)) {
+                    removedPositions.add(position);
+                    removedWorkouts.add(workoutRows.remove(i));
+                } else {
+                    i++;
+                }
+            }
+            historyAdapter.notifyDataSetChanged();
+
+            Snackbar.make(lvWorkoutHistory, deleted.size() + " workouts deleted", Snackbar.LENGTH_LONG)
+                    .setDuration(TombstoneCompactor.UNDO_WINDOW_MILLIS)
+                    .setAction("Undo", v -> undoDeleteWorkouts(deletedAt, removedPositions, removedWorkouts))
+                    .show();
+            TombstoneCompactor.schedule(this);
+        });
+    }
+
+    private void undoDeleteWorkouts(long deletedAt, List<Integer> positions, List<WorkoutRow> workouts) {
+        runBulkWrite(() -> WorkoutDatabaseManager.getInstance(this).restoreDeletedAt(deletedAt), restored -> {
+            if (restored == null || restored == 0) {
+                Toast.makeText(this, "Workouts can no longer be restored.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+
+            // Re-insert in ascending order so every original position is restored
+            for (int i = 0; i < positions.size(); i++) {
+                workoutRows.add(Math.min(positions.get(i), workoutRows.size()), workouts.get(i));
+            }
+            historyAdapter.notifyDataSetChanged();
+        });
+    }
+
+    private void markWorkoutsAsComplete(List<Integer> positions) {
+        List<Integer> ids = getIdsAt(positions);
+        Set<Integer> updated = new HashSet<>();
+        runBulkWrite(() -> WorkoutDatabaseManager.getInstance(this).markWorkoutsAsComplete(ids, updated), count -> {
+            if (count == null) {
+                Toast.makeText(this, "Failed to mark workouts as complete.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            for (WorkoutRow row : workoutRows) {
+                if (updated.contains(row.id)) {
+                    row.completed = true;
+                }
+            }
+            historyAdapter.notifyDataSetChanged();
+            Toast.makeText(this, count + " workouts marked as complete!", Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    private void showRetypeDialog(List<Integer> positions) {
+        String[] types = getResources().getStringArray(R.array.workout_types);
+        new AlertDialog.Builder(this)
+                .setTitle("Change Type")
+                .setItems(types, (dialog, which) -> updateWorkoutsType(positions, types[which]))
+                .show();
+    }
+
+    private void updateWorkoutsType(List<Integer> positions, String type) {
+        List<Integer> ids = getIdsAt(positions);
+        Set<Integer> updated = new HashSet<>();
+        runBulkWrite(() -> WorkoutDatabaseManager.getInstance(this).updateWorkoutsType(ids, type, updated), count -> {
+            if (count == null) {
+                Toast.makeText(this, "Failed to change workout types.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            for (WorkoutRow row : workoutRows) {
+                if (updated.contains(row.id)) {
+                    row.type = type;
+                }
+            }
+            historyAdapter.notifyDataSetChanged();
+            Toast.makeText(this, count + " workouts changed to " + type, Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    /**
+     * Runs a bulk write off the UI thread, so selections of thousands of rows never block it, and hands
+     * its result to {@code onDone} on the UI thread, or null if it failed.
+     */
+    private <T> void runBulkWrite(Supplier<T> write, Consumer<T> onDone) {
+        CompletableFuture.supplyAsync(write, BULK_WRITES).whenComplete((result, error) -> runOnUiThread(() -> {
+            if (error != null) {
+                Log.e(TAG, "Bulk write failed", error);
+            }
+            if (!isFinishing()) {
+                onDone.accept(error == null ? result : null);
+            }
+        }));
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         if (item.getItemId() == android.R.id.home) {
@@ -3,17 +3,29 @@ package com.example.fitnesstracker;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteOpenHelper;
 
+import net.zetetic.database.DatabaseUtils;
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+import net.zetetic.database.sqlcipher.SQLiteOpenHelper;
+import net.zetetic.database.sqlcipher.SQLiteQueryBuilder;
+import net.zetetic.database.sqlcipher.SQLiteStatement;
+
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
-public class WorkoutDatabaseManager extends SQLiteOpenHelper {
+public class WorkoutDatabaseManager extends SQLiteOpenHelper implements SyncStore {
 
     // Database Information
     private static final String DATABASE_NAME = "WorkoutTracker.db";
-    private static final int DATABASE_VERSION = 2; // Updated version to handle schema changes
+    private static final int DATABASE_VERSION = 9; // Version 9 remembers purged tombstones for sync
 
     // Table Name and Column Names
     private static final String TABLE_WORKOUTS = "workouts";
@@ -22,10 +34,142 @@ public class WorkoutDatabaseManager extends SQLiteOpenHelper {
     private static final String COLUMN_DURATION = "duration";
     private static final String COLUMN_TYPE = "type";
     private static final String COLUMN_COMPLETED = "completed"; // New column for completion status
+    private static final String COLUMN_DELETED_AT = "deleted_at"; // Tombstone timestamp, NULL while the workout is live
+    private static final String COLUMN_PLAN_ID = "plan_id"; // Plan the workout was logged from, NULL for one-off workouts
+    private static final String COLUMN_OCCURRENCE_DAY = "occurrence_day"; // Scheduled epoch day of a plan occurrence
+    private static final String COLUMN_UUID = "uuid"; // Identifies the workout across devices
+    private static final String COLUMN_UPDATED_AT = "updated_at"; // Last write, compared for last-write-wins merging
+    private static final String COLUMN_DAY = "day"; // Epoch day the workout was done on, in the device's time zone
+    private static final String COLUMN_VERSION = "version"; // Incremented by every write, checked by conditional updates
+
+    // Workout templates and recurring plans
+    private static final String TABLE_TEMPLATES = "workout_templates";
+    private static final String TABLE_PLANS = "workout_plans";
+    private static final String COLUMN_TEMPLATE_ID = "template_id";
+    private static final String COLUMN_START_DAY = "start_day";
+    private static final String COLUMN_END_DAY = "end_day";
+    private static final String COLUMN_WEEKDAY_MASK = "weekday_mask";
+    private static final String COLUMN_INTERVAL_WEEKS = "interval_weeks";
+
+    // Sets of strength workouts, and their totals per exercise and day
+    private static final String TABLE_SETS = "workout_sets";
+    private static final String TABLE_EXERCISE_DAILY = "exercise_daily";
+    private static final String COLUMN_WORKOUT_ID = "workout_id";
+    private static final String COLUMN_POSITION = "position"; // Order of the set within its workout
+    private static final String COLUMN_EXERCISE = "exercise";
+    private static final String COLUMN_REPS = "reps";
+    private static final String COLUMN_WEIGHT_GRAMS = "weight_grams";
+    private static final String COLUMN_SETS = "sets";
+    private static final String COLUMN_VOLUME = "volume"; // Sum of reps times weight, in gram-reps
+    private static final String COLUMN_BEST_ONE_REP_MAX = "best_one_rep_max"; // Grams
+
+    // Epley estimate of a set's one-rep max, the same as WorkoutSet.estimateOneRepMax
+    private static final String ONE_REP_MAX = "CASE WHEN " + COLUMN_REPS + " <= 1 THEN " + COLUMN_WEIGHT_GRAMS + " * " +
+            COLUMN_REPS + " ELSE " + COLUMN_WEIGHT_GRAMS + " * (30 + " + COLUMN_REPS + ") / 30 END";
+
+    // Ordered log of local changes waiting to be pushed, and key/value sync state
+    private static final String TABLE_OUTBOX = "sync_outbox";
+    private static final String TABLE_SYNC_STATE = "sync_state";
+    private static final String COLUMN_SEQ = "seq";
+    private static final String COLUMN_OP = "op";
+    private static final String COLUMN_KEY = "key";
+    private static final String COLUMN_VALUE = "value";
+    private static final String STATE_DEVICE_ID = "device_id";
+    private static final String STATE_PULL_CURSOR = "pull_cursor";
+
+    // Last write of every purged tombstone, so a late pulled change still loses to the delete
+    private static final String TABLE_PURGED = "purged_workouts";
+
+    // Connection-local table holding the IDs of a bulk operation
+    private static final String TABLE_SELECTED_IDS = "temp.selected_ids";
+
+    // 128 random bits, the default for new workouts' UUIDs
+    private static final String NEW_UUID = "lower(hex(randomblob(16)))";
+
+    // Columns read into a WorkoutRow, so list queries never copy the sync and plan columns into the cursor window
+    private static final String[] ROW_COLUMNS = {COLUMN_ID, COLUMN_NAME, COLUMN_DURATION, COLUMN_TYPE, COLUMN_COMPLETED};
+
+    // Every read filters on this so the partial indexes below can be used
+    private static final String LIVE = COLUMN_DELETED_AT + " IS NULL";
+
+    // Shared instance so every screen reuses the connection opened by DatabasePrewarmer
+    private static WorkoutDatabaseManager instance;
+
+    private final Context appContext;
+    private final byte[] passphrase; // Opens restored copies of this database
+
+    // Chart series of daily totals, refreshed per written day
+    private final WorkoutSeries series = new WorkoutSeries(new DailyTotalsSource());
+
+    // Highest updated_at handed out or stored, so every write gets a timestamp no row has yet
+    private long lastUpdatedAt;
+
+    static {
+        // SQLCipher's SQLite build, used for plaintext and encrypted databases alike. The schema relies on
+        // upserts (SQLite 3.24) and row values (3.15); the platform SQLite is 3.9 on API 24 and 3.22 up to API 29
+        System.loadLibrary("sqlcipher");
+    }
 
     // Constructor
     public WorkoutDatabaseManager(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME, DatabaseEncryption.prepare(context, DATABASE_NAME));
+    }
+
+    // Constructor for tests and benchmarks, a null name creates an in-memory database
+    WorkoutDatabaseManager(Context context, String databaseName) {
+        this(context, databaseName, new byte[0]);
+    }
+
+    /**
+     * Opens the database with a SQLCipher passphrase, or as plain SQLite if the passphrase is empty.
+     */
+    WorkoutDatabaseManager(Context context, String databaseName, byte[] passphrase) {
+        super(context, databaseName, passphrase, null, DATABASE_VERSION, 0, null, null, true);
+        this.passphrase = passphrase;
+        this.appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+    }
+
+    /**
+     * Returns the process-wide database manager, creating it on first use.
+     * Encrypts a plaintext database first if encryption was turned on since the last start.
+     */
+    public static synchronized WorkoutDatabaseManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new WorkoutDatabaseManager(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Replaces the process-wide database manager, so instrumented tests can point screens at their own
+     * database instead of the user's.
+     *
+     * @return The replaced manager, to put back afterwards, or null if none was created yet
+     */
+    static synchronized WorkoutDatabaseManager swapInstance(WorkoutDatabaseManager replacement) {
+        WorkoutDatabaseManager previous = instance;
+        instance = replacement;
+        return previous;
+    }
+
+    /**
+     * Configures the connection before the schema is created or upgraded.
+     * Incremental auto-vacuum lets the compactor return freed pages in small steps.
+     */
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+    }
+
+    /**
+     * Seeds the write timestamp from the stored rows, read through the updated_at index.
+     */
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        advanceUpdatedAt(DatabaseUtils.longForQuery(db, "SELECT COALESCE(MAX(" + COLUMN_UPDATED_AT + "), 0) FROM " +
+                TABLE_WORKOUTS, null));
     }
 
     /**
@@ -38,8 +182,21 @@ public class WorkoutDatabaseManager extends SQLiteOpenHelper {
                 COLUMN_NAME + " TEXT NOT NULL, " +
                 COLUMN_DURATION + " TEXT NOT NULL, " +
                 COLUMN_TYPE + " TEXT NOT NULL, " +
-                COLUMN_COMPLETED + " INTEGER DEFAULT 0)"; // Default to not completed
+                COLUMN_COMPLETED + " INTEGER DEFAULT 0, " + // Default to not completed
+                COLUMN_DELETED_AT + " INTEGER, " +
+                COLUMN_PLAN_ID + " INTEGER, " +
+                COLUMN_OCCURRENCE_DAY + " INTEGER, " +
+                COLUMN_UUID + " TEXT NOT NULL DEFAULT (" + NEW_UUID + "), " +
+                COLUMN_UPDATED_AT + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_DAY + " INTEGER, " +
+                COLUMN_VERSION + " INTEGER NOT NULL DEFAULT 0)";
         db.execSQL(createTable);
+        createSoftDeleteIndexes(db);
+        createPlanTables(db);
+        createSyncTables(db);
+        createSeriesIndex(db);
+        createSetTables(db);
+        createPurgedTable(db);
     }
 
     /**
@@ -51,240 +208,1947 @@ public class WorkoutDatabaseManager extends SQLiteOpenHelper {
             // Add 'completed' column during upgrade
             db.execSQL("ALTER TABLE " + TABLE_WORKOUTS + " ADD COLUMN " + COLUMN_COMPLETED + " INTEGER DEFAULT 0");
         }
+        if (oldVersion < 3) {
+            // Add tombstone column for soft deletion
+            db.execSQL("ALTER TABLE " + TABLE_WORKOUTS + " ADD COLUMN " + COLUMN_DELETED_AT + " INTEGER");
+            createSoftDeleteIndexes(db);
+        }
+        if (oldVersion < 4) {
+            // Link workouts to the plan occurrence they were logged from
+            db.execSQL("ALTER TABLE " + TABLE_WORKOUTS + " ADD COLUMN " + COLUMN_PLAN_ID + " INTEGER");
+            db.execSQL("ALTER TABLE " + TABLE_WORKOUTS + " ADD COLUMN " + COLUMN_OCCURRENCE_DAY + " INTEGER");
+            createPlanTables(db);
+        }
+        if (oldVersion < 5) {
+            // Give existing workouts a sync identity and queue them for the first push
+            db.execSQL("ALTER TABLE " + TABLE_WORKOUTS + " ADD COLUMN " + COLUMN_UUID + " TEXT");
+            db.execSQL("ALTER TABLE " + TABLE_WORKOUTS + " ADD COLUMN " + COLUMN_UPDATED_AT + " INTEGER NOT NULL DEFAULT 0");
+            long now = System.currentTimeMillis();
+            db.execSQL("UPDATE " + TABLE_WORKOUTS + " SET " + COLUMN_UUID + " = " + NEW_UUID + ", " +
+                    COLUMN_UPDATED_AT + " = ?", new Object[]{now});
+            createSyncTables(db);
+            recordChange(db, SyncChange.OP_INSERT, now);
+        }
+        if (oldVersion < 6) {
+            // Only plan occurrences have a known date. updated_at is no substitute: the version 5 step stamps
+            // every older workout with the upgrade time. Undated workouts stay NULL and are left out of the
+            // day-indexed totals.
+            db.execSQL("ALTER TABLE " + TABLE_WORKOUTS + " ADD COLUMN " + COLUMN_DAY + " INTEGER");
+            db.execSQL("UPDATE " + TABLE_WORKOUTS + " SET " + COLUMN_DAY + " = " + COLUMN_OCCURRENCE_DAY);
+            createSeriesIndex(db);
+        }
+        if (oldVersion < 7) {
+            db.execSQL("ALTER TABLE " + TABLE_WORKOUTS + " ADD COLUMN " + COLUMN_VERSION + " INTEGER NOT NULL DEFAULT 0");
+        }
+        if (oldVersion < 8) {
+            createSetTables(db);
+        }
+        if (oldVersion < 9) {
+            createPurgedTable(db);
+        }
+    }
+
+    /**
+     * Creates the table of purged tombstones. Once a tombstone is purged its UUID is unknown to the
+     * workouts table, and a stale change pulled for it would otherwise be inserted as a new workout.
+     */
+    private void createPurgedTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_PURGED + " (" +
+                COLUMN_UUID + " TEXT PRIMARY KEY, " +
+                COLUMN_UPDATED_AT + " INTEGER NOT NULL) WITHOUT ROWID");
+    }
+
+    /**
+     * Creates the sets table and the per-exercise daily totals. Sets carry their workout's day so progress
+     * queries never join the workouts table; the totals are kept up to date by every write that adds sets
+     * or changes whether their workout is live. Sets are not recorded in the outbox and stay on this device:
+     * other devices receive the workout without its sets.
+     */
+    private void createSetTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_SETS + " (" +
+                COLUMN_ID + " INTEGER PRIMARY KEY, " +
+                COLUMN_WORKOUT_ID + " INTEGER NOT NULL REFERENCES " + TABLE_WORKOUTS + "(" + COLUMN_ID + "), " +
+                COLUMN_POSITION + " INTEGER NOT NULL, " +
+                COLUMN_EXERCISE + " TEXT NOT NULL, " +
+                COLUMN_REPS + " INTEGER NOT NULL, " +
+                COLUMN_WEIGHT_GRAMS + " INTEGER NOT NULL, " +
+                COLUMN_DAY + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_sets_workout ON " + TABLE_SETS +
+                " (" + COLUMN_WORKOUT_ID + ", " + COLUMN_POSITION + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_sets_exercise_day ON " + TABLE_SETS +
+                " (" + COLUMN_EXERCISE + ", " + COLUMN_DAY + ")");
+        // Keyed for progress lookups: one exercise over a range of days is a single primary key range
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_EXERCISE_DAILY + " (" +
+                COLUMN_EXERCISE + " TEXT NOT NULL, " +
+                COLUMN_DAY + " INTEGER NOT NULL, " +
+                COLUMN_SETS + " INTEGER NOT NULL, " +
+                COLUMN_REPS + " INTEGER NOT NULL, " +
+                COLUMN_VOLUME + " INTEGER NOT NULL, " +
+                COLUMN_BEST_ONE_REP_MAX + " INTEGER NOT NULL, " +
+                "PRIMARY KEY (" + COLUMN_EXERCISE + ", " + COLUMN_DAY + ")) WITHOUT ROWID");
+    }
+
+    /**
+     * Creates the outbox and sync state tables. Every local write appends the resulting row state to the
+     * outbox in the same transaction, so no change can be lost between the write and the next sync.
+     */
+    private void createSyncTables(SQLiteDatabase db) {
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_workouts_uuid ON " + TABLE_WORKOUTS + " (" + COLUMN_UUID + ")");
+        // Lets recordChange find the rows touched by a write without scanning the table
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_workouts_updated_at ON " + TABLE_WORKOUTS + " (" + COLUMN_UPDATED_AT + ")");
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_OUTBOX + " (" +
+                COLUMN_SEQ + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_OP + " TEXT NOT NULL, " +
+                COLUMN_UUID + " TEXT NOT NULL, " +
+                COLUMN_NAME + " TEXT, " +
+                COLUMN_DURATION + " TEXT, " +
+                COLUMN_TYPE + " TEXT, " +
+                COLUMN_COMPLETED + " INTEGER, " +
+                COLUMN_DELETED_AT + " INTEGER, " +
+                COLUMN_UPDATED_AT + " INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_SYNC_STATE + " (" +
+                COLUMN_KEY + " TEXT PRIMARY KEY, " +
+                COLUMN_VALUE + " TEXT)");
+    }
+
+    /**
+     * Covering index over the daily totals of live workouts, so chart series are read from the index
+     * alone and refreshing a single day is one index range.
+     */
+    private void createSeriesIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_workouts_live_day ON " + TABLE_WORKOUTS +
+                " (" + COLUMN_DAY + ", " + COLUMN_DURATION + ") WHERE " + LIVE);
+    }
+
+    /**
+     * Creates the template and plan tables. A plan stores only its recurrence rule; occurrences are
+     * expanded on demand and become workout rows only once they are logged.
+     */
+    private void createPlanTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_TEMPLATES + " (" +
+                COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_NAME + " TEXT NOT NULL, " +
+                COLUMN_DURATION + " TEXT NOT NULL, " +
+                COLUMN_TYPE + " TEXT NOT NULL)");
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_PLANS + " (" +
+                COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_TEMPLATE_ID + " INTEGER NOT NULL REFERENCES " + TABLE_TEMPLATES + "(" + COLUMN_ID + "), " +
+                COLUMN_START_DAY + " INTEGER NOT NULL, " +
+                COLUMN_END_DAY + " INTEGER NOT NULL, " +
+                COLUMN_WEEKDAY_MASK + " INTEGER NOT NULL, " +
+                COLUMN_INTERVAL_WEEKS + " INTEGER NOT NULL DEFAULT 1)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_plans_window ON " + TABLE_PLANS +
+                " (" + COLUMN_START_DAY + ", " + COLUMN_END_DAY + ")");
+        // Serves the logged-occurrence lookup for a date window and prevents logging an occurrence twice
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_workouts_plan_occurrence ON " + TABLE_WORKOUTS +
+                " (" + COLUMN_OCCURRENCE_DAY + ", " + COLUMN_PLAN_ID + ") WHERE " + COLUMN_PLAN_ID + " IS NOT NULL");
+    }
+
+    /**
+     * Partial indexes over live rows for the history filters, and one over tombstones for the compactor.
+     */
+    private void createSoftDeleteIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_workouts_live_type ON " + TABLE_WORKOUTS +
+                " (" + COLUMN_TYPE + ", " + COLUMN_ID + ") WHERE " + LIVE);
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_workouts_live_completed ON " + TABLE_WORKOUTS +
+                " (" + COLUMN_COMPLETED + ", " + COLUMN_ID + ") WHERE " + LIVE);
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_workouts_tombstones ON " + TABLE_WORKOUTS +
+                " (" + COLUMN_DELETED_AT + ") WHERE " + COLUMN_DELETED_AT + " IS NOT NULL");
+    }
+
+    /**
+     * Runs a table query through {@link #rawQuery} so it is covered by the slow-query log.
+     */
+    Cursor query(SQLiteDatabase db, String table, String[] columns, String selection, String[] selectionArgs,
+                 String groupBy, String having, String orderBy) {
+        String sql = SQLiteQueryBuilder.buildQueryString(false, table, columns, selection, groupBy, having, orderBy, null);
+        return rawQuery(db, sql, selectionArgs);
+    }
+
+    /**
+     * Executes a query and reports it to the {@link SlowQueryLog}.
+     * The row count is read eagerly so that the measured time includes running the statement.
+     */
+    Cursor rawQuery(SQLiteDatabase db, String sql, String[] selectionArgs) {
+        long start = System.nanoTime();
+        Cursor cursor = db.rawQuery(sql, selectionArgs);
+        int rowCount = cursor.getCount();
+        SlowQueryLog.onQueryExecuted(db, sql, selectionArgs, rowCount, System.nanoTime() - start);
+        return cursor;
+    }
+
+    /**
+     * Called after every write that changes which workouts are visible or how they display.
+     *
+     * @param updatedAt The timestamp of the write
+     */
+    private void onWorkoutsChanged(long updatedAt) {
+        HistoryWarmCache.invalidate();
+        series.markDirty(new long[]{updatedAt}, 1);
+        WorkoutSummaryCache.requestRefresh(appContext, this);
+        SyncWorker.requestSync(appContext);
+    }
+
+    /**
+     * Returns the timestamp for the next write. It is higher than any updated_at already stored, even
+     * after a restart, a backward clock step or a pulled change stamped by another device's clock, so
+     * {@link #recordChange} finds exactly the rows a write touched.
+     */
+    private synchronized long nextUpdatedAt() {
+        getWritableDatabase(); // Opening the database seeds lastUpdatedAt from the stored rows
+        lastUpdatedAt = Math.max(System.currentTimeMillis(), lastUpdatedAt + 1);
+        return lastUpdatedAt;
+    }
+
+    /**
+     * Makes sure later writes are stamped after {@code updatedAt}.
+     */
+    private synchronized void advanceUpdatedAt(long updatedAt) {
+        lastUpdatedAt = Math.max(lastUpdatedAt, updatedAt);
+    }
+
+    /**
+     * Bumps the version of every workout written at {@code updatedAt} and records them in the outbox.
+     * Every local write calls this once, inside its transaction.
+     */
+    private void recordWrite(SQLiteDatabase db, String op, long updatedAt) {
+        db.execSQL("UPDATE " + TABLE_WORKOUTS + " SET " + COLUMN_VERSION + " = " + COLUMN_VERSION + " + 1 WHERE " +
+                COLUMN_UPDATED_AT + " = ?", new Object[]{updatedAt});
+        if (SyncChange.OP_DELETE.equals(op) || SyncChange.OP_RESTORE.equals(op)) {
+            refreshExerciseTotals(db, COLUMN_UPDATED_AT, updatedAt);
+        }
+        recordChange(db, op, updatedAt);
+    }
+
+    /**
+     * Recomputes the exercise totals of every day with sets in the workouts whose {@code column} equals
+     * {@code value}, counting only live workouts. Workouts without sets cost one index lookup.
+     *
+     * @param column {@link #COLUMN_UPDATED_AT} for a local write, {@link #COLUMN_UUID} for a pulled change
+     */
+    private void refreshExerciseTotals(SQLiteDatabase db, String column, Object value) {
+        String touched = "SELECT s." + COLUMN_EXERCISE + ", s." + COLUMN_DAY + " FROM " + TABLE_SETS + " s JOIN " +
+                TABLE_WORKOUTS + " w ON w." + COLUMN_ID + " = s." + COLUMN_WORKOUT_ID + " WHERE w." + column + " = ?";
+        db.execSQL("DELETE FROM " + TABLE_EXERCISE_DAILY + " WHERE (" + COLUMN_EXERCISE + ", " + COLUMN_DAY + ") IN (" +
+                touched + ")", new Object[]{value});
+        db.execSQL("INSERT INTO " + TABLE_EXERCISE_DAILY + " SELECT " + COLUMN_EXERCISE + ", " + COLUMN_DAY + ", COUNT(*), SUM(" +
+                COLUMN_REPS + "), SUM(" + COLUMN_REPS + " * " + COLUMN_WEIGHT_GRAMS + "), MAX(" + ONE_REP_MAX + ") FROM " +
+                TABLE_SETS + " t WHERE (" + COLUMN_EXERCISE + ", " + COLUMN_DAY + ") IN (" + touched + ") AND " +
+                // Correlated, so each candidate set costs one primary-key lookup instead of a scan of every live workout
+                "EXISTS (SELECT 1 FROM " + TABLE_WORKOUTS + " w WHERE w." + COLUMN_ID + " = t." + COLUMN_WORKOUT_ID +
+                " AND w." + COLUMN_DELETED_AT + " IS NULL) GROUP BY " + COLUMN_EXERCISE + ", " + COLUMN_DAY, new Object[]{value});
+    }
+
+    /**
+     * Appends the current state of every workout written at {@code updatedAt} to the outbox.
+     * Must run inside the transaction of the write itself.
+     */
+    private void recordChange(SQLiteDatabase db, String op, long updatedAt) {
+        db.execSQL("INSERT INTO " + TABLE_OUTBOX + " (" + COLUMN_OP + ", " + COLUMN_UUID + ", " + COLUMN_NAME + ", " +
+                COLUMN_DURATION + ", " + COLUMN_TYPE + ", " + COLUMN_COMPLETED + ", " + COLUMN_DELETED_AT + ", " +
+                COLUMN_UPDATED_AT + ") SELECT ?, " + COLUMN_UUID + ", " + COLUMN_NAME + ", " + COLUMN_DURATION + ", " +
+                COLUMN_TYPE + ", " + COLUMN_COMPLETED + ", " + COLUMN_DELETED_AT + ", " + COLUMN_UPDATED_AT +
+                " FROM " + TABLE_WORKOUTS + " WHERE " + COLUMN_UPDATED_AT + " = ?", new Object[]{op, updatedAt});
+    }
+
+    /**
+     * Compiles the statements every screen needs into the connection's statement cache,
+     * so the first screen that runs them skips SQL parsing and planning.
+     */
+    public void prewarm() {
+        long start = WorkoutMetrics.begin("db.prewarm");
+        try {
+            // Opening the writable database also runs onCreate or onUpgrade
+            SQLiteDatabase db = this.getWritableDatabase();
+            String orderBy = COLUMN_ID + " DESC";
+            String[] historySelections = {
+                    LIVE,
+                    COLUMN_TYPE + " = ? AND " + LIVE,
+                    COLUMN_COMPLETED + " = 1 AND " + LIVE,
+                    COLUMN_COMPLETED + " = 0 AND " + LIVE
+            };
+            for (String selection : historySelections) {
+                compileAndRelease(db, SQLiteQueryBuilder.buildQueryString(false, TABLE_WORKOUTS, ROW_COLUMNS, selection,
+                        null, null, orderBy, null));
+            }
+            // The prefetched first page, the limit is part of the statement text
+            compileAndRelease(db, SQLiteQueryBuilder.buildQueryString(false, TABLE_WORKOUTS, ROW_COLUMNS, LIVE,
+                    null, null, recentOrderBy(HistoryWarmCache.FIRST_PAGE_SIZE), null));
+            compileAndRelease(db, SQLiteQueryBuilder.buildQueryString(false, TABLE_WORKOUTS, null,
+                    COLUMN_ID + " = ? AND " + LIVE, null, null, null, null));
+        } finally {
+            WorkoutMetrics.end("db.prewarm", start);
+        }
+    }
+
+    private void compileAndRelease(SQLiteDatabase db, String sql) {
+        // The prepared statement stays in the connection's LRU cache after the wrapper is closed
+        db.compileStatement(sql).close();
+    }
+
+    private static String recentOrderBy(int limit) {
+        return COLUMN_ID + " DESC LIMIT " + limit;
+    }
+
+    /**
+     * Retrieves the most recent workouts into reusable row holders.
+     *
+     * @param limit The maximum number of workouts to read
+     * @param rows  Refilled in place, its existing holders are reused
+     */
+    public void getRecentWorkoutRows(int limit, List<WorkoutRow> rows) {
+        long start = WorkoutMetrics.begin("db.getRecentWorkoutRows");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            readRows(query(db, TABLE_WORKOUTS, ROW_COLUMNS, LIVE, null, null, null, recentOrderBy(limit)), rows);
+        } finally {
+            WorkoutMetrics.end("db.getRecentWorkoutRows", start, rows.size(), rows.size());
+        }
+    }
+
+    /**
+     * Fills {@code rows} from a cursor over {@link #ROW_COLUMNS}, reusing the holders it already has and
+     * dropping the ones left over. Column indices are resolved once per cursor, not per row.
+     */
+    private static void readRows(Cursor cursor, List<WorkoutRow> rows) {
+        int count = 0;
+        try {
+            int idIndex = cursor.getColumnIndexOrThrow(COLUMN_ID);
+            int nameIndex = cursor.getColumnIndexOrThrow(COLUMN_NAME);
+            int durationIndex = cursor.getColumnIndexOrThrow(COLUMN_DURATION);
+            int typeIndex = cursor.getColumnIndexOrThrow(COLUMN_TYPE);
+            int completedIndex = cursor.getColumnIndexOrThrow(COLUMN_COMPLETED);
+            while (cursor.moveToNext()) {
+                WorkoutRow row;
+                if (count < rows.size()) {
+                    row = rows.get(count);
+                } else {
+                    row = new WorkoutRow();
+                    rows.add(row);
+                }
+                row.set(cursor.getInt(idIndex), cursor.getString(nameIndex), cursor.getString(durationIndex),
+                        cursor.getString(typeIndex), cursor.getInt(completedIndex) == 1);
+                count++;
+            }
+        } finally {
+            cursor.close();
+        }
+        if (rows.size() > count) {
+            rows.subList(count, rows.size()).clear();
+        }
+    }
+
+    /**
+     * Formats rows as the display strings returned by the String list methods, with one shared builder.
+     */
+    private static List<String> toDisplayStrings(List<WorkoutRow> rows) {
+        List<String> workouts = new ArrayList<>(rows.size());
+        StringBuilder builder = new StringBuilder(128);
+        for (WorkoutRow row : rows) {
+            builder.setLength(0);
+            workouts.add(row.appendTo(builder).toString());
+        }
+        return workouts;
     }
 
     /**
      * Adds a new workout to the database.
      */
     public boolean addWorkout(String name, String duration, String type) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_NAME, name);
-        values.put(COLUMN_DURATION, duration);
-        values.put(COLUMN_TYPE, type);
-        values.put(COLUMN_COMPLETED, 0); // Default to not completed
+        long start = WorkoutMetrics.begin("db.addWorkout");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            long updatedAt = nextUpdatedAt();
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_NAME, name);
+            values.put(COLUMN_DURATION, duration);
+            values.put(COLUMN_TYPE, type);
+            values.put(COLUMN_COMPLETED, 0); // Default to not completed
+            values.put(COLUMN_UPDATED_AT, updatedAt);
+            values.put(COLUMN_DAY, RecurrenceRule.today());
 
-        long result = db.insert(TABLE_WORKOUTS, null, values);
-        return result != -1;
+            long result;
+            db.beginTransaction();
+            try {
+                result = db.insert(TABLE_WORKOUTS, null, values);
+                if (result != -1) {
+                    recordWrite(db, SyncChange.OP_INSERT, updatedAt);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            if (result != -1) {
+                onWorkoutsChanged(updatedAt);
+            }
+            return result != -1;
+        } finally {
+            WorkoutMetrics.end("db.addWorkout", start);
+        }
     }
 
     /**
      * Retrieves all workouts from the database.
      */
     public List<String> getAllWorkouts() {
-        List<String> workouts = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-
-        Cursor cursor = db.query(TABLE_WORKOUTS, null, null, null, null, null, COLUMN_ID + " DESC");
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                String workout = "Name: " + cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME)) +
-                        "\nDuration: " + cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DURATION)) +
-                        " minutes\nType: " + cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TYPE)) +
-                        (cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_COMPLETED)) == 1 ? " (Completed)" : "");
-                workouts.add(workout);
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
+        List<WorkoutRow> rows = new ArrayList<>();
+        getAllWorkoutRows(rows);
+        return toDisplayStrings(rows);
+    }
 
-        return workouts;
+    /**
+     * Retrieves all workouts, newest first, into reusable row holders.
+     */
+    public void getAllWorkoutRows(List<WorkoutRow> rows) {
+        long start = WorkoutMetrics.begin("db.getAllWorkouts");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            readRows(query(db, TABLE_WORKOUTS, ROW_COLUMNS, LIVE, null, null, null, COLUMN_ID + " DESC"), rows);
+        } finally {
+            WorkoutMetrics.end("db.getAllWorkouts", start, rows.size(), rows.size());
+        }
     }
 
     /**
      * Retrieves the IDs of all workouts.
      */
     public List<Integer> getWorkoutIds() {
+        long start = WorkoutMetrics.begin("db.getWorkoutIds");
         List<Integer> ids = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_WORKOUTS, new String[]{COLUMN_ID}, null, null, null, null, COLUMN_ID + " DESC");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = query(db, TABLE_WORKOUTS, new String[]{COLUMN_ID}, LIVE, null, null, null, COLUMN_ID + " DESC");
+
+            if (cursor != null && cursor.moveToFirst()) {
+                do {
+                    ids.add(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)));
+                } while (cursor.moveToNext());
+                cursor.close();
+            }
+
+            return ids;
+        } finally {
+            WorkoutMetrics.end("db.getWorkoutIds", start, ids.size(), ids.size());
+        }
+    }
+
+    /**
+     * Soft-deletes all workouts. The rows are tombstoned with a shared timestamp and purged later by
+     * {@link TombstoneCompactor}, so the call stays cheap and can be undone with {@link #restoreDeletedAt}.
+     *
+     * @return The tombstone timestamp to pass to {@link #restoreDeletedAt} for undo
+     */
+    public long deleteAllWorkouts() {
+        long start = WorkoutMetrics.begin("db.deleteAllWorkouts");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            long deletedAt = nextUpdatedAt();
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_DELETED_AT, deletedAt);
+            values.put(COLUMN_UPDATED_AT, deletedAt);
+            db.beginTransaction();
+            try {
+                db.update(TABLE_WORKOUTS, values, LIVE, null);
+                recordWrite(db, SyncChange.OP_DELETE, deletedAt);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            onWorkoutsChanged(deletedAt);
+            return deletedAt;
+        } finally {
+            WorkoutMetrics.end("db.deleteAllWorkouts", start);
+        }
+    }
+
+    /**
+     * Soft-deletes a specific workout by ID. It stays restorable until the compactor purges it.
+     */
+    public boolean deleteWorkoutById(int id) {
+        long start = WorkoutMetrics.begin("db.deleteWorkoutById");
+        try {
+            long updatedAt = nextUpdatedAt();
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_DELETED_AT, updatedAt);
+            values.put(COLUMN_UPDATED_AT, updatedAt);
+            int rowsDeleted = updateAndRecord(values, COLUMN_ID + " = ? AND " + LIVE,
+                    new String[]{String.valueOf(id)}, SyncChange.OP_DELETE, updatedAt);
+            if (rowsDeleted > 0) {
+                onWorkoutsChanged(updatedAt);
+            }
+            return rowsDeleted > 0;
+        } finally {
+            WorkoutMetrics.end("db.deleteWorkoutById", start);
+        }
+    }
+
+    /**
+     * Restores a soft-deleted workout, undoing {@link #deleteWorkoutById}.
+     */
+    public boolean restoreWorkout(int id) {
+        long start = WorkoutMetrics.begin("db.restoreWorkout");
+        try {
+            long updatedAt = nextUpdatedAt();
+            ContentValues values = new ContentValues();
+            values.putNull(COLUMN_DELETED_AT);
+            values.put(COLUMN_UPDATED_AT, updatedAt);
+            int rowsRestored = updateAndRecord(values, COLUMN_ID + " = ? AND " + COLUMN_DELETED_AT + " IS NOT NULL",
+                    new String[]{String.valueOf(id)}, SyncChange.OP_RESTORE, updatedAt);
+            if (rowsRestored > 0) {
+                onWorkoutsChanged(updatedAt);
+            }
+            return rowsRestored > 0;
+        } finally {
+            WorkoutMetrics.end("db.restoreWorkout", start);
+        }
+    }
+
+    /**
+     * Restores every workout tombstoned at the given timestamp, undoing {@link #deleteAllWorkouts}.
+     *
+     * @return The number of restored workouts
+     */
+    public int restoreDeletedAt(long deletedAt) {
+        long start = WorkoutMetrics.begin("db.restoreDeletedAt");
+        try {
+            long updatedAt = nextUpdatedAt();
+            ContentValues values = new ContentValues();
+            values.putNull(COLUMN_DELETED_AT);
+            values.put(COLUMN_UPDATED_AT, updatedAt);
+            int rowsRestored = updateAndRecord(values, COLUMN_DELETED_AT + " = ?", new String[]{String.valueOf(deletedAt)},
+                    SyncChange.OP_RESTORE, updatedAt);
+            if (rowsRestored > 0) {
+                onWorkoutsChanged(updatedAt);
+            }
+            return rowsRestored;
+        } finally {
+            WorkoutMetrics.end("db.restoreDeletedAt", start);
+        }
+    }
+
+    /**
+     * Permanently removes up to {@code batchSize} tombstones older than the given timestamp.
+     * Each batch is its own short transaction so other writers are never blocked for long.
+     *
+     * @return The number of purged rows, 0 once no eligible tombstones remain
+     */
+    public int purgeTombstones(long deletedBefore, int batchSize) {
+        long start = WorkoutMetrics.begin("db.purgeTombstones");
+        int purged = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            // Ordered by the tombstone index so both deletes pick the same batch
+            String batch = "SELECT " + COLUMN_ID + " FROM " + TABLE_WORKOUTS + " WHERE " + COLUMN_DELETED_AT +
+                    " IS NOT NULL AND " + COLUMN_DELETED_AT + " < ? ORDER BY " + COLUMN_DELETED_AT + ", " + COLUMN_ID + " LIMIT ?";
+            String[] args = {String.valueOf(deletedBefore), String.valueOf(batchSize)};
+            db.beginTransaction();
+            try {
+                // Tombstoned sets no longer count towards the exercise totals, they only need removing
+                db.delete(TABLE_SETS, COLUMN_WORKOUT_ID + " IN (" + batch + ")", args);
+                db.execSQL("INSERT OR REPLACE INTO " + TABLE_PURGED + " (" + COLUMN_UUID + ", " + COLUMN_UPDATED_AT +
+                        ") SELECT " + COLUMN_UUID + ", " + COLUMN_UPDATED_AT + " FROM " + TABLE_WORKOUTS + " WHERE " +
+                        COLUMN_ID + " IN (" + batch + ")", args);
+                purged = db.delete(TABLE_WORKOUTS, COLUMN_ID + " IN (" + batch + ")", args);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            return purged;
+        } finally {
+            WorkoutMetrics.end("db.purgeTombstones", start, purged, purged);
+        }
+    }
+
+    /**
+     * Forgets purged tombstones last written before the given timestamp. Changes older than that
+     * are no longer expected from other devices.
+     *
+     * @return The number of forgotten workouts
+     */
+    public int forgetPurgedWorkouts(long updatedBefore) {
+        return this.getWritableDatabase().delete(TABLE_PURGED, COLUMN_UPDATED_AT + " < ?",
+                new String[]{String.valueOf(updatedBefore)});
+    }
+
+    /**
+     * Switches a database created before version 3 to incremental auto-vacuum. This needs a full
+     * VACUUM that rewrites the whole file and blocks every writer meanwhile, so it is only run from
+     * {@link DatabaseMaintenance} while the device is idle and charging.
+     *
+     * @return True if the file was converted, false if it already used incremental auto-vacuum
+     */
+    public boolean enableIncrementalVacuum() {
+        long start = WorkoutMetrics.begin("db.enableIncrementalVacuum");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            if (readPragma(db, "auto_vacuum") == 2) {
+                return false;
+            }
+            // The mode only takes effect once VACUUM rewrites the file
+            db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+            db.execSQL("VACUUM");
+            return true;
+        } finally {
+            WorkoutMetrics.end("db.enableIncrementalVacuum", start);
+        }
+    }
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                ids.add(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)));
-            } while (cursor.moveToNext());
+    /**
+     * Returns up to {@code maxPages} free pages to the file system. Does nothing until the file uses
+     * incremental auto-vacuum, see {@link #enableIncrementalVacuum}.
+     *
+     * @return The number of bytes reclaimed
+     */
+    public long incrementalVacuum(int maxPages) {
+        long start = WorkoutMetrics.begin("db.incrementalVacuum");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            if (readPragma(db, "auto_vacuum") != 2) {
+                return 0;
+            }
+
+            long pageSize = readPragma(db, "page_size");
+            long freeBefore = readPragma(db, "freelist_count");
+            // Stepping the cursor to completion is what actually runs the vacuum, rawQuery counts the rows
+            rawQuery(db, "PRAGMA incremental_vacuum(" + maxPages + ")", null).close();
+            return (freeBefore - readPragma(db, "freelist_count")) * pageSize;
+        } finally {
+            WorkoutMetrics.end("db.incrementalVacuum", start);
+        }
+    }
+
+    /**
+     * Backs up the database file while it cannot change: the write-ahead log is checkpointed into the
+     * main file and the write lock is held until the engine has read it. Readers are not blocked.
+     */
+    public PageBackupEngine.Result backupTo(PageBackupEngine engine) throws IOException {
+        long start = WorkoutMetrics.begin("db.backup");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            File databaseFile = new File(db.getPath());
+            File walFile = new File(db.getPath() + "-wal");
+            for (int attempt = 0; ; attempt++) {
+                // Stepping the cursor runs the checkpoint, TRUNCATE leaves an empty log behind
+                rawQuery(db, "PRAGMA wal_checkpoint(TRUNCATE)", null).close();
+
+                db.beginTransaction();
+                try {
+                    // A write may have slipped in between the checkpoint and taking the lock
+                    if (walFile.length() == 0 || attempt >= 2) {
+                        if (walFile.length() != 0) {
+                            throw new IOException("Database is too busy to back up");
+                        }
+                        // The header of an encrypted database is not readable, so the page size comes from SQLite
+                        PageBackupEngine.Result result = engine.backup(databaseFile, (int) readPragma(db, "page_size"));
+                        db.setTransactionSuccessful();
+                        return result;
+                    }
+                } finally {
+                    db.endTransaction();
+                }
+            }
+        } finally {
+            WorkoutMetrics.end("db.backup", start);
+        }
+    }
+
+    /**
+     * Replaces the contents of every table with those of a restored copy of this database, in one
+     * transaction on the live connection. Writers on other threads wait for it like for any other write,
+     * so none is lost or lands in a file that is being swapped out, and no open screen has to reopen.
+     *
+     * @throws IOException If the copy was made with a different schema version
+     */
+    void replaceContentsWith(File source) throws IOException {
+        long start = WorkoutMetrics.begin("db.replaceContents");
+        int rows = 0;
+        try {
+            SQLiteDatabase restored = SQLiteDatabase.openDatabase(source.getPath(), passphrase, null,
+                    SQLiteDatabase.OPEN_READONLY, null, null);
+            SQLiteDatabase db = this.getWritableDatabase();
+            try {
+                if (restored.getVersion() != DATABASE_VERSION) {
+                    throw new IOException("Backup has schema version " + restored.getVersion() + ", expected " +
+                            DATABASE_VERSION);
+                }
+                List<String> tables = new ArrayList<>();
+                try (Cursor cursor = rawQuery(db, "SELECT name FROM sqlite_master WHERE type = 'table' AND " +
+                        "name NOT LIKE 'sqlite_stat%' AND name != 'android_metadata'", (String[]) null)) {
+                    while (cursor.moveToNext()) {
+                        tables.add(cursor.getString(0));
+                    }
+                }
+
+                db.beginTransaction();
+                try {
+                    for (String table : tables) {
+                        db.delete(table, null, null);
+                        rows += copyRows(restored, db, table);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } finally {
+                restored.close();
+            }
+
+            advanceUpdatedAt(DatabaseUtils.longForQuery(db, "SELECT COALESCE(MAX(" + COLUMN_UPDATED_AT + "), 0) FROM " +
+                    TABLE_WORKOUTS, null));
+            HistoryWarmCache.invalidate();
+            invalidateSeries();
+        } finally {
+            WorkoutMetrics.end("db.replaceContents", start, rows, rows);
+        }
+    }
+
+    /**
+     * Copies every row of a table by column name, keeping each value's storage class.
+     *
+     * @return The number of copied rows
+     */
+    private static int copyRows(SQLiteDatabase from, SQLiteDatabase to, String table) {
+        try (Cursor cursor = from.rawQuery("SELECT * FROM " + table, (String[]) null)) {
+            String[] columns = cursor.getColumnNames();
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+            for (int i = 0; i < columns.length; i++) {
+                sql.append(i == 0 ? "" : ", ").append(columns[i]);
+            }
+            sql.append(") VALUES (");
+            for (int i = 0; i < columns.length; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            SQLiteStatement insert = to.compileStatement(sql.append(')').toString());
+            try {
+                while (cursor.moveToNext()) {
+                    for (int i = 0; i < columns.length; i++) {
+                        switch (cursor.getType(i)) {
+                            case Cursor.FIELD_TYPE_NULL:
+                                insert.bindNull(i + 1);
+                                break;
+                            case Cursor.FIELD_TYPE_INTEGER:
+                                insert.bindLong(i + 1, cursor.getLong(i));
+                                break;
+                            case Cursor.FIELD_TYPE_FLOAT:
+                                insert.bindDouble(i + 1, cursor.getDouble(i));
+                                break;
+                            case Cursor.FIELD_TYPE_BLOB:
+                                insert.bindBlob(i + 1, cursor.getBlob(i));
+                                break;
+                            default:
+                                insert.bindString(i + 1, cursor.getString(i));
+                                break;
+                        }
+                    }
+                    insert.executeInsert();
+                }
+            } finally {
+                insert.close();
+            }
+            return cursor.getCount();
+        }
+    }
+
+    private long readPragma(SQLiteDatabase db, String pragma) {
+        Cursor cursor = rawQuery(db, "PRAGMA " + pragma, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
             cursor.close();
         }
+    }
 
-        return ids;
+    /**
+     * Refreshes the query planner's statistics. The first run analyzes everything; later runs use
+     * PRAGMA optimize, which only re-analyzes tables whose statistics are likely stale. SQLite before
+     * 3.18 ignores that pragma, so those always run a full ANALYZE.
+     */
+    public void analyze() {
+        long start = WorkoutMetrics.begin("db.analyze");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            boolean hasStatistics = DatabaseUtils.longForQuery(db,
+                    "SELECT COUNT(*) FROM sqlite_master WHERE name = 'sqlite_stat1'", null) > 0;
+            if (hasStatistics && supportsOptimize(DatabaseUtils.stringForQuery(db, "SELECT sqlite_version()", null))) {
+                db.execSQL("PRAGMA optimize");
+            } else {
+                db.execSQL("ANALYZE");
+            }
+        } finally {
+            WorkoutMetrics.end("db.analyze", start);
+        }
+    }
+
+    private static boolean supportsOptimize(String sqliteVersion) {
+        String[] parts = sqliteVersion.split("\\.");
+        int major = Integer.parseInt(parts[0]);
+        int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+        return major > 3 || (major == 3 && minor >= 18);
     }
 
     /**
-     * Deletes all workouts from the database.
+     * Runs PRAGMA integrity_check.
+     *
+     * @param maxErrors The maximum number of problems to report
+     * @return The problems found, empty if the database is intact
      */
-    public void deleteAllWorkouts() {
-        SQLiteDatabase db = this.getWritableDatabase();
-        db.delete(TABLE_WORKOUTS, null, null);
+    public List<String> checkIntegrity(int maxErrors) {
+        long start = WorkoutMetrics.begin("db.checkIntegrity");
+        List<String> problems = new ArrayList<>();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = rawQuery(db, "PRAGMA integrity_check(" + maxErrors + ")", null);
+            try {
+                while (cursor.moveToNext()) {
+                    String line = cursor.getString(0);
+                    if (!"ok".equals(line)) {
+                        problems.add(line);
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+            return problems;
+        } finally {
+            WorkoutMetrics.end("db.checkIntegrity", start, problems.size(), problems.size());
+        }
     }
 
     /**
-     * Deletes a specific workout by ID.
+     * Rebuilds every index from its table, which repairs indexes that integrity_check reports as inconsistent.
      */
-    public boolean deleteWorkoutById(int id) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        int rowsDeleted = db.delete(TABLE_WORKOUTS, COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
-        return rowsDeleted > 0;
+    public void reindex() {
+        long start = WorkoutMetrics.begin("db.reindex");
+        try {
+            this.getWritableDatabase().execSQL("REINDEX");
+        } finally {
+            WorkoutMetrics.end("db.reindex", start);
+        }
     }
 
     /**
      * Updates an existing workout in the database.
      */
     public boolean updateWorkout(int id, String name, String duration, String type) {
+        long start = WorkoutMetrics.begin("db.updateWorkout");
+        try {
+            long updatedAt = nextUpdatedAt();
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_NAME, name);
+            values.put(COLUMN_DURATION, duration);
+            values.put(COLUMN_TYPE, type);
+            values.put(COLUMN_UPDATED_AT, updatedAt);
+
+            int rowsUpdated = updateAndRecord(values, COLUMN_ID + " = ? AND " + LIVE, new String[]{String.valueOf(id)},
+                    SyncChange.OP_UPDATE, updatedAt);
+            if (rowsUpdated > 0) {
+                onWorkoutsChanged(updatedAt);
+            }
+            return rowsUpdated > 0;
+        } finally {
+            WorkoutMetrics.end("db.updateWorkout", start);
+        }
+    }
+
+    /**
+     * Marks a workout as complete.
+     */
+    public boolean markWorkoutAsComplete(int id) {
+        long start = WorkoutMetrics.begin("db.markWorkoutAsComplete");
+        try {
+            long updatedAt = nextUpdatedAt();
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_COMPLETED, 1); // Set to completed
+            values.put(COLUMN_UPDATED_AT, updatedAt);
+
+            int rowsUpdated = updateAndRecord(values, COLUMN_ID + " = ? AND " + LIVE, new String[]{String.valueOf(id)},
+                    SyncChange.OP_COMPLETE, updatedAt);
+            if (rowsUpdated > 0) {
+                onWorkoutsChanged(updatedAt);
+            }
+            return rowsUpdated > 0;
+        } finally {
+            WorkoutMetrics.end("db.markWorkoutAsComplete", start);
+        }
+    }
+
+    /**
+     * Updates workouts and records the resulting rows in the outbox within one transaction.
+     *
+     * @return The number of updated workouts
+     */
+    private int updateAndRecord(ContentValues values, String selection, String[] selectionArgs, String op, long updatedAt) {
         SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            int rowsUpdated = db.update(TABLE_WORKOUTS, values, selection, selectionArgs);
+            if (rowsUpdated > 0) {
+                recordWrite(db, op, updatedAt);
+            }
+            db.setTransactionSuccessful();
+            return rowsUpdated;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Saves a workout template.
+     *
+     * @return The new template ID, or -1 on failure
+     */
+    public long addTemplate(String name, String duration, String type) {
+        long start = WorkoutMetrics.begin("db.addTemplate");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_NAME, name);
+            values.put(COLUMN_DURATION, duration);
+            values.put(COLUMN_TYPE, type);
+            return db.insert(TABLE_TEMPLATES, null, values);
+        } finally {
+            WorkoutMetrics.end("db.addTemplate", start);
+        }
+    }
+
+    /**
+     * Retrieves all templates as {id, name, duration, type}, sorted by name.
+     */
+    public List<String[]> getTemplates() {
+        long start = WorkoutMetrics.begin("db.getTemplates");
+        List<String[]> templates = new ArrayList<>();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            try (Cursor cursor = query(db, TABLE_TEMPLATES, new String[]{COLUMN_ID, COLUMN_NAME, COLUMN_DURATION, COLUMN_TYPE},
+                    null, null, null, null, COLUMN_NAME + " COLLATE NOCASE")) {
+                while (cursor.moveToNext()) {
+                    templates.add(new String[]{cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(3)});
+                }
+            }
+            return templates;
+        } finally {
+            WorkoutMetrics.end("db.getTemplates", start, templates.size(), templates.size());
+        }
+    }
+
+    /**
+     * Saves a recurring plan for a template. Only the rule is stored, no workout rows are created.
+     *
+     * @return The new plan ID, or -1 on failure
+     */
+    public long addPlan(long templateId, RecurrenceRule rule) {
+        long start = WorkoutMetrics.begin("db.addPlan");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_TEMPLATE_ID, templateId);
+            values.put(COLUMN_START_DAY, rule.getStartDay());
+            values.put(COLUMN_END_DAY, rule.getEndDay());
+            values.put(COLUMN_WEEKDAY_MASK, rule.getWeekdayMask());
+            values.put(COLUMN_INTERVAL_WEEKS, rule.getIntervalWeeks());
+            return db.insert(TABLE_PLANS, null, values);
+        } finally {
+            WorkoutMetrics.end("db.addPlan", start);
+        }
+    }
+
+    /**
+     * Retrieves the plans that are active at some point within [fromDay, toDay].
+     */
+    public List<WorkoutPlan> getPlansInWindow(int fromDay, int toDay) {
+        long start = WorkoutMetrics.begin("db.getPlansInWindow");
+        List<WorkoutPlan> plans = new ArrayList<>();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            try (Cursor cursor = rawQuery(db, "SELECT p." + COLUMN_ID + ", p." + COLUMN_TEMPLATE_ID + ", t." + COLUMN_NAME +
+                    ", t." + COLUMN_DURATION + ", t." + COLUMN_TYPE + ", p." + COLUMN_START_DAY + ", p." + COLUMN_END_DAY +
+                    ", p." + COLUMN_WEEKDAY_MASK + ", p." + COLUMN_INTERVAL_WEEKS +
+                    " FROM " + TABLE_PLANS + " p JOIN " + TABLE_TEMPLATES + " t ON t." + COLUMN_ID + " = p." + COLUMN_TEMPLATE_ID +
+                    " WHERE p." + COLUMN_START_DAY + " <= ? AND p." + COLUMN_END_DAY + " >= ?",
+                    new String[]{String.valueOf(toDay), String.valueOf(fromDay)})) {
+                while (cursor.moveToNext()) {
+                    RecurrenceRule rule = new RecurrenceRule(cursor.getInt(5), cursor.getInt(6), cursor.getInt(7), cursor.getInt(8));
+                    plans.add(new WorkoutPlan(cursor.getLong(0), cursor.getLong(1), cursor.getString(2),
+                            cursor.getString(3), cursor.getString(4), rule));
+                }
+            }
+            return plans;
+        } finally {
+            WorkoutMetrics.end("db.getPlansInWindow", start, plans.size(), plans.size());
+        }
+    }
+
+    /**
+     * Retrieves which plan occurrences within [fromDay, toDay] have been logged as workouts.
+     *
+     * @return Keys built with {@link PlanSchedule#occurrenceKey}
+     */
+    public Set<Long> getLoggedOccurrences(int fromDay, int toDay) {
+        long start = WorkoutMetrics.begin("db.getLoggedOccurrences");
+        Set<Long> logged = new HashSet<>();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            try (Cursor cursor = query(db, TABLE_WORKOUTS, new String[]{COLUMN_PLAN_ID, COLUMN_OCCURRENCE_DAY},
+                    COLUMN_OCCURRENCE_DAY + " BETWEEN ? AND ? AND " + COLUMN_PLAN_ID + " IS NOT NULL AND " + LIVE,
+                    new String[]{String.valueOf(fromDay), String.valueOf(toDay)}, null, null, null)) {
+                while (cursor.moveToNext()) {
+                    logged.add(PlanSchedule.occurrenceKey(cursor.getLong(0), cursor.getInt(1)));
+                }
+            }
+            return logged;
+        } finally {
+            WorkoutMetrics.end("db.getLoggedOccurrences", start, logged.size(), logged.size());
+        }
+    }
+
+    /**
+     * Logs a plan occurrence, creating its workout row. A previously deleted log of the same
+     * occurrence is revived instead, since the occurrence can only have one row.
+     */
+    public boolean logPlanOccurrence(WorkoutPlan plan, int day, boolean completed) {
+        long start = WorkoutMetrics.begin("db.logPlanOccurrence");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            long updatedAt = nextUpdatedAt();
+            long workoutId;
+            db.beginTransaction();
+            try {
+                workoutId = writePlanOccurrence(db, plan, day, completed, updatedAt);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            if (workoutId != -1) {
+                onWorkoutsChanged(updatedAt);
+            }
+            return workoutId != -1;
+        } finally {
+            WorkoutMetrics.end("db.logPlanOccurrence", start);
+        }
+    }
+
+    /**
+     * Revives the deleted log of a plan occurrence or inserts its workout row, and records it in the
+     * outbox, inside the caller's transaction.
+     *
+     * @return The ID of the logged workout, or -1 if it could not be saved
+     */
+    private long writePlanOccurrence(SQLiteDatabase db, WorkoutPlan plan, int day, boolean completed, long updatedAt) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_COMPLETED, completed ? 1 : 0);
+        values.putNull(COLUMN_DELETED_AT);
+        values.put(COLUMN_UPDATED_AT, updatedAt);
+
+        String[] occurrence = {String.valueOf(plan.getId()), String.valueOf(day)};
+        int revived = db.update(TABLE_WORKOUTS, values, COLUMN_PLAN_ID + " = ? AND " + COLUMN_OCCURRENCE_DAY + " = ? AND " +
+                COLUMN_DELETED_AT + " IS NOT NULL", occurrence);
+
+        long workoutId;
+        if (revived > 0) {
+            workoutId = DatabaseUtils.longForQuery(db, "SELECT " + COLUMN_ID + " FROM " + TABLE_WORKOUTS + " WHERE " +
+                    COLUMN_PLAN_ID + " = ? AND " + COLUMN_OCCURRENCE_DAY + " = ?", occurrence);
+        } else {
+            values.put(COLUMN_NAME, plan.getName());
+            values.put(COLUMN_DURATION, plan.getDuration());
+            values.put(COLUMN_TYPE, plan.getType());
+            values.put(COLUMN_PLAN_ID, plan.getId());
+            values.put(COLUMN_OCCURRENCE_DAY, day);
+            values.put(COLUMN_DAY, day);
+            workoutId = db.insert(TABLE_WORKOUTS, null, values);
+        }
+        if (workoutId != -1) {
+            recordWrite(db, revived > 0 ? SyncChange.OP_RESTORE : SyncChange.OP_INSERT, updatedAt);
+        }
+        return workoutId;
+    }
+
+    /**
+     * Applies a batch of single-workout writes in one transaction, in order. A write with an expected
+     * version only applies if the workout still has that version; otherwise it completes as a conflict
+     * and the workout is left unchanged. Inserts, deletes and restores behave like {@link #addWorkout},
+     * {@link #deleteWorkoutById} and {@link #restoreWorkout}, plan occurrences like {@link #logPlanOccurrence}
+     * and strength sessions like {@link #addStrengthSession}. Used by {@link WorkoutWriteCoordinator}.
+     */
+    void applyWrites(List<WorkoutWrite> writes) {
+        long start = WorkoutMetrics.begin("db.applyWrites");
+        long[] writtenAt = new long[writes.size()];
+        int applied = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            // -1 when the workout does not exist or was deleted
+            SQLiteStatement selectVersion = db.compileStatement("SELECT COALESCE((SELECT " + COLUMN_VERSION + " FROM " +
+                    TABLE_WORKOUTS + " WHERE " + COLUMN_ID + " = ? AND " + LIVE + "), -1)");
+            boolean[] wasApplied = new boolean[writes.size()];
+            int[] versions = new int[writes.size()];
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < writes.size(); i++) {
+                    WorkoutWrite write = writes.get(i);
+                    long updatedAt = nextUpdatedAt();
+                    ContentValues values = new ContentValues(write.values);
+                    values.put(COLUMN_UPDATED_AT, updatedAt);
+
+                    long id = write.id;
+                    boolean written;
+                    if (write.plan != null) {
+                        // Records its own outbox entry, an insert or the restore of an earlier log
+                        id = writePlanOccurrence(db, write.plan, write.occurrenceDay,
+                                write.values.getAsInteger(COLUMN_COMPLETED) == 1, updatedAt);
+                        written = id != -1;
+                    } else if (write.sets != null) {
+                        id = writeStrengthSession(db, write.values.getAsString(COLUMN_NAME),
+                                write.values.getAsString(COLUMN_DURATION), write.sets, updatedAt);
+                        written = id != -1;
+                    } else if (write.op.equals(SyncChange.OP_INSERT)) {
+                        values.put(COLUMN_DAY, RecurrenceRule.today());
+                        id = db.insert(TABLE_WORKOUTS, null, values);
+                        written = id != -1;
+                        if (written) {
+                            recordWrite(db, write.op, updatedAt);
+                        }
+                    } else {
+                        String selection = COLUMN_ID + " = ? AND " + (write.op.equals(SyncChange.OP_RESTORE)
+                                ? COLUMN_DELETED_AT + " IS NOT NULL" : LIVE);
+                        String[] args = {String.valueOf(write.id)};
+                        if (write.expectedVersion != WorkoutWrite.ANY_VERSION) {
+                            selection += " AND " + COLUMN_VERSION + " = ?";
+                            args = new String[]{String.valueOf(write.id), String.valueOf(write.expectedVersion)};
+                        }
+                        if (write.op.equals(SyncChange.OP_DELETE)) {
+                            values.put(COLUMN_DELETED_AT, updatedAt);
+                        }
+                        written = db.update(TABLE_WORKOUTS, values, selection, args) > 0;
+                        if (written) {
+                            recordWrite(db, write.op, updatedAt);
+                        }
+                    }
+                    if (written) {
+                        writtenAt[applied++] = updatedAt;
+                        wasApplied[i] = true;
+                    }
+                    selectVersion.bindLong(1, id);
+                    versions[i] = (int) selectVersion.simpleQueryForLong();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                selectVersion.close();
+                db.endTransaction();
+            }
+
+            // Completed only after the commit, so no caller sees a write that could still roll back
+            for (int i = 0; i < writes.size(); i++) {
+                writes.get(i).complete(wasApplied[i] ? WorkoutWrite.Status.APPLIED
+                        : versions[i] < 0 ? WorkoutWrite.Status.NOT_FOUND : WorkoutWrite.Status.CONFLICT, versions[i]);
+            }
+            if (applied > 0) {
+                HistoryWarmCache.invalidate();
+                series.markDirty(writtenAt, applied);
+                WorkoutSummaryCache.requestRefresh(appContext, this);
+                SyncWorker.requestSync(appContext);
+            }
+        } finally {
+            WorkoutMetrics.end("db.applyWrites", start, writes.size(), applied);
+        }
+    }
+
+    /**
+     * Logs a strength workout with all its sets in one transaction. Sets are inserted through a single
+     * compiled statement, and each exercise's daily totals are updated once with the session's sums.
+     *
+     * @return The ID of the new workout, or -1 if it could not be saved
+     */
+    public long addStrengthSession(String name, String duration, List<WorkoutSet> sets) {
+        long start = WorkoutMetrics.begin("db.addStrengthSession");
+        long workoutId = -1;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            long updatedAt = nextUpdatedAt();
+            db.beginTransaction();
+            try {
+                workoutId = writeStrengthSession(db, name, duration, sets, updatedAt);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            if (workoutId != -1) {
+                onWorkoutsChanged(updatedAt);
+            }
+            return workoutId;
+        } finally {
+            WorkoutMetrics.end("db.addStrengthSession", start, sets.size(), workoutId != -1 ? sets.size() : 0);
+        }
+    }
+
+    /**
+     * Inserts a strength workout with its sets, adds them to the daily totals and records the workout in
+     * the outbox, inside the caller's transaction.
+     *
+     * @return The ID of the new workout, or -1 if it could not be saved
+     */
+    private long writeStrengthSession(SQLiteDatabase db, String name, String duration, List<WorkoutSet> sets,
+                                      long updatedAt) {
+        int day = RecurrenceRule.today();
         ContentValues values = new ContentValues();
         values.put(COLUMN_NAME, name);
         values.put(COLUMN_DURATION, duration);
-        values.put(COLUMN_TYPE, type);
+        values.put(COLUMN_TYPE, "Strength");
+        values.put(COLUMN_COMPLETED, 0);
+        values.put(COLUMN_UPDATED_AT, updatedAt);
+        values.put(COLUMN_DAY, day);
+
+        // Session sums per exercise: sets, reps, volume and best one-rep max
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        for (WorkoutSet set : sets) {
+            long[] total = totals.computeIfAbsent(set.exercise, exercise -> new long[4]);
+            total[0]++;
+            total[1] += set.reps;
+            total[2] += set.getVolume();
+            total[3] = Math.max(total[3], set.getOneRepMax());
+        }
 
-        int rowsUpdated = db.update(TABLE_WORKOUTS, values, COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
-        return rowsUpdated > 0;
+        long workoutId = db.insert(TABLE_WORKOUTS, null, values);
+        if (workoutId == -1) {
+            return -1;
+        }
+        SQLiteStatement insertSet = db.compileStatement("INSERT INTO " + TABLE_SETS + " (" + COLUMN_WORKOUT_ID + ", " +
+                COLUMN_POSITION + ", " + COLUMN_EXERCISE + ", " + COLUMN_REPS + ", " + COLUMN_WEIGHT_GRAMS + ", " +
+                COLUMN_DAY + ") VALUES (?, ?, ?, ?, ?, ?)");
+        // Upserts need SQLite 3.24, which SQLCipher's bundled build has on every API level
+        SQLiteStatement addTotals = db.compileStatement("INSERT INTO " + TABLE_EXERCISE_DAILY + " VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (" + COLUMN_EXERCISE + ", " + COLUMN_DAY + ") DO UPDATE SET " +
+                COLUMN_SETS + " = " + COLUMN_SETS + " + excluded." + COLUMN_SETS + ", " +
+                COLUMN_REPS + " = " + COLUMN_REPS + " + excluded." + COLUMN_REPS + ", " +
+                COLUMN_VOLUME + " = " + COLUMN_VOLUME + " + excluded." + COLUMN_VOLUME + ", " +
+                COLUMN_BEST_ONE_REP_MAX + " = MAX(" + COLUMN_BEST_ONE_REP_MAX + ", excluded." + COLUMN_BEST_ONE_REP_MAX + ")");
+        try {
+            for (int i = 0; i < sets.size(); i++) {
+                WorkoutSet set = sets.get(i);
+                insertSet.bindLong(1, workoutId);
+                insertSet.bindLong(2, i);
+                insertSet.bindString(3, set.exercise);
+                insertSet.bindLong(4, set.reps);
+                insertSet.bindLong(5, set.weightGrams);
+                insertSet.bindLong(6, day);
+                insertSet.executeInsert();
+            }
+            for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+                long[] total = entry.getValue();
+                addTotals.bindString(1, entry.getKey());
+                addTotals.bindLong(2, day);
+                for (int i = 0; i < total.length; i++) {
+                    addTotals.bindLong(i + 3, total[i]);
+                }
+                addTotals.execute();
+            }
+        } finally {
+            insertSet.close();
+            addTotals.close();
+        }
+        recordWrite(db, SyncChange.OP_INSERT, updatedAt);
+        return workoutId;
     }
 
     /**
-     * Marks a workout as complete.
+     * Returns the sets of a workout in the order they were logged.
      */
-    public boolean markWorkoutAsComplete(int id) {
+    public List<WorkoutSet> getWorkoutSets(int workoutId) {
+        long start = WorkoutMetrics.begin("db.getWorkoutSets");
+        List<WorkoutSet> sets = new ArrayList<>();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = rawQuery(db, "SELECT " + COLUMN_EXERCISE + ", " + COLUMN_REPS + ", " + COLUMN_WEIGHT_GRAMS +
+                    " FROM " + TABLE_SETS + " WHERE " + COLUMN_WORKOUT_ID + " = ? ORDER BY " + COLUMN_POSITION,
+                    new String[]{String.valueOf(workoutId)});
+            try {
+                while (cursor.moveToNext()) {
+                    sets.add(new WorkoutSet(cursor.getString(0), cursor.getInt(1), cursor.getInt(2)));
+                }
+            } finally {
+                cursor.close();
+            }
+            return sets;
+        } finally {
+            WorkoutMetrics.end("db.getWorkoutSets", start, sets.size(), sets.size());
+        }
+    }
+
+    /**
+     * Returns the daily volume and best estimated one-rep max of an exercise between two days, inclusive.
+     * Reads one primary key range of the daily totals, never the sets themselves.
+     */
+    public ExerciseProgress getExerciseProgress(String exercise, int fromDay, int toDay) {
+        long start = WorkoutMetrics.begin("db.getExerciseProgress");
+        int rows = 0;
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = rawQuery(db, "SELECT " + COLUMN_DAY + ", " + COLUMN_SETS + ", " + COLUMN_VOLUME + ", " +
+                    COLUMN_BEST_ONE_REP_MAX + " FROM " + TABLE_EXERCISE_DAILY + " WHERE " + COLUMN_EXERCISE + " = ? AND " +
+                    COLUMN_DAY + " BETWEEN ? AND ? ORDER BY " + COLUMN_DAY,
+                    new String[]{exercise.trim(), String.valueOf(fromDay), String.valueOf(toDay)});
+            try {
+                rows = cursor.getCount();
+                int[] days = new int[rows];
+                int[] sets = new int[rows];
+                long[] volumes = new long[rows];
+                int[] oneRepMaxes = new int[rows];
+                for (int i = 0; cursor.moveToNext(); i++) {
+                    days[i] = cursor.getInt(0);
+                    sets[i] = cursor.getInt(1);
+                    volumes[i] = cursor.getLong(2);
+                    oneRepMaxes[i] = cursor.getInt(3);
+                }
+                return new ExerciseProgress(exercise.trim(), days, sets, volumes, oneRepMaxes);
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            WorkoutMetrics.end("db.getExerciseProgress", start, rows, rows);
+        }
+    }
+
+    /**
+     * Soft-deletes all selected workouts in a single transaction.
+     *
+     * @return The tombstone timestamp to pass to {@link #restoreDeletedAt} for undo, or -1 if nothing was deleted
+     */
+    public long deleteWorkoutsByIds(List<Integer> ids) {
+        return deleteWorkoutsByIds(ids, null);
+    }
+
+    /**
+     * Soft-deletes all selected workouts in a single transaction and adds the IDs of the workouts
+     * that were live and got deleted to {@code deleted}.
+     */
+    public long deleteWorkoutsByIds(List<Integer> ids, Set<Integer> deleted) {
+        long start = WorkoutMetrics.begin("db.deleteWorkoutsByIds");
+        int rows = 0;
+        try {
+            long deletedAt = nextUpdatedAt();
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_DELETED_AT, deletedAt);
+            rows = updateSelected(ids, values, SyncChange.OP_DELETE, deletedAt, deleted);
+            return rows > 0 ? deletedAt : -1;
+        } finally {
+            WorkoutMetrics.end("db.deleteWorkoutsByIds", start, ids.size(), rows);
+        }
+    }
+
+    /**
+     * Marks all selected workouts as complete in a single transaction.
+     *
+     * @return The number of updated workouts
+     */
+    public int markWorkoutsAsComplete(List<Integer> ids) {
+        return markWorkoutsAsComplete(ids, null);
+    }
+
+    /**
+     * Marks all selected workouts as complete in a single transaction and adds the IDs of the
+     * updated workouts to {@code updated}.
+     */
+    public int markWorkoutsAsComplete(List<Integer> ids, Set<Integer> updated) {
+        long start = WorkoutMetrics.begin("db.markWorkoutsAsComplete");
+        int rows = 0;
+        try {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_COMPLETED, 1);
+            rows = updateSelected(ids, values, SyncChange.OP_COMPLETE, nextUpdatedAt(), updated);
+            return rows;
+        } finally {
+            WorkoutMetrics.end("db.markWorkoutsAsComplete", start, ids.size(), rows);
+        }
+    }
+
+    /**
+     * Changes the type of all selected workouts in a single transaction.
+     *
+     * @return The number of updated workouts
+     */
+    public int updateWorkoutsType(List<Integer> ids, String type) {
+        return updateWorkoutsType(ids, type, null);
+    }
+
+    /**
+     * Changes the type of all selected workouts in a single transaction and adds the IDs of the
+     * updated workouts to {@code updated}.
+     */
+    public int updateWorkoutsType(List<Integer> ids, String type, Set<Integer> updated) {
+        long start = WorkoutMetrics.begin("db.updateWorkoutsType");
+        int rows = 0;
+        try {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_TYPE, type);
+            rows = updateSelected(ids, values, SyncChange.OP_UPDATE, nextUpdatedAt(), updated);
+            return rows;
+        } finally {
+            WorkoutMetrics.end("db.updateWorkoutsType", start, ids.size(), rows);
+        }
+    }
+
+    /**
+     * Applies one UPDATE to every selected live workout. The IDs are loaded into a temp table
+     * with a compiled insert, so the statement is the same for any selection size and never
+     * hits the bound-parameter limit of an IN list. The updated rows are recorded in the outbox
+     * in the same transaction. Selected workouts that were deleted meanwhile are skipped; if
+     * {@code written} is not null, the IDs of the rows that were updated are added to it.
+     */
+    private int updateSelected(List<Integer> ids, ContentValues values, String op, long updatedAt, Set<Integer> written) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        values.put(COLUMN_UPDATED_AT, updatedAt);
+
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_COMPLETED, 1); // Set to completed
+        int rowsUpdated;
+        db.beginTransaction();
+        try {
+            db.execSQL("CREATE TEMP TABLE IF NOT EXISTS " + TABLE_SELECTED_IDS + " (" + COLUMN_ID + " INTEGER PRIMARY KEY)");
+            db.execSQL("DELETE FROM " + TABLE_SELECTED_IDS);
 
-        int rowsUpdated = db.update(TABLE_WORKOUTS, values, COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
-        return rowsUpdated > 0;
+            SQLiteStatement insert = db.compileStatement("INSERT OR IGNORE INTO " + TABLE_SELECTED_IDS + " VALUES (?)");
+            try {
+                for (int id : ids) {
+                    insert.bindLong(1, id);
+                    insert.executeInsert();
+                }
+            } finally {
+                insert.close();
+            }
+
+            rowsUpdated = db.update(TABLE_WORKOUTS, values, COLUMN_ID + " IN (SELECT " + COLUMN_ID + " FROM " +
+                    TABLE_SELECTED_IDS + ") AND " + LIVE, null);
+            if (rowsUpdated > 0) {
+                recordWrite(db, op, updatedAt);
+                if (written != null) {
+                    // No other row carries this write's timestamp, so it identifies exactly the updated ones
+                    try (Cursor cursor = rawQuery(db, "SELECT s." + COLUMN_ID + " FROM " + TABLE_SELECTED_IDS + " s JOIN " +
+                            TABLE_WORKOUTS + " w ON w." + COLUMN_ID + " = s." + COLUMN_ID + " WHERE w." + COLUMN_UPDATED_AT +
+                            " = ?", new String[]{String.valueOf(updatedAt)})) {
+                        while (cursor.moveToNext()) {
+                            written.add(cursor.getInt(0));
+                        }
+                    }
+                }
+            }
+            db.execSQL("DELETE FROM " + TABLE_SELECTED_IDS);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        // Only reached once the transaction committed
+        if (rowsUpdated > 0) {
+            onWorkoutsChanged(updatedAt);
+        }
+        return rowsUpdated;
     }
 
     /**
-     * Retrieves details of a specific workout.
+     * Returns this installation's sync ID, generating it on first use.
      */
-    public String[] getWorkoutDetails(int id) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_WORKOUTS, null, COLUMN_ID + " = ?", new String[]{String.valueOf(id)}, null, null, null);
+    @Override
+    public String getSyncDeviceId() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        String deviceId = readSyncState(db, STATE_DEVICE_ID);
+        if (deviceId == null) {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_KEY, STATE_DEVICE_ID);
+            values.put(COLUMN_VALUE, UUID.randomUUID().toString());
+            db.insertWithOnConflict(TABLE_SYNC_STATE, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+            deviceId = readSyncState(db, STATE_DEVICE_ID);
+        }
+        return deviceId;
+    }
+
+    /**
+     * Retrieves up to {@code limit} changes from the outbox, oldest first.
+     */
+    @Override
+    public List<SyncChange> getPendingChanges(int limit) {
+        long start = WorkoutMetrics.begin("db.getPendingChanges");
+        List<SyncChange> changes = new ArrayList<>();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            // The day never changes after insert, so it is joined from the workout instead of copied to the outbox
+            try (Cursor cursor = rawQuery(db, "SELECT o." + COLUMN_SEQ + ", o." + COLUMN_OP + ", o." + COLUMN_UUID + ", o." +
+                    COLUMN_NAME + ", o." + COLUMN_DURATION + ", o." + COLUMN_TYPE + ", o." + COLUMN_COMPLETED + ", o." +
+                    COLUMN_DELETED_AT + ", o." + COLUMN_UPDATED_AT + ", w." + COLUMN_DAY + " FROM " + TABLE_OUTBOX +
+                    " o LEFT JOIN " + TABLE_WORKOUTS + " w ON w." + COLUMN_UUID + " = o." + COLUMN_UUID +
+                    " ORDER BY o." + COLUMN_SEQ + " LIMIT " + limit, null)) {
+                while (cursor.moveToNext()) {
+                    changes.add(new SyncChange(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                            cursor.getString(3), cursor.getString(4), cursor.getString(5), cursor.getInt(6) == 1,
+                            cursor.isNull(7) ? 0 : cursor.getLong(7), cursor.getLong(8),
+                            cursor.isNull(9) ? 0 : cursor.getInt(9)));
+                }
+            }
+            return changes;
+        } finally {
+            WorkoutMetrics.end("db.getPendingChanges", start, changes.size(), changes.size());
+        }
+    }
 
-        if (cursor != null && cursor.moveToFirst()) {
-            String name = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME));
-            String duration = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DURATION));
-            String type = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TYPE));
+    /**
+     * Retrieves the number of changes waiting to be pushed.
+     */
+    public long getPendingChangeCount() {
+        return DatabaseUtils.queryNumEntries(this.getReadableDatabase(), TABLE_OUTBOX);
+    }
+
+    /**
+     * Removes the pushed changes from the outbox.
+     */
+    @Override
+    public void acknowledgeChanges(long seq) {
+        long start = WorkoutMetrics.begin("db.acknowledgeChanges");
+        int rows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            rows = db.delete(TABLE_OUTBOX, COLUMN_SEQ + " <= ?", new String[]{String.valueOf(seq)});
+        } finally {
+            WorkoutMetrics.end("db.acknowledgeChanges", start, rows, rows);
+        }
+    }
+
+    @Override
+    public long getPullCursor() {
+        String cursor = readSyncState(this.getReadableDatabase(), STATE_PULL_CURSOR);
+        return cursor != null ? Long.parseLong(cursor) : 0;
+    }
+
+    /**
+     * Merges pulled changes into the workouts table. A remote change replaces the local row only if it
+     * was written later; unknown workouts are inserted, unless they were deleted and purged here after the
+     * change was written. Merged rows are not recorded in the outbox.
+     */
+    @Override
+    public int applyRemoteChanges(List<SyncChange> changes, long cursor) {
+        long start = WorkoutMetrics.begin("db.applyRemoteChanges");
+        int applied = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            // -1 when the workout is not known locally yet
+            SQLiteStatement selectUpdatedAt = db.compileStatement("SELECT COALESCE((SELECT " + COLUMN_UPDATED_AT +
+                    " FROM " + TABLE_WORKOUTS + " WHERE " + COLUMN_UUID + " = ?), -1)");
+            // -1 unless the workout was deleted here and its tombstone purged since
+            SQLiteStatement selectPurgedAt = db.compileStatement("SELECT COALESCE((SELECT " + COLUMN_UPDATED_AT +
+                    " FROM " + TABLE_PURGED + " WHERE " + COLUMN_UUID + " = ?), -1)");
+            // Both statements bind the same columns in the same order, with the UUID last.
+            // A known day is kept, and workouts from clients that send none are dated today.
+            SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_WORKOUTS + " SET " + COLUMN_NAME + " = ?, " +
+                    COLUMN_DURATION + " = ?, " + COLUMN_TYPE + " = ?, " + COLUMN_COMPLETED + " = ?, " +
+                    COLUMN_DELETED_AT + " = ?, " + COLUMN_UPDATED_AT + " = ?, " + COLUMN_DAY + " = COALESCE(" +
+                    COLUMN_DAY + ", ?), " + COLUMN_VERSION + " = " + COLUMN_VERSION + " + 1 WHERE " + COLUMN_UUID + " = ?");
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_WORKOUTS + " (" + COLUMN_NAME + ", " +
+                    COLUMN_DURATION + ", " + COLUMN_TYPE + ", " + COLUMN_COMPLETED + ", " + COLUMN_DELETED_AT + ", " +
+                    COLUMN_UPDATED_AT + ", " + COLUMN_DAY + ", " + COLUMN_UUID + ") VALUES (?, ?, ?, ?, ?, ?, COALESCE(?, " +
+                    RecurrenceRule.today() + "), ?)");
+            long[] appliedAt = new long[changes.size()];
+            db.beginTransaction();
+            try {
+                for (SyncChange change : changes) {
+                    selectUpdatedAt.bindString(1, change.uuid);
+                    long localUpdatedAt = selectUpdatedAt.simpleQueryForLong();
+                    SQLiteStatement write;
+                    if (localUpdatedAt >= 0) {
+                        write = change.winsOver(localUpdatedAt) ? update : null;
+                    } else {
+                        // A purged workout only comes back for a change written after its delete
+                        selectPurgedAt.bindString(1, change.uuid);
+                        long purgedAt = selectPurgedAt.simpleQueryForLong();
+                        write = purgedAt < 0 || change.winsOver(purgedAt) ? insert : null;
+                    }
+                    if (write != null) {
+                        bindRemoteChange(write, change);
+                        write.execute();
+                        advanceUpdatedAt(change.updatedAt);
+                        if (write == update) {
+                            // The change may have deleted or restored a workout with local sets
+                            refreshExerciseTotals(db, COLUMN_UUID, change.uuid);
+                        }
+                        appliedAt[applied++] = change.updatedAt;
+                    }
+                }
+
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_KEY, STATE_PULL_CURSOR);
+                values.put(COLUMN_VALUE, String.valueOf(cursor));
+                db.insertWithOnConflict(TABLE_SYNC_STATE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                db.setTransactionSuccessful();
+            } finally {
+                selectUpdatedAt.close();
+                selectPurgedAt.close();
+                update.close();
+                insert.close();
+                db.endTransaction();
+            }
+            if (applied > 0) {
+                // Only the caches need refreshing, pulled changes must not trigger another push
+                HistoryWarmCache.invalidate();
+                series.markDirty(appliedAt, applied);
+                WorkoutSummaryCache.requestRefresh(appContext, this);
+            }
+            return applied;
+        } finally {
+            WorkoutMetrics.end("db.applyRemoteChanges", start, changes.size(), applied);
+        }
+    }
+
+    private void bindRemoteChange(SQLiteStatement statement, SyncChange change) {
+        statement.bindString(1, change.name);
+        statement.bindString(2, change.duration);
+        statement.bindString(3, change.type);
+        statement.bindLong(4, change.completed ? 1 : 0);
+        if (change.isDeleted()) {
+            statement.bindLong(5, change.deletedAt);
+        } else {
+            statement.bindNull(5);
+        }
+        statement.bindLong(6, change.updatedAt);
+        if (change.day != 0) {
+            statement.bindLong(7, change.day);
+        } else {
+            statement.bindNull(7);
+        }
+        statement.bindString(8, change.uuid);
+    }
+
+    private String readSyncState(SQLiteDatabase db, String key) {
+        Cursor cursor = rawQuery(db, "SELECT " + COLUMN_VALUE + " FROM " + TABLE_SYNC_STATE + " WHERE " + COLUMN_KEY + " = ?",
+                new String[]{key});
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
             cursor.close();
-            return new String[]{name, duration, type};
         }
-        return null;
+    }
+
+    /**
+     * Retrieves details of a specific workout: name, duration, type and the row version to pass
+     * to {@link WorkoutWrite#update} when saving an edit.
+     */
+    public String[] getWorkoutDetails(int id) {
+        long start = WorkoutMetrics.begin("db.getWorkoutDetails");
+        int rows = 0;
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = query(db, TABLE_WORKOUTS, null, COLUMN_ID + " = ? AND " + LIVE, new String[]{String.valueOf(id)}, null, null, null);
+
+            if (cursor != null && cursor.moveToFirst()) {
+                rows = 1;
+                String name = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME));
+                String duration = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DURATION));
+                String type = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TYPE));
+                String version = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_VERSION));
+                cursor.close();
+                return new String[]{name, duration, type, version};
+            }
+            return null;
+        } finally {
+            WorkoutMetrics.end("db.getWorkoutDetails", start, rows, rows);
+        }
+    }
+
+    /**
+     * Returns the name, duration and type of the most recently added workout, or null if there is none.
+     */
+    public String[] getLastWorkoutDetails() {
+        long start = WorkoutMetrics.begin("db.getLastWorkoutDetails");
+        int rows = 0;
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = rawQuery(db, "SELECT " + COLUMN_NAME + ", " + COLUMN_DURATION + ", " + COLUMN_TYPE + " FROM " +
+                    TABLE_WORKOUTS + " WHERE " + LIVE + " ORDER BY " + COLUMN_ID + " DESC LIMIT 1", null);
+            try {
+                if (cursor.moveToFirst()) {
+                    rows = 1;
+                    return new String[]{cursor.getString(0), cursor.getString(1), cursor.getString(2)};
+                }
+                return null;
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            WorkoutMetrics.end("db.getLastWorkoutDetails", start, rows, rows);
+        }
+    }
+
+    /**
+     * Reads the daily totals of the week ending on {@code today} from the covering day index.
+     */
+    public WorkoutSummary getRecentSummary(int today) {
+        long start = WorkoutMetrics.begin("db.getRecentSummary");
+        int rows = 0;
+        try {
+            WorkoutSummary summary = WorkoutSummary.empty(today);
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = rawQuery(db, "SELECT " + COLUMN_DAY + ", COUNT(*), SUM(" + COLUMN_DURATION + ") FROM " +
+                    TABLE_WORKOUTS + " WHERE " + LIVE + " AND " + COLUMN_DAY + " BETWEEN ? AND ? GROUP BY " + COLUMN_DAY,
+                    new String[]{String.valueOf(summary.getFirstDay()), String.valueOf(today)});
+            try {
+                while (cursor.moveToNext()) {
+                    summary.putDay(cursor.getInt(0), cursor.getInt(1), cursor.getInt(2));
+                    rows++;
+                }
+            } finally {
+                cursor.close();
+            }
+            return summary;
+        } finally {
+            WorkoutMetrics.end("db.getRecentSummary", start, rows, rows);
+        }
     }
 
     /**
      * Retrieves the total number of workouts.
      */
     public int getTotalWorkouts() {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_WORKOUTS, null);
-        if (cursor != null && cursor.moveToFirst()) {
-            int count = cursor.getInt(0);
-            cursor.close();
-            return count;
+        long start = WorkoutMetrics.begin("db.getTotalWorkouts");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = rawQuery(db, "SELECT COUNT(*) FROM " + TABLE_WORKOUTS + " WHERE " + LIVE, null);
+            if (cursor != null && cursor.moveToFirst()) {
+                int count = cursor.getInt(0);
+                cursor.close();
+                return count;
+            }
+            return 0;
+        } finally {
+            WorkoutMetrics.end("db.getTotalWorkouts", start, 1, 1);
         }
-        return 0;
     }
 
     /**
      * Retrieves the total duration of all workouts.
      */
     public int getTotalDuration() {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT SUM(" + COLUMN_DURATION + ") FROM " + TABLE_WORKOUTS, null);
-        if (cursor != null && cursor.moveToFirst()) {
-            int totalDuration = cursor.getInt(0);
-            cursor.close();
-            return totalDuration;
+        long start = WorkoutMetrics.begin("db.getTotalDuration");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = rawQuery(db, "SELECT SUM(" + COLUMN_DURATION + ") FROM " + TABLE_WORKOUTS + " WHERE " + LIVE, null);
+            if (cursor != null && cursor.moveToFirst()) {
+                int totalDuration = cursor.getInt(0);
+                cursor.close();
+                return totalDuration;
+            }
+            return 0;
+        } finally {
+            WorkoutMetrics.end("db.getTotalDuration", start, 1, 1);
+        }
+    }
+
+    /**
+     * Retrieves a chart series of daily workout totals for [fromDay, toDay] with at most {@code maxPoints}
+     * points, typically the chart's width in pixels. Only days written since the last call are read back.
+     */
+    public WorkoutSeries.Series getSeries(WorkoutSeries.Metric metric, WorkoutSeries.Downsampling downsampling,
+                                          int fromDay, int toDay, int maxPoints) {
+        long start = WorkoutMetrics.begin("db.getSeries");
+        WorkoutSeries.Series result = null;
+        try {
+            result = series.get(metric, downsampling, fromDay, toDay, maxPoints);
+            return result;
+        } finally {
+            int points = result != null ? result.size() : 0;
+            WorkoutMetrics.end("db.getSeries", start, points, points);
+        }
+    }
+
+    /**
+     * Returns the day of the oldest workout, where charts of the whole history start.
+     */
+    public int getFirstSeriesDay() {
+        return series.getFirstDay();
+    }
+
+    /**
+     * Drops the chart series and refreshes the widget summary, for when the database file was replaced.
+     */
+    void invalidateSeries() {
+        series.invalidate();
+        WorkoutSummaryCache.requestRefresh(appContext, this);
+    }
+
+    /**
+     * Reads daily totals for {@link WorkoutSeries} from the covering day index.
+     */
+    private final class DailyTotalsSource implements WorkoutSeries.Source {
+
+        // Stays well below SQLite's limit of 999 bound parameters
+        private static final int MAX_IN_LIST = 500;
+
+        @Override
+        public void loadDailyTotals(int[] days, WorkoutSeries target) {
+            SQLiteDatabase db = getReadableDatabase();
+            String select = "SELECT " + COLUMN_DAY + ", COUNT(*), SUM(" + COLUMN_DURATION + ") FROM " + TABLE_WORKOUTS +
+                    " WHERE " + LIVE + " AND ";
+            String groupBy = " GROUP BY " + COLUMN_DAY + " ORDER BY " + COLUMN_DAY;
+            if (days == null) {
+                readTotals(rawQuery(db, select + COLUMN_DAY + " IS NOT NULL" + groupBy, null), target);
+                return;
+            }
+            for (int from = 0; from < days.length; from += MAX_IN_LIST) {
+                int to = Math.min(days.length, from + MAX_IN_LIST);
+                String[] args = new String[to - from];
+                for (int i = from; i < to; i++) {
+                    args[i - from] = String.valueOf(days[i]);
+                }
+                readTotals(rawQuery(db, select + COLUMN_DAY + " IN (" + placeholders(args.length) + ")" + groupBy, args), target);
+            }
+        }
+
+        @Override
+        public int[] getDaysWrittenAt(long[] updatedAt, int count) {
+            SQLiteDatabase db = getReadableDatabase();
+            int[] days = new int[0];
+            for (int from = 0; from < count; from += MAX_IN_LIST) {
+                int to = Math.min(count, from + MAX_IN_LIST);
+                String[] args = new String[to - from];
+                for (int i = from; i < to; i++) {
+                    args[i - from] = String.valueOf(updatedAt[i]);
+                }
+                Cursor cursor = rawQuery(db, "SELECT DISTINCT " + COLUMN_DAY + " FROM " + TABLE_WORKOUTS + " WHERE " +
+                        COLUMN_UPDATED_AT + " IN (" + placeholders(args.length) + ") AND " + COLUMN_DAY + " IS NOT NULL", args);
+                try {
+                    int offset = days.length;
+                    days = Arrays.copyOf(days, offset + cursor.getCount());
+                    for (int i = offset; cursor.moveToNext(); i++) {
+                        days[i] = cursor.getInt(0);
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+            return days;
+        }
+
+        private void readTotals(Cursor cursor, WorkoutSeries target) {
+            try {
+                while (cursor.moveToNext()) {
+                    target.putDay(cursor.getInt(0), cursor.getInt(1), cursor.getFloat(2));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        private String placeholders(int count) {
+            StringBuilder sql = new StringBuilder(count * 3);
+            for (int i = 0; i < count; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            return sql.toString();
         }
-        return 0;
     }
 
     /**
      * Retrieves the most frequent workout type.
      */
     public String getMostFrequentWorkoutType() {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(
-                "SELECT " + COLUMN_TYPE + ", COUNT(" + COLUMN_TYPE + ") AS type_count " +
-                        "FROM " + TABLE_WORKOUTS + " GROUP BY " + COLUMN_TYPE +
-                        " ORDER BY type_count DESC LIMIT 1", null);
-        if (cursor != null && cursor.moveToFirst()) {
-            String type = cursor.getString(0);
-            cursor.close();
-            return type;
+        long start = WorkoutMetrics.begin("db.getMostFrequentWorkoutType");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = rawQuery(db,
+                    "SELECT " + COLUMN_TYPE + ", COUNT(" + COLUMN_TYPE + ") AS type_count " +
+                            "FROM " + TABLE_WORKOUTS + " WHERE " + LIVE + " GROUP BY " + COLUMN_TYPE +
+                            " ORDER BY type_count DESC LIMIT 1", null);
+            if (cursor != null && cursor.moveToFirst()) {
+                String type = cursor.getString(0);
+                cursor.close();
+                return type;
+            }
+            return "None";
+        } finally {
+            WorkoutMetrics.end("db.getMostFrequentWorkoutType", start, 1, 1);
         }
-        return "None";
     }
     public List<String> getWorkoutsByType(String type) {
-        List<String> workouts = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_WORKOUTS, null, COLUMN_TYPE + " = ?", new String[]{type}, null, null, COLUMN_ID + " DESC");
-
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                String workout = "Name: " + cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME)) +
-                        "\nDuration: " + cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DURATION)) +
-                        " minutes\nType: " + cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TYPE));
-                workouts.add(workout);
-            } while (cursor.moveToNext());
-            cursor.close();
+        List<WorkoutRow> rows = new ArrayList<>();
+        getWorkoutRowsByType(type, rows);
+        return toDisplayStrings(rows);
+    }
+
+    /**
+     * Retrieves the workouts of one type, newest first, into reusable row holders.
+     */
+    public void getWorkoutRowsByType(String type, List<WorkoutRow> rows) {
+        long start = WorkoutMetrics.begin("db.getWorkoutsByType");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            readRows(query(db, TABLE_WORKOUTS, ROW_COLUMNS, COLUMN_TYPE + " = ? AND " + LIVE, new String[]{type},
+                    null, null, COLUMN_ID + " DESC"), rows);
+        } finally {
+            WorkoutMetrics.end("db.getWorkoutsByType", start, rows.size(), rows.size());
         }
-        return workouts;
     }
 
     public List<String> getWorkoutsByStatus(String status) {
-        List<String> workouts = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        String selection = (status.equals("Completed")) ? COLUMN_COMPLETED + " = 1" : COLUMN_COMPLETED + " = 0";
-        Cursor cursor = db.query(TABLE_WORKOUTS, null, selection, null, null, null, COLUMN_ID + " DESC");
-
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                String workout = "Name: " + cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME)) +
-                        "\nDuration: " + cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DURATION)) +
-                        " minutes\nType: " + cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TYPE)) +
-                        (cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_COMPLETED)) == 1 ? " (Completed)" : "");
-                workouts.add(workout);
-            } while (cursor.moveToNext());
-            cursor.close();
+        List<WorkoutRow> rows = new ArrayList<>();
+        getWorkoutRowsByStatus(status, rows);
+        return toDisplayStrings(rows);
+    }
+
+    /**
+     * Retrieves the completed or not completed workouts, newest first, into reusable row holders.
+     */
+    public void getWorkoutRowsByStatus(String status, List<WorkoutRow> rows) {
+        long start = WorkoutMetrics.begin("db.getWorkoutsByStatus");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            String selection = ((status.equals("Completed")) ? COLUMN_COMPLETED + " = 1" : COLUMN_COMPLETED + " = 0") + " AND " + LIVE;
+            readRows(query(db, TABLE_WORKOUTS, ROW_COLUMNS, selection, null, null, null, COLUMN_ID + " DESC"), rows);
+        } finally {
+            WorkoutMetrics.end("db.getWorkoutsByStatus", start, rows.size(), rows.size());
         }
-        return workouts;
     }
     // Add this method to WorkoutDatabaseManager
     // Add this method to fetch workout IDs by type
     public List<Integer> getWorkoutIdsByType(String workoutType) {
+        long start = WorkoutMetrics.begin("db.getWorkoutIdsByType");
         List<Integer> ids = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
 
-        // Query to get IDs of workouts by type
-        String selection = COLUMN_TYPE + " = ?";
-        String[] selectionArgs = new String[]{workoutType};
-        Cursor cursor = db.query(TABLE_WORKOUTS, new String[]{COLUMN_ID}, selection, selectionArgs, null, null, COLUMN_ID + " DESC");
+            // Query to get IDs of workouts by type
+            String selection = COLUMN_TYPE + " = ? AND " + LIVE;
+            String[] selectionArgs = new String[]{workoutType};
+            Cursor cursor = query(db, TABLE_WORKOUTS, new String[]{COLUMN_ID}, selection, selectionArgs, null, null, COLUMN_ID + " DESC");
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                ids.add(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)));
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
+            if (cursor != null && cursor.moveToFirst()) {
+                do {
+                    ids.add(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)));
+                } while (cursor.moveToNext());
+                cursor.close();
+            }
 
-        return ids;
+            return ids;
+        } finally {
+            WorkoutMetrics.end("db.getWorkoutIdsByType", start, ids.size(), ids.size());
+        }
     }
 
     // Add this method to fetch workout IDs by status
     public List<Integer> getWorkoutIdsByStatus(String status) {
+        long start = WorkoutMetrics.begin("db.getWorkoutIdsByStatus");
         List<Integer> ids = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
 
-        // Determine if we're filtering by completed or not completed
-        String selection = (status.equals("Completed")) ? COLUMN_COMPLETED + " = 1" : COLUMN_COMPLETED + " = 0";
-        Cursor cursor = db.query(TABLE_WORKOUTS, new String[]{COLUMN_ID}, selection, null, null, null, COLUMN_ID + " DESC");
+            // Determine if we're filtering by completed or not completed
+            String selection = ((status.equals("Completed")) ? COLUMN_COMPLETED + " = 1" : COLUMN_COMPLETED + " = 0") + " AND " + LIVE;
+            Cursor cursor = query(db, TABLE_WORKOUTS, new String[]{COLUMN_ID}, selection, null, null, null, COLUMN_ID + " DESC");
 
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                ids.add(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)));
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
+            if (cursor != null && cursor.moveToFirst()) {
+                do {
+                    ids.add(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)));
+                } while (cursor.moveToNext());
+                cursor.close();
+            }
 
-        return ids;
+            return ids;
+        } finally {
+            WorkoutMetrics.end("db.getWorkoutIdsByStatus", start, ids.size(), ids.size());
+        }
     }
 
 }
@@ -0,0 +1,205 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.os.Trace;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide registry of latency histograms and row counters for database methods and screen loads,
+ * and of plain counters for totals such as bytes reclaimed.
+ * Every measured section is also emitted as a Trace section so it shows up in system traces.
+ */
+public final class WorkoutMetrics {
+
+    private static final String TAG = "WorkoutMetrics";
+    private static final String REPORT_FILE_NAME = "metrics.json";
+
+    private static final ConcurrentHashMap<String, OperationStats> OPERATIONS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, AtomicLong> COUNTERS = new ConcurrentHashMap<>();
+
+    private WorkoutMetrics() {
+    }
+
+    /**
+     * Latency and row counters for a single named operation.
+     */
+    public static final class OperationStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong rowsScanned = new AtomicLong();
+        final AtomicLong rowsReturned = new AtomicLong();
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getRowsScanned() {
+            return rowsScanned.get();
+        }
+
+        public long getRowsReturned() {
+            return rowsReturned.get();
+        }
+    }
+
+    /**
+     * Starts measuring an operation and opens a Trace section with the same name.
+     * Must be paired with {@link #end} on the same thread.
+     *
+     * @param operation The operation name, e.g. "db.getAllWorkouts"
+     * @return The start timestamp to pass to {@link #end}
+     */
+    public static long begin(String operation) {
+        Trace.beginSection(operation);
+        return System.nanoTime();
+    }
+
+    /**
+     * Finishes measuring an operation that does not read rows.
+     */
+    public static void end(String operation, long startNanos) {
+        end(operation, startNanos, 0, 0);
+    }
+
+    /**
+     * Finishes measuring an operation, closing its Trace section and recording its latency.
+     *
+     * @param operation    The operation name passed to {@link #begin}
+     * @param startNanos   The value returned by {@link #begin}
+     * @param rowsScanned  Rows the cursor stepped through
+     * @param rowsReturned Rows handed back to the caller
+     */
+    public static void end(String operation, long startNanos, long rowsScanned, long rowsReturned) {
+        long elapsedMicros = (System.nanoTime() - startNanos) / 1000;
+        Trace.endSection();
+
+        OperationStats stats = statsFor(operation);
+        stats.latency.record(elapsedMicros);
+        if (rowsScanned > 0) {
+            stats.rowsScanned.addAndGet(rowsScanned);
+        }
+        if (rowsReturned > 0) {
+            stats.rowsReturned.addAndGet(rowsReturned);
+        }
+    }
+
+    /**
+     * Records an already measured duration without opening a Trace section.
+     */
+    public static void record(String operation, long elapsedMicros) {
+        statsFor(operation).latency.record(elapsedMicros);
+    }
+
+    /**
+     * Adds to a named counter, e.g. "maintenance.bytesReclaimed".
+     */
+    public static void count(String counter, long delta) {
+        AtomicLong total = COUNTERS.get(counter);
+        if (total == null) {
+            AtomicLong created = new AtomicLong();
+            total = COUNTERS.putIfAbsent(counter, created);
+            if (total == null) {
+                total = created;
+            }
+        }
+        total.addAndGet(delta);
+    }
+
+    /**
+     * Returns the total of a counter, 0 if it was never counted.
+     */
+    public static long getCount(String counter) {
+        AtomicLong total = COUNTERS.get(counter);
+        return total != null ? total.get() : 0;
+    }
+
+    /**
+     * Returns the stats for an operation, or null if it was never recorded.
+     */
+    public static OperationStats get(String operation) {
+        return OPERATIONS.get(operation);
+    }
+
+    /**
+     * Clears all recorded operations and counters.
+     */
+    public static void reset() {
+        OPERATIONS.clear();
+        COUNTERS.clear();
+    }
+
+    /**
+     * Builds a JSON report with count, mean, p50/p95/p99/max (in microseconds) and row counters
+     * for every recorded operation, followed by the total of every counter, each sorted by name.
+     */
+    public static String toJson() {
+        Map<String, OperationStats> sorted = new TreeMap<>(OPERATIONS);
+        StringBuilder json = new StringBuilder("{\n");
+        boolean first = true;
+        for (Map.Entry<String, OperationStats> entry : sorted.entrySet()) {
+            OperationStats stats = entry.getValue();
+            LatencyHistogram latency = stats.latency;
+            if (!first) {
+                json.append(",\n");
+            }
+            first = false;
+            json.append("  \"").append(entry.getKey()).append("\": {")
+                    .append("\"count\": ").append(latency.getCount())
+                    .append(", \"mean_us\": ").append(Math.round(latency.getMean()))
+                    .append(", \"p50_us\": ").append(latency.getValueAtPercentile(50))
+                    .append(", \"p95_us\": ").append(latency.getValueAtPercentile(95))
+                    .append(", \"p99_us\": ").append(latency.getValueAtPercentile(99))
+                    .append(", \"max_us\": ").append(latency.getMax())
+                    .append(", \"rows_scanned\": ").append(stats.rowsScanned.get())
+                    .append(", \"rows_returned\": ").append(stats.rowsReturned.get())
+                    .append('}');
+        }
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(COUNTERS).entrySet()) {
+            if (!first) {
+                json.append(",\n");
+            }
+            first = false;
+            json.append("  \"").append(entry.getKey()).append("\": {\"total\": ").append(entry.getValue().get()).append('}');
+        }
+        return json.append("\n}").toString();
+    }
+
+    /**
+     * Writes the JSON report to the app's files directory and logs it.
+     *
+     * @return The report file, or null if it could not be written
+     */
+    public static File dumpReport(Context context) {
+        String report = toJson();
+        Log.i(TAG, report);
+
+        File file = new File(context.getFilesDir(), REPORT_FILE_NAME);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(report.getBytes(StandardCharsets.UTF_8));
+            return file;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write metrics report", e);
+            return null;
+        }
+    }
+
+    private static OperationStats statsFor(String operation) {
+        OperationStats stats = OPERATIONS.get(operation);
+        if (stats == null) {
+            OperationStats created = new OperationStats();
+            stats = OPERATIONS.putIfAbsent(operation, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+}
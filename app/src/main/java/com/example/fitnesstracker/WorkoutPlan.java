@@ -0,0 +1,47 @@
+package com.example.fitnesstracker;
+
+/**
+ * A recurring training plan: a workout template plus the rule describing when it repeats.
+ */
+public class WorkoutPlan {
+
+    private final long id;
+    private final long templateId;
+    private final String name;
+    private final String duration;
+    private final String type;
+    private final RecurrenceRule rule;
+
+    public WorkoutPlan(long id, long templateId, String name, String duration, String type, RecurrenceRule rule) {
+        this.id = id;
+        this.templateId = templateId;
+        this.name = name;
+        this.duration = duration;
+        this.type = type;
+        this.rule = rule;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getTemplateId() {
+        return templateId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDuration() {
+        return duration;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public RecurrenceRule getRule() {
+        return rule;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.fitnesstracker;
+
+/**
+ * Reusable holder for one row of the workout history. Lists are refilled in place, and the display text
+ * is appended to a caller's builder at bind time instead of being kept as a String per row.
+ */
+public final class WorkoutRow {
+
+    public int id;
+    public String name;
+    public String duration;
+    public String type;
+    public boolean completed;
+
+    void set(int id, String name, String duration, String type, boolean completed) {
+        this.id = id;
+        this.name = name;
+        this.duration = duration;
+        this.type = type;
+        this.completed = completed;
+    }
+
+    public WorkoutRow copy() {
+        WorkoutRow row = new WorkoutRow();
+        row.set(id, name, duration, type, completed);
+        return row;
+    }
+
+    /**
+     * Appends the text shown in the history list.
+     */
+    public StringBuilder appendTo(StringBuilder builder) {
+        builder.append("Name: ").append(name)
+                .append("\nDuration: ").append(duration)
+                .append(" minutes\nType: ").append(type);
+        if (completed) {
+            builder.append(" (Completed)");
+        }
+        return builder;
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(64)).toString();
+    }
+}
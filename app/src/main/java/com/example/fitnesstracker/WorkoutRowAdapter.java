@@ -0,0 +1,81 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import java.util.List;
+
+/**
+ * Binds {@link WorkoutRow}s to recycled list items. The text of a row is built in one shared builder
+ * and copied into a char buffer owned by the item view, which TextView displays without converting it
+ * to a String, so {@link #getView} allocates nothing once a recycled view's buffer is large enough.
+ * Measuring and drawing the item are up to the framework and are not covered by this.
+ */
+final class WorkoutRowAdapter extends BaseAdapter {
+
+    private final LayoutInflater inflater;
+    private final List<WorkoutRow> rows;
+    private final String emptyText;
+
+    // Shared by every bind, the adapter is only used on the main thread
+    private final StringBuilder text = new StringBuilder(128);
+
+    WorkoutRowAdapter(Context context, List<WorkoutRow> rows, String emptyText) {
+        this.inflater = LayoutInflater.from(context);
+        this.rows = rows;
+        this.emptyText = emptyText;
+    }
+
+    @Override
+    public int getCount() {
+        return rows.isEmpty() ? 1 : rows.size(); // A single placeholder row when empty
+    }
+
+    @Override
+    public WorkoutRow getItem(int position) {
+        return rows.isEmpty() ? null : rows.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return rows.isEmpty() ? -1 : rows.get(position).id;
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return !rows.isEmpty();
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        return !rows.isEmpty();
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        TextView view = convertView != null ? (TextView) convertView
+                : (TextView) inflater.inflate(android.R.layout.simple_list_item_activated_1, parent, false);
+        if (rows.isEmpty()) {
+            view.setText(emptyText);
+            return view;
+        }
+
+        text.setLength(0);
+        rows.get(position).appendTo(text);
+        int length = text.length();
+
+        // The buffer must not change while its view shows it, so each view owns one and only grows it
+        char[] chars = (char[]) view.getTag();
+        if (chars == null || chars.length < length) {
+            chars = new char[Math.max(length, chars == null ? 64 : chars.length * 2)];
+            view.setTag(chars);
+        }
+        text.getChars(0, length, chars, 0);
+        view.setText(chars, 0, length);
+        return view;
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.fitnesstracker;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Chart series of daily workout totals, downsampled to the number of pixels a chart can show.
+ * <p>
+ * The daily totals are loaded from the database once and kept as dense primitive arrays. Writes only
+ * mark the days they touched, which are re-queried on the next read, so the full table is never read
+ * again after the first chart. Downsampled series are cached per zoom level over the whole history, with
+ * buckets aligned to absolute days, so panning only slices a cached series and a write only recomputes the
+ * buckets of the days it touched.
+ */
+public final class WorkoutSeries {
+
+    public enum Metric {
+        DURATION, // Minutes per day
+        COUNT // Workouts per day
+    }
+
+    public enum Downsampling {
+        LTTB, // One point per bucket, keeps the visual shape
+        MIN_MAX // The lowest and highest point of every bucket
+    }
+
+    /**
+     * Reads daily totals of live workouts from the database.
+     */
+    interface Source {
+        /**
+         * Reports the totals of every day with live workouts, or only of the given days.
+         *
+         * @param days The days to load in ascending order, or null for all days
+         */
+        void loadDailyTotals(int[] days, WorkoutSeries target);
+
+        /**
+         * Returns the days of the workouts last written at any of the given timestamps.
+         */
+        int[] getDaysWrittenAt(long[] updatedAt, int count);
+    }
+
+    /**
+     * A downsampled series. {@code x} holds epoch days in ascending order and {@code y} the values.
+     */
+    public static final class Series {
+        public final float[] x;
+        public final float[] y;
+        public final int bucketDays; // Days summarized by each point or point pair
+
+        Series(float[] x, float[] y, int bucketDays) {
+            this.x = x;
+            this.y = y;
+            this.bucketDays = bucketDays;
+        }
+
+        public int size() {
+            return x.length;
+        }
+    }
+
+    /**
+     * A cached zoom level over the whole history.
+     */
+    private static final class Level {
+        final Metric metric;
+        final Downsampling downsampling;
+        Series series;
+
+        Level(Metric metric, Downsampling downsampling, Series series) {
+            this.metric = metric;
+            this.downsampling = downsampling;
+            this.series = series;
+        }
+    }
+
+    // Zoom levels kept, each holds two float arrays of at most one or two points per bucket
+    private static final int MAX_CACHED_LEVELS = 16;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Source source;
+
+    // Daily totals from firstDay to firstDay + length - 1
+    private float[] counts = new float[0];
+    private float[] durations = new float[0];
+    private int firstDay;
+    private int length;
+    private boolean loaded;
+
+    // Days written since the totals were last refreshed
+    private int[] dirtyDays = new int[INITIAL_CAPACITY];
+    private int dirtyCount;
+
+    private final Map<String, Level> levels = new LinkedHashMap<String, Level>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Level> eldest) {
+            return size() > MAX_CACHED_LEVELS;
+        }
+    };
+
+    WorkoutSeries(Source source) {
+        this.source = source;
+    }
+
+    /**
+     * Returns the series for [fromDay, toDay] with at most {@code maxPoints} points.
+     * The bucket size is the smallest power of two that fits the range into {@code maxPoints}.
+     */
+    public synchronized Series get(Metric metric, Downsampling downsampling, int fromDay, int toDay, int maxPoints) {
+        if (toDay < fromDay || maxPoints < 1) {
+            throw new IllegalArgumentException("Empty range or no points requested");
+        }
+        refresh();
+
+        int pointsPerBucket = downsampling == Downsampling.MIN_MAX ? 2 : 1;
+        int maxBuckets = Math.max(1, maxPoints / pointsPerBucket);
+        int level = 0;
+        while (SeriesDownsampler.bucketCount(fromDay, toDay, 1 << level) > maxBuckets) {
+            level++;
+        }
+        Series full = getLevel(metric, downsampling, level);
+        return slice(full, fromDay, toDay, maxPoints);
+    }
+
+    /**
+     * Returns the first day with data, or today's epoch day if there is none.
+     */
+    public synchronized int getFirstDay() {
+        refresh();
+        return length > 0 ? firstDay : RecurrenceRule.today();
+    }
+
+    /**
+     * Records that workouts were written at {@code updatedAt}. The affected days are looked up now,
+     * while the rows exist, and re-read on the next {@link #get}. Nothing is done before the first load.
+     */
+    synchronized void markDirty(long[] updatedAt, int count) {
+        if (!loaded || count == 0) {
+            return;
+        }
+        int[] days = source.getDaysWrittenAt(updatedAt, count);
+        if (dirtyCount + days.length > dirtyDays.length) {
+            dirtyDays = Arrays.copyOf(dirtyDays, Math.max(dirtyDays.length * 2, dirtyCount + days.length));
+        }
+        System.arraycopy(days, 0, dirtyDays, dirtyCount, days.length);
+        dirtyCount += days.length;
+    }
+
+    /**
+     * Drops everything, for when the database was replaced as a whole.
+     */
+    synchronized void invalidate() {
+        loaded = false;
+        dirtyCount = 0;
+        levels.clear();
+    }
+
+    // Number of zoom levels cached, for tests
+    synchronized int getCachedLevels() {
+        return levels.size();
+    }
+
+    /**
+     * Called by the {@link Source} for each loaded day.
+     */
+    void putDay(int day, int count, float duration) {
+        ensureDay(day);
+        counts[day - firstDay] = count;
+        durations[day - firstDay] = duration;
+    }
+
+    private void refresh() {
+        if (!loaded) {
+            length = 0;
+            source.loadDailyTotals(null, this);
+            loaded = true;
+            dirtyCount = 0;
+            levels.clear();
+            return;
+        }
+        if (dirtyCount == 0) {
+            return;
+        }
+
+        // Reset the touched days and read back whatever is still live on them
+        int oldFirstDay = firstDay;
+        int oldLength = length;
+        int[] days = Arrays.copyOf(dirtyDays, dirtyCount);
+        Arrays.sort(days);
+        int unique = 0;
+        for (int i = 0; i < days.length; i++) {
+            if (i == 0 || days[i] != days[i - 1]) {
+                days[unique++] = days[i];
+                if (days[i] >= firstDay && days[i] < firstDay + length) {
+                    counts[days[i] - firstDay] = 0;
+                    durations[days[i] - firstDay] = 0;
+                }
+            }
+        }
+        dirtyCount = 0;
+        days = Arrays.copyOf(days, unique);
+        source.loadDailyTotals(days, this);
+
+        if (oldLength == 0 || firstDay != oldFirstDay) {
+            // Every bucket moved relative to the arrays, which only happens for back-dated history
+            levels.clear();
+            return;
+        }
+        for (Level level : levels.values()) {
+            update(level, days, oldLength);
+        }
+    }
+
+    /**
+     * Recomputes the buckets of a cached level that hold one of the given days. If the history grew at
+     * the end, the old last bucket and all after it are recomputed as well.
+     */
+    private void update(Level level, int[] days, int oldLength) {
+        float[] values = level.metric == Metric.DURATION ? durations : counts;
+        int bucketDays = level.series.bucketDays;
+        boolean[] touched = new boolean[SeriesDownsampler.bucketCount(firstDay, firstDay + length - 1, bucketDays)];
+        int touchedCount = 0;
+        int firstTouched = touched.length;
+        int lastTouched = -1;
+        int grownFrom = length > oldLength ? SeriesDownsampler.bucketOf(oldLength - 1, firstDay, bucketDays) : touched.length;
+        for (int bucket = grownFrom; bucket < touched.length; bucket++) {
+            touched[bucket] = true;
+            touchedCount++;
+        }
+        for (int day : days) {
+            if (day >= firstDay && day < firstDay + length) {
+                int bucket = SeriesDownsampler.bucketOf(day - firstDay, firstDay, bucketDays);
+                if (!touched[bucket]) {
+                    touched[bucket] = true;
+                    touchedCount++;
+                }
+            }
+        }
+        for (int bucket = 0; bucket < touched.length; bucket++) {
+            if (touched[bucket]) {
+                firstTouched = Math.min(firstTouched, bucket);
+                lastTouched = bucket;
+            }
+        }
+        if (touchedCount == 0) {
+            return;
+        }
+        level.series = level.downsampling == Downsampling.MIN_MAX
+                ? updateMinMax(level.series, values, touched, touchedCount, firstTouched)
+                : updateLttb(level.series, values, touched, firstTouched, lastTouched);
+    }
+
+    /**
+     * Min/max buckets are independent, so the points of untouched buckets are copied as they are.
+     */
+    private Series updateMinMax(Series old, float[] values, boolean[] touched, int touchedCount, int firstTouched) {
+        int bucketDays = old.bucketDays;
+        float[] x = new float[old.size() + touchedCount * 2];
+        float[] y = new float[x.length];
+        int count = 0;
+        int next = 0; // First old point not yet copied or dropped
+        for (int bucket = firstTouched; bucket < touched.length; bucket++) {
+            if (!touched[bucket]) {
+                continue;
+            }
+            int from = lowerBound(old.x, firstDay + SeriesDownsampler.bucketStart(bucket, firstDay, bucketDays));
+            System.arraycopy(old.x, next, x, count, from - next);
+            System.arraycopy(old.y, next, y, count, from - next);
+            count += from - next;
+            next = lowerBound(old.x, firstDay + SeriesDownsampler.bucketStart(bucket + 1, firstDay, bucketDays));
+            count = SeriesDownsampler.minMaxBucket(values, length, firstDay, bucketDays, bucket, x, y, count);
+        }
+        System.arraycopy(old.x, next, x, count, old.size() - next);
+        System.arraycopy(old.y, next, y, count, old.size() - next);
+        count += old.size() - next;
+        return new Series(Arrays.copyOf(x, count), Arrays.copyOf(y, count), bucketDays);
+    }
+
+    /**
+     * An LTTB point depends on its own bucket, the point kept before it and the next bucket's average.
+     * Recomputing starts at the bucket before the first touched one and stops once past the touched
+     * buckets the same point is chosen again, as everything after it is then unchanged.
+     */
+    private Series updateLttb(Series old, float[] values, boolean[] touched, int firstTouched, int lastTouched) {
+        int bucketDays = old.bucketDays;
+        int buckets = touched.length;
+        if (bucketDays == 1) {
+            float[] x = Arrays.copyOf(old.x, length);
+            float[] y = Arrays.copyOf(old.y, length);
+            for (int i = firstTouched; i <= lastTouched; i++) {
+                if (touched[i]) {
+                    x[i] = firstDay + i;
+                    y[i] = values[i];
+                }
+            }
+            return new Series(x, y, bucketDays);
+        }
+        if (buckets <= 2) {
+            // Only the first and last day are kept
+            float[] x = new float[buckets];
+            float[] y = new float[buckets];
+            int size = SeriesDownsampler.lttb(values, length, firstDay, bucketDays, x, y);
+            return new Series(Arrays.copyOf(x, size), Arrays.copyOf(y, size), bucketDays);
+        }
+
+        // With more than one day per bucket, point i is the one kept from bucket i
+        int oldBuckets = old.size();
+        float[] x = Arrays.copyOf(old.x, buckets);
+        float[] y = Arrays.copyOf(old.y, buckets);
+        x[0] = firstDay;
+        y[0] = values[0];
+        boolean keptChanged = false;
+        for (int bucket = Math.max(1, firstTouched - 1); bucket < buckets - 1; bucket++) {
+            if (!keptChanged && !touched[bucket - 1] && !touched[bucket] && !touched[bucket + 1]) {
+                if (bucket > lastTouched + 1) {
+                    break;
+                }
+                continue;
+            }
+            int chosen = SeriesDownsampler.lttbPoint(values, length, firstDay, bucketDays, bucket, (int) x[bucket - 1] - firstDay);
+            keptChanged = bucket >= oldBuckets - 1 || firstDay + chosen != old.x[bucket];
+            x[bucket] = firstDay + chosen;
+            y[bucket] = values[chosen];
+        }
+        x[buckets - 1] = firstDay + length - 1;
+        y[buckets - 1] = values[length - 1];
+        return new Series(x, y, bucketDays);
+    }
+
+    private Series getLevel(Metric metric, Downsampling downsampling, int level) {
+        String key = metric.name() + '/' + downsampling.name() + '/' + level;
+        Level cached = levels.get(key);
+        if (cached == null) {
+            float[] values = metric == Metric.DURATION ? durations : counts;
+            int bucketDays = 1 << level;
+            int buckets = length > 0 ? SeriesDownsampler.bucketCount(firstDay, firstDay + length - 1, bucketDays) : 0;
+            int capacity = downsampling == Downsampling.MIN_MAX ? buckets * 2 : buckets;
+            float[] x = new float[capacity];
+            float[] y = new float[capacity];
+            int size = downsampling == Downsampling.MIN_MAX
+                    ? SeriesDownsampler.minMax(values, length, firstDay, bucketDays, x, y)
+                    : SeriesDownsampler.lttb(values, length, firstDay, bucketDays, x, y);
+            cached = new Level(metric, downsampling, new Series(Arrays.copyOf(x, size), Arrays.copyOf(y, size), bucketDays));
+            levels.put(key, cached);
+        }
+        return cached.series;
+    }
+
+    private static Series slice(Series full, int fromDay, int toDay, int maxPoints) {
+        int from = lowerBound(full.x, fromDay);
+        int to = Math.min(lowerBound(full.x, toDay + 1), from + maxPoints);
+        if (from == 0 && to == full.x.length) {
+            return full;
+        }
+        return new Series(Arrays.copyOfRange(full.x, from, to), Arrays.copyOfRange(full.y, from, to), full.bucketDays);
+    }
+
+    private static int lowerBound(float[] x, float day) {
+        int low = 0;
+        int high = x.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (x[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureDay(int day) {
+        if (length == 0) {
+            if (counts.length == 0) {
+                counts = new float[INITIAL_CAPACITY];
+                durations = new float[INITIAL_CAPACITY];
+            }
+            Arrays.fill(counts, 0);
+            Arrays.fill(durations, 0);
+            firstDay = day;
+            length = 1;
+            return;
+        }
+        if (day < firstDay) {
+            // Workouts before the first known day, e.g. pulled from another device
+            int shift = firstDay - day;
+            float[] newCounts = new float[Math.max(counts.length, length + shift)];
+            float[] newDurations = new float[newCounts.length];
+            System.arraycopy(counts, 0, newCounts, shift, length);
+            System.arraycopy(durations, 0, newDurations, shift, length);
+            counts = newCounts;
+            durations = newDurations;
+            firstDay = day;
+            length += shift;
+        } else if (day >= firstDay + length) {
+            int newLength = day - firstDay + 1;
+            if (newLength > counts.length) {
+                int capacity = Math.max(counts.length * 2, newLength);
+                counts = Arrays.copyOf(counts, capacity);
+                durations = Arrays.copyOf(durations, capacity);
+            }
+            length = newLength;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.fitnesstracker;
+
+/**
+ * One set of a strength exercise. Weights are stored in whole grams so every column stays a compact
+ * integer and sums are exact.
+ */
+public final class WorkoutSet {
+
+    public final String exercise;
+    public final int reps;
+    public final int weightGrams;
+
+    public WorkoutSet(String exercise, int reps, int weightGrams) {
+        if (exercise == null || exercise.trim().isEmpty()) {
+            throw new IllegalArgumentException("Exercise name is required");
+        }
+        if (reps < 0 || weightGrams < 0) {
+            throw new IllegalArgumentException("Reps and weight must not be negative");
+        }
+        this.exercise = exercise.trim();
+        this.reps = reps;
+        this.weightGrams = weightGrams;
+    }
+
+    /**
+     * Creates a set with the weight given in kilograms, rounded to the gram.
+     */
+    public static WorkoutSet ofKilograms(String exercise, int reps, double weightKg) {
+        return new WorkoutSet(exercise, reps, (int) Math.round(weightKg * 1000));
+    }
+
+    /**
+     * Returns reps times weight, in gram-reps.
+     */
+    public long getVolume() {
+        return (long) reps * weightGrams;
+    }
+
+    public int getOneRepMax() {
+        return estimateOneRepMax(weightGrams, reps);
+    }
+
+    /**
+     * Estimates the one-rep max with the Epley formula, w * (1 + r / 30). A single is its own max and a
+     * set without reps estimates nothing. Must agree with the SQL in WorkoutDatabaseManager.
+     */
+    public static int estimateOneRepMax(int weightGrams, int reps) {
+        if (reps <= 1) {
+            return reps == 1 ? weightGrams : 0;
+        }
+        return (int) ((long) weightGrams * (30 + reps) / 30);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.fitnesstracker;
+
+/**
+ * Daily workout totals of the last {@link #DAYS} days, as stored by {@link WorkoutSummaryCache}.
+ * <p>
+ * Every write refreshes the snapshot, so the totals stay correct on later days without a write: days
+ * after the snapshot day had no workouts, and a week never reaches back further than the snapshot covers.
+ */
+public final class WorkoutSummary {
+
+    // Enough to cover the current week from any later day
+    static final int DAYS = 7;
+
+    private final int lastDay;
+    private final int[] counts; // Index 0 is lastDay - DAYS + 1
+    private final int[] minutes;
+
+    WorkoutSummary(int lastDay, int[] counts, int[] minutes) {
+        this.lastDay = lastDay;
+        this.counts = counts;
+        this.minutes = minutes;
+    }
+
+    /**
+     * Returns an empty snapshot ending on the given day, to be filled with {@link #putDay}.
+     */
+    static WorkoutSummary empty(int lastDay) {
+        return new WorkoutSummary(lastDay, new int[DAYS], new int[DAYS]);
+    }
+
+    int getFirstDay() {
+        return lastDay - DAYS + 1;
+    }
+
+    int getLastDay() {
+        return lastDay;
+    }
+
+    void putDay(int day, int count, int dayMinutes) {
+        int index = day - getFirstDay();
+        if (index >= 0 && index < DAYS) {
+            counts[index] = count;
+            minutes[index] = dayMinutes;
+        }
+    }
+
+    public int getTodayCount(int today) {
+        return sum(counts, today, today);
+    }
+
+    public int getTodayMinutes(int today) {
+        return sum(minutes, today, today);
+    }
+
+    public int getWeekCount(int today) {
+        return sum(counts, RecurrenceRule.weekStart(today), today);
+    }
+
+    public int getWeekMinutes(int today) {
+        return sum(minutes, RecurrenceRule.weekStart(today), today);
+    }
+
+    /**
+     * Returns true if the totals for {@code today} can be read from this snapshot. A snapshot taken on a
+     * later day, e.g. after the clock was moved back, is not.
+     */
+    public boolean covers(int today) {
+        return today >= lastDay;
+    }
+
+    private int sum(int[] values, int fromDay, int toDay) {
+        int total = 0;
+        for (int day = Math.max(fromDay, getFirstDay()); day <= Math.min(toDay, lastDay); day++) {
+            total += values[day - getFirstDay()];
+        }
+        return total;
+    }
+
+    /**
+     * Encodes the snapshot as "lastDay;count,minutes;count,minutes;..." for preferences storage.
+     */
+    String encode() {
+        StringBuilder builder = new StringBuilder(16 + DAYS * 8);
+        builder.append(lastDay);
+        for (int i = 0; i < DAYS; i++) {
+            builder.append(';').append(counts[i]).append(',').append(minutes[i]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Parses a snapshot written by {@link #encode}.
+     *
+     * @return The snapshot, or null if the value is missing or malformed
+     */
+    static WorkoutSummary decode(String encoded) {
+        if (encoded == null) {
+            return null;
+        }
+        String[] parts = encoded.split(";");
+        if (parts.length != DAYS + 1) {
+            return null;
+        }
+        try {
+            WorkoutSummary summary = empty(Integer.parseInt(parts[0]));
+            for (int i = 0; i < DAYS; i++) {
+                int comma = parts[i + 1].indexOf(',');
+                summary.counts[i] = Integer.parseInt(parts[i + 1].substring(0, comma));
+                summary.minutes[i] = Integer.parseInt(parts[i + 1].substring(comma + 1));
+            }
+            return summary;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
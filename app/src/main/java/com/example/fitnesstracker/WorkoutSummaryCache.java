@@ -0,0 +1,90 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Precomputed totals of the last week for the home-screen widget. Writes request a refresh, which reads
+ * seven days from the covering day index in the background and stores the result in preferences, so
+ * the widget update path never touches the database and still has data after the process restarts.
+ */
+public final class WorkoutSummaryCache {
+
+    private static final String TAG = "WorkoutSummaryCache";
+    private static final String PREFS_NAME = "workout_summary";
+    private static final String KEY_SNAPSHOT = "snapshot";
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AtomicBoolean PENDING = new AtomicBoolean(false);
+
+    // Decoded copy of the stored snapshot, so repeated widget updates skip parsing
+    private static volatile WorkoutSummary snapshot;
+
+    private WorkoutSummaryCache() {
+    }
+
+    /**
+     * Schedules a refresh from the given database. Writes arriving while a refresh is pending are
+     * covered by that refresh, so a burst of writes costs one query.
+     */
+    public static void requestRefresh(Context context, WorkoutDatabaseManager dbManager) {
+        Context appContext = context.getApplicationContext();
+        if (PENDING.compareAndSet(false, true)) {
+            EXECUTOR.execute(() -> {
+                PENDING.set(false);
+                try {
+                    refresh(appContext, dbManager);
+                    WorkoutWidgetProvider.updateAll(appContext);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Summary refresh failed", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Recomputes and stores the summary on the calling thread.
+     */
+    public static WorkoutSummary refresh(Context context, WorkoutDatabaseManager dbManager) {
+        long start = WorkoutMetrics.begin("summary.refresh");
+        try {
+            WorkoutSummary summary = dbManager.getRecentSummary(RecurrenceRule.today());
+            snapshot = summary;
+            prefs(context).edit().putString(KEY_SNAPSHOT, summary.encode()).apply();
+            return summary;
+        } finally {
+            WorkoutMetrics.end("summary.refresh", start);
+        }
+    }
+
+    /**
+     * Returns the stored summary if it is valid for today. Never queries the database.
+     *
+     * @return The summary, or null if none was stored yet or it was taken on a later day
+     */
+    public static WorkoutSummary read(Context context, int today) {
+        WorkoutSummary summary = snapshot;
+        if (summary == null) {
+            summary = WorkoutSummary.decode(prefs(context).getString(KEY_SNAPSHOT, null));
+            snapshot = summary;
+        }
+        return summary != null && summary.covers(today) ? summary : null;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.fitnesstracker;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+import android.widget.RemoteViews;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Home-screen widget showing today's and this week's totals, with a button that logs a workout
+ * without opening the app. Totals come from {@link WorkoutSummaryCache}; an update only formats them.
+ */
+public class WorkoutWidgetProvider extends AppWidgetProvider {
+
+    private static final String TAG = "WorkoutWidgetProvider";
+    static final String ACTION_QUICK_LOG = "com.example.fitnesstracker.action.QUICK_LOG";
+
+    // Logged when there is no previous workout to repeat
+    private static final String DEFAULT_NAME = "Quick Workout";
+    private static final String DEFAULT_DURATION = "30";
+    private static final String DEFAULT_TYPE = "Cardio";
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        update(context, appWidgetManager, appWidgetIds);
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (ACTION_QUICK_LOG.equals(intent.getAction())) {
+            // The insert runs on the writer thread; the summary refresh it triggers updates the widget
+            PendingResult result = goAsync();
+            Context appContext = context.getApplicationContext();
+            EXECUTOR.execute(() -> {
+                try {
+                    quickLog(WorkoutDatabaseManager.getInstance(appContext), WorkoutWriteCoordinator.getInstance(appContext))
+                            .whenComplete((logged, error) -> {
+                                if (error != null) {
+                                    Log.e(TAG, "Quick log failed", error);
+                                }
+                                result.finish();
+                            });
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Quick log failed", e);
+                    result.finish();
+                }
+            });
+            return;
+        }
+        super.onReceive(context, intent);
+    }
+
+    /**
+     * Logs a repeat of the most recent workout for today, or a default workout if there is none.
+     */
+    static CompletableFuture<WorkoutWrite.Result> quickLog(WorkoutDatabaseManager dbManager,
+                                                         WorkoutWriteCoordinator coordinator) {
+        String[] last = dbManager.getLastWorkoutDetails();
+        if (last == null) {
+            return coordinator.submit(WorkoutWrite.insert(DEFAULT_NAME, DEFAULT_DURATION, DEFAULT_TYPE));
+        }
+        return coordinator.submit(WorkoutWrite.insert(last[0], last[1], last[2]));
+    }
+
+    /**
+     * Redraws every placed widget from the cached summary.
+     */
+    public static void updateAll(Context context) {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, WorkoutWidgetProvider.class));
+        if (appWidgetIds.length > 0) {
+            update(context, appWidgetManager, appWidgetIds);
+        }
+    }
+
+    private static void update(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        long start = WorkoutMetrics.begin("widget.update");
+        try {
+            RemoteViews views = buildViews(context, RecurrenceRule.today());
+            appWidgetManager.updateAppWidget(appWidgetIds, views);
+        } finally {
+            WorkoutMetrics.end("widget.update", start);
+        }
+    }
+
+    /**
+     * Builds the widget views for the given day from the cached summary.
+     */
+    static RemoteViews buildViews(Context context, int today) {
+        WorkoutSummary summary = WorkoutSummaryCache.read(context, today);
+        if (summary == null) {
+            // Nothing cached yet, show zeros until the refresh is done rather than querying here
+            WorkoutSummaryCache.requestRefresh(context, WorkoutDatabaseManager.getInstance(context));
+            summary = WorkoutSummary.empty(today);
+        }
+
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_summary);
+        views.setTextViewText(R.id.tv_widget_today, context.getString(R.string.widget_totals,
+                summary.getTodayCount(today), summary.getTodayMinutes(today)));
+        views.setTextViewText(R.id.tv_widget_week, context.getString(R.string.widget_totals,
+                summary.getWeekCount(today), summary.getWeekMinutes(today)));
+
+        Intent summaryIntent = new Intent(context, SummaryActivity.class);
+        views.setOnClickPendingIntent(R.id.widget_root, PendingIntent.getActivity(context, 0, summaryIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE));
+
+        Intent quickLogIntent = new Intent(context, WorkoutWidgetProvider.class).setAction(ACTION_QUICK_LOG);
+        views.setOnClickPendingIntent(R.id.btn_widget_quick_log, PendingIntent.getBroadcast(context, 0, quickLogIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE));
+        return views;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.fitnesstracker;
+
+import android.content.ContentValues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A single-workout write queued on the {@link WorkoutWriteCoordinator}. Edits carry the row version
+ * they were based on and fail with {@link Status#CONFLICT} if the workout changed since; background
+ * writes that only set fields apply to any version. New workouts, logged plan occurrences, strength
+ * sessions with their sets, deletes and restores are queued the same way, so every write made from
+ * a screen or the widget for a single workout goes through one writer.
+ */
+public final class WorkoutWrite {
+
+    // Expected version of writes that apply regardless of concurrent changes
+    public static final int ANY_VERSION = -1;
+
+    // ID of an insert until it is written
+    static final int NEW_WORKOUT = 0;
+
+    public enum Status {
+        APPLIED,
+        CONFLICT, // The workout was changed by another write since it was read
+        NOT_FOUND // The workout does not exist, was deleted, or for a restore is not deleted
+    }
+
+    /**
+     * Outcome of a write.
+     */
+    public static final class Result {
+        public final Status status;
+        public final int version; // The workout's version after the write, -1 if not found or deleted
+
+        Result(Status status, int version) {
+            this.status = status;
+            this.version = version;
+        }
+    }
+
+    final int id;
+    final int expectedVersion;
+    final ContentValues values;
+    String op; // Sync operation recorded in the outbox
+    final WorkoutPlan plan; // Plan of a logged occurrence, null for other writes
+    final int occurrenceDay;
+    final List<WorkoutSet> sets; // Sets of a strength session, null for other writes
+
+    private final CompletableFuture<Result> result = new CompletableFuture<>();
+    private List<WorkoutWrite> coalesced; // Later writes merged into this one, completed with it
+
+    private WorkoutWrite(int id, int expectedVersion, ContentValues values, String op) {
+        this(id, expectedVersion, values, op, null, 0, null);
+    }
+
+    private WorkoutWrite(int id, int expectedVersion, ContentValues values, String op, WorkoutPlan plan,
+                         int occurrenceDay, List<WorkoutSet> sets) {
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+        this.values = values;
+        this.op = op;
+        this.plan = plan;
+        this.occurrenceDay = occurrenceDay;
+        this.sets = sets;
+    }
+
+    /**
+     * Saves an edit made to the workout as it was at {@code expectedVersion}.
+     */
+    public static WorkoutWrite update(int id, int expectedVersion, String name, String duration, String type) {
+        ContentValues values = new ContentValues();
+        values.put("name", name);
+        values.put("duration", duration);
+        values.put("type", type);
+        return new WorkoutWrite(id, expectedVersion, values, SyncChange.OP_UPDATE);
+    }
+
+    /**
+     * Logs a new, not yet completed workout for today.
+     */
+    public static WorkoutWrite insert(String name, String duration, String type) {
+        ContentValues values = new ContentValues();
+        values.put("name", name);
+        values.put("duration", duration);
+        values.put("type", type);
+        values.put("completed", 0);
+        return new WorkoutWrite(NEW_WORKOUT, ANY_VERSION, values, SyncChange.OP_INSERT);
+    }
+
+    /**
+     * Logs an occurrence of a plan on its scheduled day, reviving an earlier deleted log of it.
+     */
+    public static WorkoutWrite logOccurrence(WorkoutPlan plan, int day, boolean completed) {
+        ContentValues values = new ContentValues();
+        values.put("completed", completed ? 1 : 0);
+        return new WorkoutWrite(NEW_WORKOUT, ANY_VERSION, values, SyncChange.OP_INSERT, plan, day, null);
+    }
+
+    /**
+     * Logs a strength workout for today together with its sets.
+     */
+    public static WorkoutWrite strengthSession(String name, String duration, List<WorkoutSet> sets) {
+        ContentValues values = new ContentValues();
+        values.put("name", name);
+        values.put("duration", duration);
+        return new WorkoutWrite(NEW_WORKOUT, ANY_VERSION, values, SyncChange.OP_INSERT, null, 0,
+                new ArrayList<>(sets));
+    }
+
+    /**
+     * Soft-deletes a workout; it stays restorable until the compactor purges it.
+     */
+    public static WorkoutWrite delete(int id) {
+        return new WorkoutWrite(id, ANY_VERSION, new ContentValues(), SyncChange.OP_DELETE);
+    }
+
+    /**
+     * Restores a soft-deleted workout, undoing {@link #delete}.
+     */
+    public static WorkoutWrite restore(int id) {
+        ContentValues values = new ContentValues();
+        values.putNull("deleted_at");
+        return new WorkoutWrite(id, ANY_VERSION, values, SyncChange.OP_RESTORE);
+    }
+
+    public static WorkoutWrite markComplete(int id) {
+        ContentValues values = new ContentValues();
+        values.put("completed", 1);
+        return new WorkoutWrite(id, ANY_VERSION, values, SyncChange.OP_COMPLETE);
+    }
+
+    public static WorkoutWrite setType(int id, String type) {
+        ContentValues values = new ContentValues();
+        values.put("type", type);
+        return new WorkoutWrite(id, ANY_VERSION, values, SyncChange.OP_UPDATE);
+    }
+
+    public CompletableFuture<Result> getResult() {
+        return result;
+    }
+
+    /**
+     * Returns true if {@code next} can be folded into this write. Only unconditional writes that set
+     * fields of the same workout are merged: a versioned write must be checked on its own, or a stale
+     * edit could silently overwrite the one before it, and inserts, deletes and restores each have
+     * their own effect.
+     */
+    boolean canCoalesce(WorkoutWrite next) {
+        return id == next.id && expectedVersion == ANY_VERSION && next.expectedVersion == ANY_VERSION
+                && setsFieldsOnly() && next.setsFieldsOnly();
+    }
+
+    private boolean setsFieldsOnly() {
+        return op.equals(SyncChange.OP_UPDATE) || op.equals(SyncChange.OP_COMPLETE);
+    }
+
+    /**
+     * Merges a later write into this one; its values win.
+     */
+    void coalesce(WorkoutWrite next) {
+        values.putAll(next.values);
+        if (!op.equals(next.op)) {
+            op = SyncChange.OP_UPDATE;
+        }
+        if (coalesced == null) {
+            coalesced = new ArrayList<>();
+        }
+        coalesced.add(next);
+    }
+
+    void complete(Status status, int version) {
+        Result outcome = new Result(status, version);
+        result.complete(outcome);
+        if (coalesced != null) {
+            for (WorkoutWrite write : coalesced) {
+                write.result.complete(outcome);
+            }
+        }
+    }
+
+    void fail(Throwable error) {
+        result.completeExceptionally(error);
+        if (coalesced != null) {
+            for (WorkoutWrite write : coalesced) {
+                write.result.completeExceptionally(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.fitnesstracker;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Serializes single-workout writes through one writer thread. Whatever queued up while the previous
+ * batch was being written is applied in a single transaction, and adjacent unconditional writes to the
+ * same workout are merged into one UPDATE. Conflicting edits are reported through their result and
+ * counted as "writes.conflicts" in {@link WorkoutMetrics}.
+ */
+public final class WorkoutWriteCoordinator {
+
+    private static final String TAG = "WorkoutWriteCoordinator";
+
+    // Bounds how long one transaction holds the write lock
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private static WorkoutWriteCoordinator instance;
+
+    private final WorkoutDatabaseManager dbManager;
+    private final LinkedBlockingQueue<WorkoutWrite> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Returns the process-wide coordinator for the shared database manager.
+     */
+    public static synchronized WorkoutWriteCoordinator getInstance(Context context) {
+        if (instance == null) {
+            instance = new WorkoutWriteCoordinator(WorkoutDatabaseManager.getInstance(context));
+        }
+        return instance;
+    }
+
+    // Constructor for tests, each coordinator owns its writer thread until closed
+    WorkoutWriteCoordinator(WorkoutDatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        writer = new Thread(this::runWriter, TAG);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a write. The returned future completes on the writer thread once the write is committed.
+     */
+    public CompletableFuture<WorkoutWrite.Result> submit(WorkoutWrite write) {
+        if (closed) {
+            throw new IllegalStateException("Coordinator is closed");
+        }
+        queue.add(write);
+        return write.getResult();
+    }
+
+    /**
+     * Stops the writer thread. Writes still queued are cancelled.
+     */
+    void close() throws InterruptedException {
+        closed = true;
+        writer.interrupt();
+        writer.join();
+    }
+
+    private void runWriter() {
+        List<WorkoutWrite> drained = new ArrayList<>();
+        List<WorkoutWrite> batch = new ArrayList<>();
+        while (!closed) {
+            try {
+                drained.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(drained, MAX_BATCH_SIZE - 1);
+            int merged = coalesce(drained, batch);
+            if (merged > 0) {
+                WorkoutMetrics.count("writes.coalesced", merged);
+            }
+
+            try {
+                dbManager.applyWrites(batch);
+                reportConflicts(batch);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Write batch failed", e);
+                for (WorkoutWrite write : batch) {
+                    write.fail(e);
+                }
+            }
+            drained.clear();
+            batch.clear();
+        }
+
+        WorkoutWrite pending;
+        while ((pending = queue.poll()) != null) {
+            pending.fail(new CancellationException("Coordinator closed"));
+        }
+    }
+
+    /**
+     * Copies the drained writes into {@code batch}, folding each write into the one before it where possible.
+     *
+     * @return The number of writes merged away
+     */
+    static int coalesce(List<WorkoutWrite> drained, List<WorkoutWrite> batch) {
+        int merged = 0;
+        for (WorkoutWrite write : drained) {
+            WorkoutWrite previous = batch.isEmpty() ? null : batch.get(batch.size() - 1);
+            if (previous != null && previous.canCoalesce(write)) {
+                previous.coalesce(write);
+                merged++;
+            } else {
+                batch.add(write);
+            }
+        }
+        return merged;
+    }
+
+    private static void reportConflicts(List<WorkoutWrite> batch) {
+        for (WorkoutWrite write : batch) {
+            WorkoutWrite.Result result = write.getResult().getNow(null);
+            if (result != null && result.status == WorkoutWrite.Status.CONFLICT) {
+                Log.w(TAG, "Conflicting edit of workout " + write.id + ": expected version " + write.expectedVersion
+                        + ", found " + result.version);
+                WorkoutMetrics.count("writes.conflicts", 1);
+            }
+        }
+    }
+}
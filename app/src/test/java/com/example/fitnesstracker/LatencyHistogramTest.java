@@ -0,0 +1,51 @@
+package com.example.fitnesstracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the allocation-free latency histogram used by {@link WorkoutMetrics}.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogram_reportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000, histogram.getMax());
+        assertWithinPrecision(5_000, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(9_500, histogram.getValueAtPercentile(95));
+        assertWithinPrecision(9_900, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void bucketIndex_isMonotonicAndBounded() {
+        int previous = -1;
+        for (long value = 0; value < 1L << 20; value += 7) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index >= previous);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+            previous = index;
+        }
+        // Values beyond the tracked range are clamped into the overflow bucket
+        assertEquals(LatencyHistogram.bucketIndex(Long.MAX_VALUE), LatencyHistogram.bucketIndex(1L << 50));
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        // Eight sub-buckets per power of two gives at most 12.5% relative error
+        assertTrue("expected ~" + expected + " but was " + actual,
+                actual >= expected && actual <= expected * 1.125);
+    }
+}
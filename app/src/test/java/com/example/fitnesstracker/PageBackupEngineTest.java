@@ -0,0 +1,180 @@
+package com.example.fitnesstracker;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for incremental page-level backups, using synthetic files with a SQLite header.
+ */
+public class PageBackupEngineTest {
+
+    private static final int PAGE_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(42);
+    private File database;
+    private File backupDir;
+
+    @Before
+    public void setUp() throws IOException {
+        database = folder.newFile("test.db");
+        backupDir = new File(folder.getRoot(), "backups");
+        writeDatabase(1000);
+    }
+
+    @Test
+    public void incrementalBackup_writesOnlyChangedPages() throws IOException {
+        PageBackupEngine engine = new PageBackupEngine(backupDir);
+        PageBackupEngine.Result full = engine.backup(database);
+        assertTrue(full.full);
+        assertEquals(1000, full.pagesWritten);
+
+        for (int page = 100; page < 110; page++) {
+            overwritePage(page);
+        }
+        appendPages(5);
+        PageBackupEngine.Result incremental = engine.backup(database);
+
+        assertFalse(incremental.full);
+        assertEquals(1005, incremental.pageCount);
+        assertEquals(15, incremental.pagesWritten);
+        assertTrue(incremental.bytesWritten < full.bytesWritten / 20);
+        assertRestoresIdentically(engine);
+    }
+
+    @Test
+    public void unchangedDatabase_writesNoPages() throws IOException {
+        PageBackupEngine engine = new PageBackupEngine(backupDir);
+        engine.backup(database);
+
+        PageBackupEngine.Result result = engine.backup(database);
+
+        assertEquals(0, result.pagesWritten);
+        assertTrue(result.bytesWritten < 100);
+        assertRestoresIdentically(engine);
+    }
+
+    @Test
+    public void shrunkDatabase_isRestoredAtItsNewSize() throws IOException {
+        PageBackupEngine engine = new PageBackupEngine(backupDir);
+        engine.backup(database);
+        try (RandomAccessFile file = new RandomAccessFile(database, "rw")) {
+            file.setLength(600L * PAGE_SIZE);
+        }
+
+        engine.backup(database);
+
+        assertRestoresIdentically(engine);
+    }
+
+    @Test
+    public void longChain_startsANewFullBackupAndDropsOldSegments() throws IOException {
+        PageBackupEngine engine = new PageBackupEngine(backupDir, 3);
+        for (int i = 0; i < 3; i++) {
+            overwritePage(1 + i);
+            assertEquals(i == 0, engine.backup(database).full);
+        }
+
+        overwritePage(500);
+        PageBackupEngine.Result rebased = engine.backup(database);
+
+        assertTrue(rebased.full);
+        assertFalse(engine.segmentFile(1).exists());
+        assertFalse(engine.segmentFile(3).exists());
+        assertRestoresIdentically(engine);
+    }
+
+    @Test
+    public void corruptSegment_isDetected() throws IOException {
+        PageBackupEngine engine = new PageBackupEngine(backupDir);
+        engine.backup(database);
+        overwritePage(7);
+        engine.backup(database);
+
+        File segment = engine.segmentFile(1);
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            long offset = segment.length() / 2;
+            file.seek(offset);
+            int value = file.read();
+            file.seek(offset);
+            file.write(value ^ 0xFF);
+        }
+
+        try {
+            engine.restore(folder.newFile("restored.db"));
+            fail("Expected the corruption to be detected");
+        } catch (IOException expected) {
+            // Either the gzip stream or our checksum rejects the segment
+        }
+    }
+
+    @Test
+    public void missingBackup_cannotBeRestored() throws IOException {
+        PageBackupEngine engine = new PageBackupEngine(backupDir);
+        assertFalse(engine.hasBackup());
+        try {
+            engine.restore(folder.newFile("restored.db"));
+            fail("Expected no backup");
+        } catch (IOException expected) {
+            // Nothing to restore
+        }
+    }
+
+    private void assertRestoresIdentically(PageBackupEngine engine) throws IOException {
+        File restored = new File(folder.getRoot(), "restored-" + System.nanoTime() + ".db");
+        engine.restore(restored);
+        assertArrayEquals(Files.readAllBytes(database.toPath()), Files.readAllBytes(restored.toPath()));
+    }
+
+    private void writeDatabase(int pages) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(database, "rw")) {
+            file.setLength(0);
+            for (int page = 1; page <= pages; page++) {
+                file.write(pageContent(page == 1));
+            }
+        }
+    }
+
+    private void overwritePage(int pageNumber) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(database, "rw")) {
+            file.seek((long) (pageNumber - 1) * PAGE_SIZE);
+            file.write(pageContent(pageNumber == 1));
+        }
+    }
+
+    private void appendPages(int count) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(database, "rw")) {
+            file.seek(file.length());
+            for (int i = 0; i < count; i++) {
+                file.write(pageContent(false));
+            }
+        }
+    }
+
+    private byte[] pageContent(boolean header) {
+        byte[] page = new byte[PAGE_SIZE];
+        // Half random, half zeros, so pages compress roughly like real B-tree pages
+        for (int i = 0; i < PAGE_SIZE / 2; i++) {
+            page[i] = (byte) random.nextInt(16);
+        }
+        if (header) {
+            byte[] magic = "SQLite format 3\0".getBytes();
+            System.arraycopy(magic, 0, page, 0, magic.length);
+            page[16] = (byte) (PAGE_SIZE >> 8);
+            page[17] = (byte) PAGE_SIZE;
+        }
+        return page;
+    }
+}
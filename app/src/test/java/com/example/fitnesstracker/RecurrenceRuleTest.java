@@ -0,0 +1,139 @@
+package com.example.fitnesstracker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for recurrence expansion of training plans.
+ */
+public class RecurrenceRuleTest {
+
+    private static final int MONDAY_2024_01_01 = 19723; // Epoch day of Monday, 1 January 2024
+    private static final int MON_WED_FRI = RecurrenceRule.MONDAY | RecurrenceRule.WEDNESDAY | RecurrenceRule.FRIDAY;
+
+    @Test
+    public void dayOfWeek_matchesCalendar() {
+        assertEquals(3, RecurrenceRule.dayOfWeek(0)); // 1970-01-01 was a Thursday
+        assertEquals(0, RecurrenceRule.dayOfWeek(MONDAY_2024_01_01));
+        assertEquals(6, RecurrenceRule.dayOfWeek(-4)); // 1969-12-28 was a Sunday
+        assertEquals(MONDAY_2024_01_01, RecurrenceRule.weekStart(MONDAY_2024_01_01 + 6));
+    }
+
+    @Test
+    public void monWedFriForTwelveWeeks_hasThirtySixOccurrences() {
+        RecurrenceRule rule = RecurrenceRule.weekly(MONDAY_2024_01_01, 12, MON_WED_FRI);
+        int[] days = new int[100];
+
+        int count = rule.expand(MONDAY_2024_01_01 - 30, MONDAY_2024_01_01 + 365, days);
+
+        assertEquals(36, count);
+        assertEquals(MONDAY_2024_01_01, days[0]);
+        assertEquals(MONDAY_2024_01_01 + 2, days[1]);
+        assertEquals(MONDAY_2024_01_01 + 11 * 7 + 4, days[35]); // Friday of the last week
+        for (int i = 0; i < count; i++) {
+            assertTrue(rule.occursOn(days[i]));
+        }
+    }
+
+    @Test
+    public void weekly_rejectsWeeksBeyondTheCapWithoutOverflowing() {
+        RecurrenceRule longest = RecurrenceRule.weekly(MONDAY_2024_01_01, RecurrenceRule.MAX_WEEKS, MON_WED_FRI);
+        assertEquals(MONDAY_2024_01_01 + RecurrenceRule.MAX_WEEKS * 7 - 1, longest.getEndDay());
+
+        for (int weeks : new int[]{0, RecurrenceRule.MAX_WEEKS + 1, Integer.MAX_VALUE / 7 + 1, Integer.MAX_VALUE}) {
+            try {
+                RecurrenceRule.weekly(MONDAY_2024_01_01, weeks, MON_WED_FRI);
+                fail("Accepted " + weeks + " weeks");
+            } catch (IllegalArgumentException expected) {
+                // Checked before the end day is computed
+            }
+        }
+        try {
+            RecurrenceRule.weekly(Integer.MAX_VALUE - 5, 1, MON_WED_FRI);
+            fail("Accepted an end day past Integer.MAX_VALUE");
+        } catch (IllegalArgumentException expected) {
+            // The end day is computed in long
+        }
+    }
+
+    @Test
+    public void expand_clipsToWindowAndStartsMidWeek() {
+        // Starts on a Wednesday, so the Monday of the first week is skipped
+        RecurrenceRule rule = RecurrenceRule.weekly(MONDAY_2024_01_01 + 2, 2, MON_WED_FRI);
+        int[] days = new int[10];
+
+        int count = rule.expand(MONDAY_2024_01_01, MONDAY_2024_01_01 + 8, days);
+
+        assertEquals(3, count);
+        assertArrayEquals(new int[]{MONDAY_2024_01_01 + 2, MONDAY_2024_01_01 + 4, MONDAY_2024_01_01 + 7},
+                java.util.Arrays.copyOf(days, count));
+    }
+
+    @Test
+    public void everyOtherWeek_skipsInactiveWeeks() {
+        RecurrenceRule rule = new RecurrenceRule(MONDAY_2024_01_01, MONDAY_2024_01_01 + 8 * 7 - 1,
+                RecurrenceRule.SATURDAY, 2);
+        int[] days = new int[10];
+
+        // Window starts in an inactive week
+        int count = rule.expand(MONDAY_2024_01_01 + 7, MONDAY_2024_01_01 + 8 * 7, days);
+
+        assertEquals(3, count);
+        assertEquals(MONDAY_2024_01_01 + 14 + 5, days[0]);
+        assertEquals(MONDAY_2024_01_01 + 28 + 5, days[1]);
+        assertEquals(MONDAY_2024_01_01 + 42 + 5, days[2]);
+        assertFalse(rule.occursOn(MONDAY_2024_01_01 + 7 + 5));
+    }
+
+    @Test
+    public void schedule_mergesLoggedOccurrencesInDayOrder() {
+        WorkoutPlan run = new WorkoutPlan(1, 1, "Run", "30", "Cardio",
+                RecurrenceRule.weekly(MONDAY_2024_01_01, 4, MON_WED_FRI));
+        WorkoutPlan lift = new WorkoutPlan(2, 2, "Lift", "45", "Strength",
+                RecurrenceRule.weekly(MONDAY_2024_01_01, 4, RecurrenceRule.MONDAY | RecurrenceRule.THURSDAY));
+        List<WorkoutPlan> plans = new ArrayList<>();
+        Collections.addAll(plans, lift, run);
+        Set<Long> logged = new HashSet<>();
+        logged.add(PlanSchedule.occurrenceKey(1, MONDAY_2024_01_01));
+
+        List<PlanSchedule.Occurrence> week = PlanSchedule.expand(plans, MONDAY_2024_01_01, MONDAY_2024_01_01 + 6, logged);
+
+        assertEquals(5, week.size());
+        assertSame(run, week.get(0).plan); // Same day, lower plan ID first
+        assertTrue(week.get(0).logged);
+        assertSame(lift, week.get(1).plan);
+        assertFalse(week.get(1).logged);
+        assertEquals(MONDAY_2024_01_01 + 4, week.get(4).day);
+    }
+
+    @Test
+    public void multiYearWindow_expandsInMicroseconds() {
+        // A five-year plan expanded over a three-year visible window
+        RecurrenceRule rule = RecurrenceRule.weekly(MONDAY_2024_01_01, 5 * 52, MON_WED_FRI);
+        int fromDay = MONDAY_2024_01_01 + 365;
+        int toDay = fromDay + 3 * 365;
+        int[] days = new int[toDay - fromDay + 1];
+
+        int expected = rule.expand(fromDay, toDay, days);
+        assertTrue(expected > 450);
+
+        int iterations = 10_000;
+        for (int i = 0; i < iterations; i++) {
+            rule.expand(fromDay, toDay, days); // Warm up the JIT
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            assertEquals(expected, rule.expand(fromDay, toDay, days));
+        }
+        double micros = (System.nanoTime() - start) / 1000.0 / iterations;
+
+        assertTrue("expansion took " + micros + "us", micros < 100);
+    }
+}
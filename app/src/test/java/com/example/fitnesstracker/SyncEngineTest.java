@@ -0,0 +1,371 @@
+package com.example.fitnesstracker;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * End-to-end tests of the sync engine against an in-process HTTP server that implements the
+ * push and pull endpoints with idempotency keys and last-write-wins.
+ */
+public class SyncEngineTest {
+
+    private StubServer server;
+    private FakeStore store;
+    private List<Long> sleeps;
+    private SyncEngine engine;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StubServer();
+        store = new FakeStore();
+        sleeps = new ArrayList<>();
+        engine = new SyncEngine(store, server.baseUrl(), sleeps::add);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void pushesOutboxInCompressedBatches() {
+        for (int i = 0; i < 450; i++) {
+            store.write("w" + i, "Workout " + i, false, 0, 1000 + i);
+        }
+
+        SyncEngine.Result result = engine.sync();
+
+        assertTrue(result.error, result.success);
+        assertEquals(450, result.pushed);
+        assertEquals(3, server.pushRequests.get()); // 200 + 200 + 50
+        assertTrue(server.allPushesGzipped);
+        assertTrue(store.outbox.isEmpty());
+        assertEquals(450, server.latest.size());
+        assertEquals("Workout 7", server.latest.get("w7").name);
+    }
+
+    @Test
+    public void retriesTransientFailuresWithBackoffAndTheSameKey() {
+        store.write("a", "Run", false, 0, 1000);
+        server.failNextRequests(2, 503);
+
+        SyncEngine.Result result = engine.sync();
+
+        assertTrue(result.error, result.success);
+        assertEquals(3, server.pushRequests.get());
+        assertEquals(1, server.idempotencyKeys.size()); // All three attempts carried the same key
+        assertEquals(2, sleeps.size());
+        assertTrue(sleeps.get(0) >= SyncEngine.BASE_BACKOFF_MILLIS / 2);
+        assertTrue(sleeps.get(1) >= SyncEngine.BASE_BACKOFF_MILLIS); // Second delay is drawn from a doubled window
+        assertTrue(store.outbox.isEmpty());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttemptsAndKeepsTheOutbox() {
+        store.write("a", "Run", false, 0, 1000);
+        server.failNextRequests(100, 500);
+
+        SyncEngine.Result result = engine.sync();
+
+        assertFalse(result.success);
+        assertTrue(result.retryable);
+        assertEquals(SyncEngine.MAX_ATTEMPTS, server.pushRequests.get());
+        assertEquals(1, store.outbox.size());
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() {
+        store.write("a", "Run", false, 0, 1000);
+        server.failNextRequests(1, 400);
+
+        SyncEngine.Result result = engine.sync();
+
+        assertFalse(result.success);
+        assertFalse(result.retryable);
+        assertEquals(1, server.pushRequests.get());
+        assertTrue(sleeps.isEmpty());
+        assertEquals(1, store.outbox.size());
+    }
+
+    @Test
+    public void redeliveredBatchIsAppliedOnce() {
+        store.write("a", "Run", false, 0, 1000);
+        store.write("b", "Lift", false, 0, 1001);
+        store.dropNextAcknowledgement = true; // Simulates a crash after the server accepted the batch
+
+        try {
+            engine.sync();
+            fail("Expected the simulated crash");
+        } catch (IllegalStateException expected) {
+            // The server has the batch, the outbox still has it too
+        }
+        assertEquals(2, store.outbox.size());
+        assertTrue(engine.sync().success);
+
+        assertEquals(2, server.pushRequests.get());
+        assertEquals(1, server.idempotencyKeys.size());
+        assertEquals(2, server.appliedChanges.get()); // The retried batch was recognised and skipped
+        assertTrue(store.outbox.isEmpty());
+    }
+
+    @Test
+    public void pullMergesWithLastWriteWins() {
+        // Another device edited "a" after us, and we edited "b" after it
+        store.write("a", "Run (local)", false, 0, 1000);
+        store.write("b", "Lift (local)", false, 0, 3000);
+        store.outbox.clear(); // Already pushed earlier
+        server.acceptFromOtherDevice(new SyncChange(0, SyncChange.OP_UPDATE, "a", "Run (remote)", "30", "Cardio",
+                true, 0, 2000));
+        server.acceptFromOtherDevice(new SyncChange(0, SyncChange.OP_UPDATE, "b", "Lift (remote)", "45", "Strength",
+                false, 0, 2000));
+        server.acceptFromOtherDevice(new SyncChange(0, SyncChange.OP_DELETE, "c", "Swim", "20", "Cardio",
+                false, 2500, 2500));
+
+        SyncEngine.Result result = engine.sync();
+
+        assertTrue(result.error, result.success);
+        assertEquals(3, result.pulled);
+        assertEquals("Run (remote)", store.rows.get("a").name);
+        assertTrue(store.rows.get("a").completed);
+        assertEquals("Lift (local)", store.rows.get("b").name);
+        assertTrue(store.rows.get("c").isDeleted());
+        assertEquals(server.log.size(), store.cursor);
+
+        // Pulling again only asks for what is new and changes nothing
+        assertEquals(0, engine.sync().pulled);
+    }
+
+    @Test
+    public void concurrentEditsConvergeOnBothDevices() {
+        FakeStore other = new FakeStore();
+        SyncEngine otherEngine = new SyncEngine(other, server.baseUrl(), sleeps::add);
+        store.write("a", "Run", false, 0, 1000);
+        assertTrue(engine.sync().success);
+        assertTrue(otherEngine.sync().success);
+
+        store.write("a", "Run 5k", false, 0, 2000);
+        other.write("a", "Run 10k", true, 0, 3000); // Later write wins everywhere
+        assertTrue(engine.sync().success);
+        assertTrue(otherEngine.sync().success);
+        assertTrue(engine.sync().success);
+
+        assertEquals("Run 10k", store.rows.get("a").name);
+        assertEquals("Run 10k", other.rows.get("a").name);
+        assertEquals("Run 10k", server.latest.get("a").name);
+    }
+
+    @Test
+    public void jsonRoundTripsEscapedStrings() {
+        SyncChange change = new SyncChange(7, SyncChange.OP_INSERT, "u", "Leg \"day\"\n\\ \u00e5\u0001", "30", "Strength",
+                true, 0, 42);
+        List<SyncChange> changes = new ArrayList<>();
+        changes.add(change);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> json = (Map<String, Object>) SyncJson.parse(SyncJson.encodePush("device", changes));
+        @SuppressWarnings("unchecked")
+        SyncChange parsed = SyncChange.fromJson((Map<String, Object>) ((List<Object>) json.get("changes")).get(0));
+
+        assertEquals("device", json.get("device_id"));
+        assertEquals(change.name, parsed.name);
+        assertTrue(parsed.completed);
+        assertFalse(parsed.isDeleted());
+        assertEquals(42, parsed.updatedAt);
+    }
+
+    /**
+     * In-memory outbox and workout rows with the same merge rules as the SQLite store.
+     */
+    private static final class FakeStore implements SyncStore {
+        final Map<String, SyncChange> rows = new HashMap<>();
+        final List<SyncChange> outbox = new ArrayList<>();
+        long cursor;
+        boolean dropNextAcknowledgement;
+        private long nextSeq = 1;
+
+        void write(String uuid, String name, boolean completed, long deletedAt, long updatedAt) {
+            SyncChange change = new SyncChange(nextSeq++, SyncChange.OP_UPDATE, uuid, name, "30", "Cardio",
+                    completed, deletedAt, updatedAt);
+            rows.put(uuid, change);
+            outbox.add(change);
+        }
+
+        @Override
+        public String getSyncDeviceId() {
+            return "device-" + System.identityHashCode(this);
+        }
+
+        @Override
+        public List<SyncChange> getPendingChanges(int limit) {
+            return new ArrayList<>(outbox.subList(0, Math.min(limit, outbox.size())));
+        }
+
+        @Override
+        public void acknowledgeChanges(long seq) {
+            if (dropNextAcknowledgement) {
+                dropNextAcknowledgement = false;
+                throw new IllegalStateException("Crashed before acknowledging");
+            }
+            outbox.removeIf(change -> change.seq <= seq);
+        }
+
+        @Override
+        public long getPullCursor() {
+            return cursor;
+        }
+
+        @Override
+        public int applyRemoteChanges(List<SyncChange> changes, long newCursor) {
+            int applied = 0;
+            for (SyncChange change : changes) {
+                SyncChange local = rows.get(change.uuid);
+                if (local == null || change.winsOver(local.updatedAt)) {
+                    rows.put(change.uuid, change);
+                    applied++;
+                }
+            }
+            cursor = newCursor;
+            return applied;
+        }
+    }
+
+    /**
+     * Minimal sync server: stores the latest version of every workout with last-write-wins,
+     * ignores repeated idempotency keys and serves an append-only change log for pulls.
+     */
+    private static final class StubServer {
+        final HttpServer http;
+        final Map<String, SyncChange> latest = new HashMap<>();
+        final List<SyncChange> log = new ArrayList<>();
+        final Set<String> idempotencyKeys = new HashSet<>();
+        final AtomicInteger pushRequests = new AtomicInteger();
+        final AtomicInteger appliedChanges = new AtomicInteger();
+        volatile boolean allPushesGzipped = true;
+        private int failuresLeft;
+        private int failureStatus;
+
+        StubServer() throws IOException {
+            http = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            http.createContext("/sync/push", this::handlePush);
+            http.createContext("/sync/changes", this::handlePull);
+            http.start();
+        }
+
+        String baseUrl() {
+            return "http://127.0.0.1:" + http.getAddress().getPort() + "/";
+        }
+
+        void stop() {
+            http.stop(0);
+        }
+
+        synchronized void failNextRequests(int count, int status) {
+            failuresLeft = count;
+            failureStatus = status;
+        }
+
+        synchronized void acceptFromOtherDevice(SyncChange change) {
+            accept(change);
+        }
+
+        private synchronized void handlePush(HttpExchange exchange) throws IOException {
+            pushRequests.incrementAndGet();
+            byte[] body = readAll(exchange.getRequestBody());
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                respond(exchange, failureStatus, "{}");
+                return;
+            }
+
+            allPushesGzipped &= "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            String key = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+            if (key != null && !idempotencyKeys.add(key)) {
+                respond(exchange, 200, "{\"duplicate\": true}");
+                return;
+            }
+
+            String json = new String(readAll(new GZIPInputStream(new ByteArrayInputStream(body))),
+                    StandardCharsets.UTF_8);
+            @SuppressWarnings("unchecked")
+            List<Object> changes = (List<Object>) ((Map<String, Object>) SyncJson.parse(json)).get("changes");
+            for (Object change : changes) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> fields = (Map<String, Object>) change;
+                accept(SyncChange.fromJson(fields));
+                appliedChanges.incrementAndGet();
+            }
+            respond(exchange, 200, "{}");
+        }
+
+        private synchronized void handlePull(HttpExchange exchange) throws IOException {
+            String query = exchange.getRequestURI().getQuery();
+            int since = 0;
+            int limit = 100;
+            for (String param : query.split("&")) {
+                String[] pair = param.split("=");
+                if (pair[0].equals("since")) {
+                    since = Integer.parseInt(pair[1]);
+                } else if (pair[0].equals("limit")) {
+                    limit = Integer.parseInt(pair[1]);
+                }
+            }
+            int end = Math.min(log.size(), since + limit);
+            StringBuilder json = new StringBuilder("{\"cursor\": ").append(end)
+                    .append(", \"has_more\": ").append(end < log.size())
+                    .append(", \"changes\": [");
+            for (int i = Math.min(since, end); i < end; i++) {
+                json.append(i > since ? ", " : "");
+                log.get(i).appendJson(json);
+            }
+            respond(exchange, 200, json.append("]}").toString());
+        }
+
+        private void accept(SyncChange change) {
+            SyncChange current = latest.get(change.uuid);
+            if (current == null || change.winsOver(current.updatedAt)) {
+                latest.put(change.uuid, change);
+                log.add(change);
+            }
+        }
+
+        private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        private static byte[] readAll(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
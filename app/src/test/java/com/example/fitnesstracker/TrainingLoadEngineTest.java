@@ -0,0 +1,188 @@
+package com.example.fitnesstracker;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests and a benchmark for heart-rate zones, TRIMP and rolling training load.
+ */
+public class TrainingLoadEngineTest {
+
+    private static final int FIRST_DAY = 18_000;
+    private static final int TIMED_PASSES = 21;
+    private static final double ACUTE_LAMBDA = 2.0 / (TrainingLoadEngine.ACUTE_DAYS + 1);
+    private static final double CHRONIC_LAMBDA = 2.0 / (TrainingLoadEngine.CHRONIC_DAYS + 1);
+
+    private final HeartRateZones zones = new HeartRateZones(60, 190, false);
+
+    @Test
+    public void zones_followHeartRateReserve() {
+        // Reserve is 130 bpm, so zone 1 starts at 60 + 65 = 125
+        assertEquals(125, zones.zoneFloor(1));
+        assertEquals(0, zones.zoneOf(124));
+        assertEquals(1, zones.zoneOf(125));
+        assertEquals(4, zones.zoneOf(170));
+        assertEquals(5, zones.zoneOf(190));
+        assertEquals(5, zones.zoneOf(300)); // Clamped
+        assertEquals(0, zones.zoneOf(-1));
+    }
+
+    @Test
+    public void analyze_countsTimeInZoneAndSkipsDropouts() {
+        short[] samples = new short[3600];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (i < 600 ? 100 : 151); // 10 minutes of warm-up, then 70% of reserve
+        }
+        samples[1000] = 0; // Sensor dropout
+
+        SessionLoad load = zones.analyze(samples, samples.length);
+
+        assertEquals(3599, load.getValidSeconds());
+        assertEquals(600, load.getSecondsInZone(0));
+        assertEquals(2999, load.getSecondsInZone(3));
+        assertEquals(151, load.getPeakHr());
+        double warmUp = 10 * (40 / 130.0) * 0.64 * Math.exp(1.92 * 40 / 130.0);
+        double main = 2999 / 60.0 * 0.7 * 0.64 * Math.exp(1.92 * 0.7);
+        assertEquals(warmUp + main, load.getTrimp(), 1e-6);
+    }
+
+    @Test
+    public void incrementalLoad_matchesReplayingHistory() {
+        Random random = new Random(7);
+        int days = 400;
+        double[] daily = new double[days];
+        TrainingLoadEngine engine = new TrainingLoadEngine();
+        for (int i = 0; i < 600; i++) {
+            // Mostly in order, with some back-dated entries
+            int day = i < 500 ? i * days / 500 : random.nextInt(days);
+            double load = 20 + random.nextInt(150);
+            daily[day] += load;
+            engine.addLoad(FIRST_DAY + day, load);
+        }
+        // Remove one workout again
+        engine.removeLoad(FIRST_DAY + 123, 50);
+        daily[123] -= 50;
+
+        int queryDay = days + 10;
+        double[] replay = replay(daily, queryDay);
+        assertEquals(replay[0], engine.getAcuteLoad(FIRST_DAY + queryDay), 1e-6);
+        assertEquals(replay[1], engine.getChronicLoad(FIRST_DAY + queryDay), 1e-6);
+        assertEquals(replay[0] / replay[1], engine.getAcuteChronicRatio(FIRST_DAY + queryDay), 1e-9);
+    }
+
+    @Test
+    public void restoredState_continuesIdentically() {
+        TrainingLoadEngine engine = new TrainingLoadEngine();
+        engine.addLoad(FIRST_DAY, 100);
+        engine.addLoad(FIRST_DAY + 3, 80);
+        int day = engine.getLatestDay();
+
+        TrainingLoadEngine restored = new TrainingLoadEngine();
+        restored.restore(day, engine.getAcuteLoad(day), engine.getChronicLoad(day));
+        engine.addLoad(FIRST_DAY + 9, 120);
+        restored.addLoad(FIRST_DAY + 9, 120);
+
+        assertEquals(engine.getAcuteLoad(FIRST_DAY + 12), restored.getAcuteLoad(FIRST_DAY + 12), 1e-12);
+        assertEquals(engine.getChronicLoad(FIRST_DAY + 12), restored.getChronicLoad(FIRST_DAY + 12), 1e-12);
+    }
+
+    @Test
+    public void fiveYearsOfHistory_benchmark() {
+        Random random = new Random(2024);
+        short[] samples = new short[2 * 3600];
+        int days = 5 * 365;
+        int[] workoutDays = new int[days * 2];
+        double[] loads = new double[workoutDays.length];
+        int workouts = 0;
+        long totalSamples = 0;
+
+        long analyzeStart = System.nanoTime();
+        for (int day = 0; day < days; day++) {
+            if (random.nextInt(10) < 3) {
+                continue; // Rest day
+            }
+            int sessions = random.nextInt(5) == 0 ? 2 : 1;
+            for (int s = 0; s < sessions; s++) {
+                int seconds = 1800 + random.nextInt(5400);
+                int bpm = 90;
+                int target = 120 + random.nextInt(60);
+                for (int i = 0; i < seconds; i++) {
+                    // Drift towards the session's target with noise
+                    bpm += Integer.signum(target - bpm) + random.nextInt(5) - 2;
+                    samples[i] = (short) bpm;
+                }
+                SessionLoad session = zones.analyze(samples, seconds);
+                workoutDays[workouts] = FIRST_DAY + day;
+                loads[workouts] = session.getTrimp();
+                workouts++;
+                totalSamples += seconds;
+            }
+        }
+        long analyzeMillis = (System.nanoTime() - analyzeStart) / 1_000_000;
+
+        // Warm up, then time the O(1) updates over the full history
+        for (int round = 0; round < 20; round++) {
+            TrainingLoadEngine warmUp = new TrainingLoadEngine();
+            for (int i = 0; i < workouts; i++) {
+                warmUp.addLoad(workoutDays[i], loads[i]);
+            }
+        }
+        // One pass is only ~1.5k adds, so a single timing swings with the JIT and the machine; report the
+        // median and the slowest of several passes instead
+        TrainingLoadEngine engine = null;
+        double[] passNanos = new double[TIMED_PASSES];
+        for (int pass = 0; pass < TIMED_PASSES; pass++) {
+            engine = new TrainingLoadEngine();
+            long addStart = System.nanoTime();
+            for (int i = 0; i < workouts; i++) {
+                engine.addLoad(workoutDays[i], loads[i]);
+            }
+            passNanos[pass] = (double) (System.nanoTime() - addStart) / workouts;
+        }
+        Arrays.sort(passNanos);
+        double nanosPerAdd = passNanos[TIMED_PASSES / 2];
+
+        // Replaying history for every new workout, as a recomputing implementation would
+        double[] daily = new double[days];
+        long replayStart = System.nanoTime();
+        double sink = 0;
+        for (int i = 0; i < workouts; i++) {
+            daily[workoutDays[i] - FIRST_DAY] += loads[i];
+            sink += replay(daily, workoutDays[i] - FIRST_DAY)[0];
+        }
+        double nanosPerReplay = (double) (System.nanoTime() - replayStart) / workouts;
+
+        System.out.println("TrainingLoad benchmark: " + workouts + " workouts, " + totalSamples + " samples analysed in "
+                + analyzeMillis + "ms; incremental add " + Math.round(nanosPerAdd) + "ns median, "
+                + Math.round(passNanos[TIMED_PASSES - 1]) + "ns slowest pass, replay "
+                + Math.round(nanosPerReplay) + "ns per workout");
+
+        int lastDay = FIRST_DAY + days - 1;
+        double[] expected = replay(daily, days - 1);
+        assertTrue(sink > 0);
+        assertEquals(expected[0], engine.getAcuteLoad(lastDay), 1e-6 * expected[0]);
+        assertEquals(expected[1], engine.getChronicLoad(lastDay), 1e-6 * expected[1]);
+        assertTrue("add took " + nanosPerAdd + "ns", nanosPerAdd < 5_000);
+        assertTrue(nanosPerAdd < nanosPerReplay);
+    }
+
+    /**
+     * Reference implementation: walks every day from the first one.
+     *
+     * @return {acute, chronic} as of {@code toDay}
+     */
+    private static double[] replay(double[] daily, int toDay) {
+        double acute = 0;
+        double chronic = 0;
+        for (int day = 0; day <= toDay; day++) {
+            double load = day < daily.length ? daily[day] : 0;
+            acute = ACUTE_LAMBDA * load + (1 - ACUTE_LAMBDA) * acute;
+            chronic = CHRONIC_LAMBDA * load + (1 - CHRONIC_LAMBDA) * chronic;
+        }
+        return new double[]{acute, chronic};
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.fitnesstracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for history row holders and their display text.
+ */
+public class WorkoutRowTest {
+
+    private static WorkoutRow row(boolean completed) {
+        WorkoutRow row = new WorkoutRow();
+        row.set(7, "Morning Run", "30", "Cardio", completed);
+        return row;
+    }
+
+    @Test
+    public void displayText_matchesHistoryFormat() {
+        assertEquals("Name: Morning Run\nDuration: 30 minutes\nType: Cardio", row(false).toString());
+        assertEquals("Name: Morning Run\nDuration: 30 minutes\nType: Cardio (Completed)", row(true).toString());
+    }
+
+    @Test
+    public void appendTo_reusesBuilderWithoutGrowingIt() {
+        StringBuilder builder = new StringBuilder(128);
+        WorkoutRow row = row(true);
+        row.appendTo(builder);
+        int capacity = builder.capacity();
+
+        for (int i = 0; i < 1_000; i++) {
+            builder.setLength(0);
+            row.appendTo(builder);
+        }
+
+        assertEquals(capacity, builder.capacity());
+        assertEquals(row.toString(), builder.toString());
+    }
+
+    @Test
+    public void copy_isIndependentOfOriginal() {
+        WorkoutRow original = row(false);
+        WorkoutRow copy = original.copy();
+
+        original.completed = true;
+        original.type = "Strength";
+
+        assertEquals(7, copy.id);
+        assertFalse(copy.completed);
+        assertEquals("Cardio", copy.type);
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.fitnesstracker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests and a benchmark for downsampled chart series and their incremental refresh.
+ */
+public class WorkoutSeriesTest {
+
+    private static final int FIRST_DAY = 18_000;
+
+    /**
+     * In-memory stand-in for the workouts table that records what the series reads.
+     */
+    private static final class FakeSource implements WorkoutSeries.Source {
+        final TreeMap<Integer, float[]> totals = new TreeMap<>(); // Day to {count, duration}
+        final Map<Long, Integer> writes = new HashMap<>(); // updated_at to day
+        int fullLoads;
+        final List<Integer> reloadedDays = new ArrayList<>();
+
+        void add(int day, float duration, long updatedAt) {
+            float[] total = totals.computeIfAbsent(day, d -> new float[2]);
+            total[0]++;
+            total[1] += duration;
+            writes.put(updatedAt, day);
+        }
+
+        void remove(int day, float duration, long updatedAt) {
+            float[] total = totals.get(day);
+            total[0]--;
+            total[1] -= duration;
+            if (total[0] == 0) {
+                totals.remove(day);
+            }
+            writes.put(updatedAt, day);
+        }
+
+        @Override
+        public void loadDailyTotals(int[] days, WorkoutSeries target) {
+            if (days == null) {
+                fullLoads++;
+                for (Map.Entry<Integer, float[]> entry : totals.entrySet()) {
+                    target.putDay(entry.getKey(), (int) entry.getValue()[0], entry.getValue()[1]);
+                }
+                return;
+            }
+            for (int day : days) {
+                reloadedDays.add(day);
+                float[] total = totals.get(day);
+                if (total != null) {
+                    target.putDay(day, (int) total[0], total[1]);
+                }
+            }
+        }
+
+        @Override
+        public int[] getDaysWrittenAt(long[] updatedAt, int count) {
+            int[] days = new int[count];
+            for (int i = 0; i < count; i++) {
+                days[i] = writes.get(updatedAt[i]);
+            }
+            return days;
+        }
+    }
+
+    private static FakeSource randomHistory(int days, long seed) {
+        FakeSource source = new FakeSource();
+        Random random = new Random(seed);
+        long updatedAt = 1;
+        for (int day = FIRST_DAY; day < FIRST_DAY + days; day++) {
+            if (random.nextInt(3) > 0) {
+                source.add(day, 20 + random.nextInt(60), updatedAt++);
+            }
+        }
+        return source;
+    }
+
+    @Test
+    public void series_neverExceedsPointBudget() {
+        FakeSource source = randomHistory(3650, 1);
+        WorkoutSeries series = new WorkoutSeries(source);
+        int[] widths = {1, 2, 7, 100, 333, 1080, 5000};
+        for (int width : widths) {
+            for (WorkoutSeries.Downsampling downsampling : WorkoutSeries.Downsampling.values()) {
+                WorkoutSeries.Series result = series.get(WorkoutSeries.Metric.DURATION, downsampling,
+                        FIRST_DAY, FIRST_DAY + 3649, width);
+                assertTrue(downsampling + " at " + width + ": " + result.size(), result.size() <= width);
+                assertTrue(result.size() > 0);
+                for (int i = 1; i < result.size(); i++) {
+                    assertTrue(result.x[i] > result.x[i - 1]);
+                }
+            }
+        }
+        assertEquals(1, source.fullLoads);
+    }
+
+    @Test
+    public void downsampling_keepsPeaks() {
+        FakeSource source = new FakeSource();
+        for (int day = FIRST_DAY; day < FIRST_DAY + 1000; day++) {
+            source.add(day, 30, day);
+        }
+        source.add(FIRST_DAY + 517, 300, 1); // One long session
+        WorkoutSeries series = new WorkoutSeries(source);
+
+        WorkoutSeries.Series lttb = series.get(WorkoutSeries.Metric.DURATION, WorkoutSeries.Downsampling.LTTB,
+                FIRST_DAY, FIRST_DAY + 999, 50);
+        WorkoutSeries.Series minMax = series.get(WorkoutSeries.Metric.COUNT, WorkoutSeries.Downsampling.MIN_MAX,
+                FIRST_DAY, FIRST_DAY + 999, 50);
+
+        assertTrue(contains(lttb, FIRST_DAY + 517, 330));
+        assertTrue(contains(minMax, FIRST_DAY + 517, 2));
+        assertEquals(FIRST_DAY, lttb.x[0], 0);
+        assertEquals(FIRST_DAY + 999, lttb.x[lttb.size() - 1], 0);
+    }
+
+    @Test
+    public void panning_reusesAlignedBuckets() {
+        FakeSource source = randomHistory(2000, 2);
+        WorkoutSeries series = new WorkoutSeries(source);
+
+        WorkoutSeries.Series a = series.get(WorkoutSeries.Metric.DURATION, WorkoutSeries.Downsampling.LTTB,
+                FIRST_DAY + 300, FIRST_DAY + 1299, 300);
+        WorkoutSeries.Series b = series.get(WorkoutSeries.Metric.DURATION, WorkoutSeries.Downsampling.LTTB,
+                FIRST_DAY + 310, FIRST_DAY + 1309, 300);
+
+        // Same zoom level, so the points of the overlapping days are identical
+        assertEquals(a.bucketDays, b.bucketDays);
+        int overlap = 0;
+        for (int i = 0; i < a.size(); i++) {
+            if (a.x[i] >= FIRST_DAY + 310) {
+                int j = indexOf(b, a.x[i]);
+                assertTrue("Missing day " + a.x[i], j >= 0);
+                assertEquals(a.y[i], b.y[j], 0);
+                overlap++;
+            }
+        }
+        assertTrue(overlap > 0);
+    }
+
+    @Test
+    public void writes_reloadOnlyTouchedDays() {
+        FakeSource source = randomHistory(1000, 3);
+        WorkoutSeries series = new WorkoutSeries(source);
+        series.markDirty(new long[]{1}, 1); // Before the first load there is nothing to refresh
+        series.get(WorkoutSeries.Metric.COUNT, WorkoutSeries.Downsampling.MIN_MAX, FIRST_DAY, FIRST_DAY + 999, 2000);
+
+        source.add(FIRST_DAY + 999, 45, 10_001);
+        series.markDirty(new long[]{10_001}, 1);
+        source.add(FIRST_DAY - 5, 60, 10_002); // Back-dated, before the first known day
+        source.add(FIRST_DAY + 1005, 25, 10_003); // Past the last known day
+        series.markDirty(new long[]{10_002, 10_003}, 2);
+        source.remove(FIRST_DAY + 999, 45, 10_004);
+        series.markDirty(new long[]{10_004}, 1);
+
+        WorkoutSeries.Series counts = series.get(WorkoutSeries.Metric.COUNT, WorkoutSeries.Downsampling.MIN_MAX,
+                FIRST_DAY - 5, FIRST_DAY + 1005, 2000);
+        WorkoutSeries.Series durations = series.get(WorkoutSeries.Metric.DURATION, WorkoutSeries.Downsampling.LTTB,
+                FIRST_DAY - 5, FIRST_DAY + 1005, 2000);
+
+        assertEquals(1, source.fullLoads);
+        assertEquals(3, source.reloadedDays.size()); // FIRST_DAY + 999 only once
+        assertEquals(FIRST_DAY - 5, series.getFirstDay());
+        for (int i = 0; i < durations.size(); i++) {
+            float[] expected = source.totals.get((int) durations.x[i]);
+            assertEquals(expected != null ? expected[1] : 0, durations.y[i], 0);
+        }
+        assertEquals(FIRST_DAY + 1005, counts.x[counts.size() - 1], 0);
+    }
+
+    @Test
+    public void writes_keepCachedLevelsAndMatchAFullRecompute() {
+        FakeSource source = randomHistory(3000, 6);
+        WorkoutSeries series = new WorkoutSeries(source);
+        int[] widths = {3000, 700, 120, 9};
+        for (int width : widths) {
+            for (WorkoutSeries.Metric metric : WorkoutSeries.Metric.values()) {
+                for (WorkoutSeries.Downsampling downsampling : WorkoutSeries.Downsampling.values()) {
+                    series.get(metric, downsampling, FIRST_DAY, FIRST_DAY + 2999, width);
+                }
+            }
+        }
+        int cached = series.getCachedLevels();
+
+        Random random = new Random(7);
+        long updatedAt = 20_000;
+        int lastDay = FIRST_DAY + 2999;
+        for (int round = 0; round < 50; round++) {
+            int day = round % 10 == 0 ? ++lastDay : FIRST_DAY + random.nextInt(lastDay - FIRST_DAY + 1);
+            float[] total = source.totals.get(day);
+            if (total != null && random.nextBoolean()) {
+                source.remove(day, total[1] / total[0], updatedAt);
+            } else {
+                source.add(day, 5 + random.nextInt(200), updatedAt);
+            }
+            series.markDirty(new long[]{updatedAt++}, 1);
+            series.getFirstDay(); // Refreshes the touched days
+            assertEquals(cached, series.getCachedLevels());
+
+            WorkoutSeries fresh = new WorkoutSeries(source);
+            for (int width : widths) {
+                for (WorkoutSeries.Metric metric : WorkoutSeries.Metric.values()) {
+                    for (WorkoutSeries.Downsampling downsampling : WorkoutSeries.Downsampling.values()) {
+                        WorkoutSeries.Series actual = series.get(metric, downsampling, FIRST_DAY, lastDay, width);
+                        WorkoutSeries.Series expected = fresh.get(metric, downsampling, FIRST_DAY, lastDay, width);
+                        String message = metric + "/" + downsampling + " at " + width + " after round " + round;
+                        assertArrayEquals(message, expected.x, actual.x, 0);
+                        assertArrayEquals(message, expected.y, actual.y, 0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void unchangedRange_returnsCachedSeries() {
+        FakeSource source = randomHistory(500, 4);
+        WorkoutSeries series = new WorkoutSeries(source);
+        WorkoutSeries.Series first = series.get(WorkoutSeries.Metric.DURATION, WorkoutSeries.Downsampling.LTTB,
+                FIRST_DAY, FIRST_DAY + 499, 100);
+        assertSame(first, series.get(WorkoutSeries.Metric.DURATION, WorkoutSeries.Downsampling.LTTB,
+                FIRST_DAY, FIRST_DAY + 499, 100));
+
+        series.invalidate();
+        assertNotSame(first, series.get(WorkoutSeries.Metric.DURATION, WorkoutSeries.Downsampling.LTTB,
+                FIRST_DAY, FIRST_DAY + 499, 100));
+        assertEquals(2, source.fullLoads);
+    }
+
+    @Test
+    public void benchmark_panAndWrite() {
+        FakeSource source = randomHistory(20 * 365, 5);
+        WorkoutSeries series = new WorkoutSeries(source);
+        int width = 1080;
+        int span = 5 * 365;
+
+        long start = System.nanoTime();
+        series.get(WorkoutSeries.Metric.DURATION, WorkoutSeries.Downsampling.LTTB, FIRST_DAY, FIRST_DAY + span, width);
+        long firstNanos = System.nanoTime() - start;
+
+        int pans = 10_000;
+        start = System.nanoTime();
+        for (int i = 0; i < pans; i++) {
+            int from = FIRST_DAY + i % (20 * 365 - span);
+            series.get(WorkoutSeries.Metric.DURATION, WorkoutSeries.Downsampling.LTTB, from, from + span, width);
+        }
+        long panNanos = (System.nanoTime() - start) / pans;
+
+        // One write followed by the series the chart redraws from; drawing the view itself is not timed
+        int writes = 1_000;
+        long updatedAt = 1_000_000;
+        start = System.nanoTime();
+        for (int i = 0; i < writes; i++) {
+            source.add(FIRST_DAY + 20 * 365 - 1, 30, updatedAt);
+            series.markDirty(new long[]{updatedAt++}, 1);
+            series.get(WorkoutSeries.Metric.DURATION, WorkoutSeries.Downsampling.LTTB, FIRST_DAY, FIRST_DAY + span, width);
+        }
+        long writeNanos = (System.nanoTime() - start) / writes;
+
+        System.out.println("WorkoutSeries: first load " + firstNanos / 1000 + " us, pan " + panNanos +
+                " ns, write + re-downsample " + writeNanos / 1000 + " us over " + 20 * 365 + " days");
+        assertEquals(1, source.fullLoads);
+        assertEquals(writes, source.reloadedDays.size());
+    }
+
+    private static boolean contains(WorkoutSeries.Series series, int day, float value) {
+        int i = indexOf(series, day);
+        return i >= 0 && series.y[i] == value;
+    }
+
+    private static int indexOf(WorkoutSeries.Series series, float day) {
+        for (int i = 0; i < series.size(); i++) {
+            if (series.x[i] == day) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
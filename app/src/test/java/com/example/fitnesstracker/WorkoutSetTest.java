@@ -0,0 +1,47 @@
+package com.example.fitnesstracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for strength set volume and one-rep max estimates.
+ */
+public class WorkoutSetTest {
+
+    @Test
+    public void oneRepMax_usesEpleyFormula() {
+        assertEquals(116_666, WorkoutSet.estimateOneRepMax(100_000, 5));
+        assertEquals(130_000, WorkoutSet.estimateOneRepMax(100_000, 9));
+    }
+
+    @Test
+    public void oneRepMax_ofSingleIsTheWeightAndOfNoRepsIsZero() {
+        assertEquals(140_000, WorkoutSet.estimateOneRepMax(140_000, 1));
+        assertEquals(0, WorkoutSet.estimateOneRepMax(140_000, 0));
+    }
+
+    @Test
+    public void oneRepMax_doesNotOverflowForHeavyHighRepSets() {
+        assertEquals(120_000_000, WorkoutSet.estimateOneRepMax(60_000_000, 30));
+    }
+
+    @Test
+    public void kilograms_areRoundedToGrams() {
+        WorkoutSet set = WorkoutSet.ofKilograms(" Bench Press ", 8, 62.5);
+
+        assertEquals("Bench Press", set.exercise);
+        assertEquals(62_500, set.weightGrams);
+        assertEquals(500_000, set.getVolume());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeReps_areRejected() {
+        new WorkoutSet("Squat", -1, 100_000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blankExercise_isRejected() {
+        new WorkoutSet(" ", 5, 100_000);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.fitnesstracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the cached widget summary and its day rollover.
+ */
+public class WorkoutSummaryTest {
+
+    // A Wednesday, so its week started two days before
+    private static final int WEDNESDAY = 19_998;
+
+    private static WorkoutSummary summaryOnWednesday() {
+        WorkoutSummary summary = WorkoutSummary.empty(WEDNESDAY);
+        summary.putDay(WEDNESDAY - 3, 4, 200); // Previous Sunday
+        summary.putDay(WEDNESDAY - 2, 1, 30); // Monday
+        summary.putDay(WEDNESDAY, 2, 75);
+        return summary;
+    }
+
+    @Test
+    public void totals_coverTodayAndCurrentWeek() {
+        assertEquals(2, RecurrenceRule.dayOfWeek(WEDNESDAY));
+        WorkoutSummary summary = summaryOnWednesday();
+
+        assertEquals(2, summary.getTodayCount(WEDNESDAY));
+        assertEquals(75, summary.getTodayMinutes(WEDNESDAY));
+        assertEquals(3, summary.getWeekCount(WEDNESDAY));
+        assertEquals(105, summary.getWeekMinutes(WEDNESDAY));
+    }
+
+    @Test
+    public void laterDaysWithoutWrites_keepWeekAndResetToday() {
+        WorkoutSummary summary = summaryOnWednesday();
+
+        int sunday = WEDNESDAY + 4;
+        assertTrue(summary.covers(sunday));
+        assertEquals(0, summary.getTodayCount(sunday));
+        assertEquals(3, summary.getWeekCount(sunday));
+        assertEquals(105, summary.getWeekMinutes(sunday));
+
+        int nextMonday = WEDNESDAY + 5;
+        assertEquals(0, summary.getWeekCount(nextMonday));
+        assertEquals(0, summary.getWeekMinutes(nextMonday));
+    }
+
+    @Test
+    public void snapshotFromLaterDay_isNotUsed() {
+        assertFalse(summaryOnWednesday().covers(WEDNESDAY - 1));
+    }
+
+    @Test
+    public void encodeDecode_roundTrips() {
+        WorkoutSummary decoded = WorkoutSummary.decode(summaryOnWednesday().encode());
+
+        assertNotNull(decoded);
+        assertEquals(WEDNESDAY, decoded.getLastDay());
+        assertEquals(75, decoded.getTodayMinutes(WEDNESDAY));
+        assertEquals(105, decoded.getWeekMinutes(WEDNESDAY));
+    }
+
+    @Test
+    public void decode_rejectsMalformedValues() {
+        assertNull(WorkoutSummary.decode(null));
+        assertNull(WorkoutSummary.decode(""));
+        assertNull(WorkoutSummary.decode("19998;1,2"));
+        assertNull(WorkoutSummary.decode("19998;a,0;0,0;0,0;0,0;0,0;0,0;0,0"));
+    }
+}